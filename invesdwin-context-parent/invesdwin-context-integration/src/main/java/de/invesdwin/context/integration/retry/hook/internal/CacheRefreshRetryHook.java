@@ -0,0 +1,38 @@
+package de.invesdwin.context.integration.retry.hook.internal;
+
+import javax.annotation.concurrent.Immutable;
+import javax.cache.Cache;
+import javax.inject.Named;
+
+import de.invesdwin.context.integration.retry.hook.RetryHookManager;
+import de.invesdwin.context.integration.retry.task.RetryOriginator;
+import de.invesdwin.context.jcache.refresh.ICacheRefreshHook;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * A failed refresh-ahead is retried on the next access of the stale entry, thus it is reported like a retry.
+ */
+@Named
+@Immutable
+public class CacheRefreshRetryHook implements ICacheRefreshHook {
+
+    @Override
+    public void onRefreshSucceeded(final String cacheName, final Object key, final Duration latency,
+            final int previousFailures) {
+        if (previousFailures > 0) {
+            RetryHookManager.getEventTrigger()
+                    .onRetrySucceeded(newOriginator(cacheName, key, latency), previousFailures);
+        }
+    }
+
+    @Override
+    public void onRefreshFailed(final String cacheName, final Object key, final Duration latency, final int failures,
+            final Throwable cause) {
+        RetryHookManager.getEventTrigger().onBeforeRetry(newOriginator(cacheName, key, latency), failures - 1, cause);
+    }
+
+    private RetryOriginator newOriginator(final String cacheName, final Object key, final Duration latency) {
+        return new RetryOriginator(Cache.class, "refresh", cacheName, key, latency);
+    }
+
+}
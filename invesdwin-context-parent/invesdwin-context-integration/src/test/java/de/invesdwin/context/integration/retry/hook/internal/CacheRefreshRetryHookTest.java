@@ -0,0 +1,142 @@
+package de.invesdwin.context.integration.retry.hook.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+import org.junit.Test;
+
+import de.invesdwin.context.integration.retry.hook.IRetryHook;
+import de.invesdwin.context.integration.retry.hook.RetryHookManager;
+import de.invesdwin.context.integration.retry.task.RetryOriginator;
+import de.invesdwin.context.jcache.CacheBuilder;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+@NotThreadSafe
+public class CacheRefreshRetryHookTest extends ATest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private long start;
+
+    @Test
+    public void testRefreshFailsOnceThenSucceeds() throws InterruptedException {
+        start = System.currentTimeMillis();
+        final Map<String, AtomicInteger> loads = new ConcurrentHashMap<String, AtomicInteger>();
+        final Cache<String, String> cache = new CacheBuilder<String, String>()
+                .withUniqueName(CacheRefreshRetryHookTest.class.getName())
+                .withMaximumSize(100)
+                .withRefreshAhead(new Duration(50, FTimeUnit.MILLISECONDS))
+                .withCacheLoader(new CacheLoader<String, String>() {
+                    @Override
+                    public String load(final String key) throws CacheLoaderException {
+                        loads.putIfAbsent(key, new AtomicInteger());
+                        final int count = loads.get(key).incrementAndGet();
+                        if ("a".equals(key) && count == 2) {
+                            throw new CacheLoaderException("first refresh of a fails");
+                        }
+                        return key + count;
+                    }
+
+                    @Override
+                    public Map<String, String> loadAll(final Iterable<? extends String> keys)
+                            throws CacheLoaderException {
+                        throw new UnsupportedOperationException();
+                    }
+                })
+                .create();
+        final RecordingRetryHook hook = new RecordingRetryHook(cache.getName());
+        RetryHookManager.register(hook);
+        try {
+            Assertions.assertThat(cache.get("a")).isEqualTo("a1");
+            Assertions.assertThat(cache.get("b")).isEqualTo("b1");
+            TimeUnit.MILLISECONDS.sleep(100);
+
+            //the failing refresh serves the stale value and is reported as a retry
+            while (hook.beforeRetry.isEmpty()) {
+                Assertions.assertThat(cache.get("a")).isNotNull();
+                awaitStep();
+            }
+            Assertions.assertThat(hook.beforeRetry).containsExactly("a:0");
+
+            //a successful refresh of another key does not reset the failures of a
+            while (loads.get("b").get() < 2) {
+                cache.get("b");
+                awaitStep();
+            }
+
+            while (hook.retrySucceeded.isEmpty()) {
+                cache.get("a");
+                awaitStep();
+            }
+            Assertions.assertThat(hook.retrySucceeded).containsExactly("a:1");
+            Assertions.assertThat(hook.beforeRetry).containsExactly("a:0");
+            Assertions.assertThat(hook.retryAborted).isEmpty();
+        } finally {
+            RetryHookManager.unregister(hook);
+            cache.close();
+        }
+    }
+
+    private void awaitStep() throws InterruptedException {
+        if (System.currentTimeMillis() - start > TIMEOUT_MILLIS) {
+            throw new IllegalStateException("Timeout while waiting for the refresh");
+        }
+        TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    private static final class RecordingRetryHook implements IRetryHook {
+
+        private final String cacheName;
+        private final List<String> beforeRetry = new CopyOnWriteArrayList<String>();
+        private final List<String> retryAborted = new CopyOnWriteArrayList<String>();
+        private final List<String> retrySucceeded = new CopyOnWriteArrayList<String>();
+
+        private RecordingRetryHook(final String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        private String toString(final RetryOriginator originator, final int retryCount) {
+            return originator.getArgs()[1] + ":" + retryCount;
+        }
+
+        private boolean isThisCache(final RetryOriginator originator) {
+            return originator.getArgs() != null && originator.getArgs().length > 0
+                    && cacheName.equals(originator.getArgs()[0]);
+        }
+
+        @Override
+        public void onBeforeRetry(final RetryOriginator originator, final int retryCount, final Throwable cause) {
+            if (isThisCache(originator)) {
+                beforeRetry.add(toString(originator, retryCount));
+            }
+        }
+
+        @Override
+        public void onRetryAborted(final RetryOriginator originator, final int retryCount, final Throwable cause) {
+            if (isThisCache(originator)) {
+                retryAborted.add(toString(originator, retryCount));
+            }
+        }
+
+        @Override
+        public void onRetrySucceeded(final RetryOriginator originator, final int retryCount) {
+            if (isThisCache(originator)) {
+                retrySucceeded.add(toString(originator, retryCount));
+            }
+        }
+
+    }
+
+}
@@ -4,6 +4,7 @@ import javax.annotation.concurrent.Immutable;
 
 import de.invesdwin.context.integration.IntegrationProperties;
 import de.invesdwin.context.system.properties.IProperties;
+import de.invesdwin.context.system.properties.PropertyKey;
 import de.invesdwin.context.system.properties.SystemProperties;
 
 @Immutable
@@ -12,11 +13,17 @@ public final class WebserverProperties {
     public static final boolean SSL_ENABLED;
     public static final int THREAD_POOL_COUNT;
     private static final SystemProperties SYSTEM_PROPERTIES;
+    private static final PropertyKey<String> KEYSTORE_RESOURCE;
+    private static final PropertyKey<String> KEYSTORE_KEYPASS;
+    private static final PropertyKey<String> KEYSTORE_ALIAS;
+    private static final PropertyKey<String> KEYSTORE_STOREPASS;
 
     static {
         SSL_ENABLED = "https".equals(IntegrationProperties.WEBSERVER_BIND_URI.getScheme());
 
         SYSTEM_PROPERTIES = new SystemProperties(WebserverProperties.class);
+        //allows the property keys to cache their values
+        SYSTEM_PROPERTIES.setSnapshotReads(true);
         THREAD_POOL_COUNT = SYSTEM_PROPERTIES.getInteger("THREAD_POOL_COUNT");
         if (SSL_ENABLED) {
             //create default password warnings
@@ -24,25 +31,29 @@ public final class WebserverProperties {
             SYSTEM_PROPERTIES.getStringWithSecurityWarning("KEYSTORE_STOREPASS",
                     IProperties.INVESDWIN_DEFAULT_PASSWORD);
         }
+        KEYSTORE_RESOURCE = PropertyKey.of(SYSTEM_PROPERTIES, "KEYSTORE_RESOURCE", IProperties::getString);
+        KEYSTORE_KEYPASS = PropertyKey.of(SYSTEM_PROPERTIES, "KEYSTORE_KEYPASS", IProperties::getString);
+        KEYSTORE_ALIAS = PropertyKey.of(SYSTEM_PROPERTIES, "KEYSTORE_ALIAS", IProperties::getString);
+        KEYSTORE_STOREPASS = PropertyKey.of(SYSTEM_PROPERTIES, "KEYSTORE_STOREPASS", IProperties::getString);
     }
 
     private WebserverProperties() {
     }
 
     public static String getKeystoreResource() {
-        return SYSTEM_PROPERTIES.getString("KEYSTORE_RESOURCE");
+        return KEYSTORE_RESOURCE.get();
     }
 
     public static String getKeystoreKeypass() {
-        return SYSTEM_PROPERTIES.getString("KEYSTORE_KEYPASS");
+        return KEYSTORE_KEYPASS.get();
     }
 
     public static String getKeystoreAlias() {
-        return SYSTEM_PROPERTIES.getString("KEYSTORE_ALIAS");
+        return KEYSTORE_ALIAS.get();
     }
 
     public static String getKeystoreStorepass() {
-        return SYSTEM_PROPERTIES.getString("KEYSTORE_STOREPASS");
+        return KEYSTORE_STOREPASS.get();
     }
 
 }
@@ -0,0 +1,422 @@
+package de.invesdwin.context;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.lang.Files;
+
+/**
+ * Records the wall and cpu time of the bootstrap phases and writes them as a timeline into the log directory
+ * (bootstrap-timeline.json and bootstrap-timeline.html). With -Dde.invesdwin.context.BootstrapProfiler.CHROME_TRACE=true
+ * also a bootstrap-timeline.trace.json gets written that can be opened in chrome://tracing or https://ui.perfetto.dev.
+ * The profiler can be disabled with -Dde.invesdwin.context.BootstrapProfiler.ENABLED=false.
+ *
+ * This class is used during the static initialization of ContextProperties, thus it must not depend on other classes
+ * of this context until the timeline gets written. When the context is bootstrapped again (e.g. after a reset in
+ * tests), the phases of the previous bootstrap are discarded.
+ */
+@ThreadSafe
+public final class BootstrapProfiler {
+
+    public static final String KEY_ENABLED = "de.invesdwin.context.BootstrapProfiler.ENABLED";
+    public static final String KEY_CHROME_TRACE = "de.invesdwin.context.BootstrapProfiler.CHROME_TRACE";
+    public static final String FILE_NAME = "bootstrap-timeline";
+
+    private static final boolean ENABLED;
+    private static final boolean CHROME_TRACE;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long JVM_UPTIME_AT_ORIGIN_MILLIS;
+    private static final ThreadMXBean THREAD_MX_BEAN;
+    private static final ConcurrentLinkedQueue<Record> RECORDS = new ConcurrentLinkedQueue<Record>();
+    /**
+     * Phases of a previous bootstrap that end later (e.g. non blocking startup hooks) are ignored by their sequence.
+     */
+    private static final AtomicInteger BOOTSTRAP_SEQUENCE = new AtomicInteger();
+    @GuardedBy("BootstrapProfiler.class")
+    private static boolean bootstrapStarted;
+    private static final ThreadLocal<int[]> DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+    private static final Phase DISABLED_PHASE = new Phase(null);
+    private static final double NANOS_PER_MILLI = 1_000_000D;
+    private static final double NANOS_PER_MICRO = 1_000D;
+
+    static {
+        ENABLED = readBoolean(KEY_ENABLED, true);
+        CHROME_TRACE = readBoolean(KEY_CHROME_TRACE, false);
+        long uptime = -1;
+        ThreadMXBean threadMXBean = null;
+        if (ENABLED) {
+            try {
+                uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+                threadMXBean = ManagementFactory.getThreadMXBean();
+                if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+                    threadMXBean = null;
+                }
+            } catch (final Throwable t) {
+                //management might not be available in restricted environments
+                threadMXBean = null;
+            }
+        }
+        JVM_UPTIME_AT_ORIGIN_MILLIS = uptime;
+        THREAD_MX_BEAN = threadMXBean;
+    }
+
+    private BootstrapProfiler() {}
+
+    private static boolean readBoolean(final String key, final boolean defaultValue) {
+        //CHECKSTYLE:OFF single line
+        try {
+            final String property = System.getProperty(key);
+            if (property == null || property.trim().isEmpty()) {
+                return defaultValue;
+            } else {
+                return Boolean.parseBoolean(property.trim());
+            }
+        } catch (final Throwable t) {
+            //maybe some webstart security control prevents reading system properties
+            return defaultValue;
+        }
+        //CHECKSTYLE:ON
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Marks the start of MergedContext.bootstrap(). The phases of the static initialization that happened before the
+     * first bootstrap are kept, a later bootstrap discards the phases that were recorded before.
+     */
+    public static synchronized void bootstrapStarted() {
+        if (!ENABLED) {
+            return;
+        }
+        if (!bootstrapStarted) {
+            bootstrapStarted = true;
+            return;
+        }
+        BOOTSTRAP_SEQUENCE.incrementAndGet();
+        RECORDS.clear();
+    }
+
+    /**
+     * Starts measuring a phase on the current thread, call end() on the returned phase when it is finished. Use a
+     * try/finally block so that the nesting depth of the thread stays correct when the phase fails.
+     */
+    public static Phase start(final String name) {
+        if (!ENABLED) {
+            return DISABLED_PHASE;
+        }
+        return new Phase(name);
+    }
+
+    private static long getCurrentThreadCpuTime() {
+        if (THREAD_MX_BEAN == null) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Returns the recorded phases of the current bootstrap ordered by their start.
+     */
+    public static List<Record> getRecords() {
+        final int sequence = BOOTSTRAP_SEQUENCE.get();
+        final List<Record> records = new ArrayList<Record>(RECORDS.size());
+        for (final Record record : RECORDS) {
+            //a phase of the previous bootstrap might have been added after the records were cleared
+            if (record.bootstrapSequence == sequence) {
+                records.add(record);
+            }
+        }
+        Collections.sort(records, new Comparator<Record>() {
+            @Override
+            public int compare(final Record o1, final Record o2) {
+                return Long.compare(o1.getStartNanos(), o2.getStartNanos());
+            }
+        });
+        return records;
+    }
+
+    /**
+     * Writes the timeline of the phases recorded so far into the log directory. Can be called again to include phases
+     * that finished afterwards (e.g. non blocking startup hooks).
+     */
+    public static synchronized void writeTimeline() {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            final List<Record> records = getRecords();
+            final File directory = ContextProperties.getLogDirectory();
+            Files.writeStringToFile(new File(directory, FILE_NAME + ".json"), toJson(records),
+                    StandardCharsets.UTF_8);
+            Files.writeStringToFile(new File(directory, FILE_NAME + ".html"), toHtml(records),
+                    StandardCharsets.UTF_8);
+            if (CHROME_TRACE) {
+                Files.writeStringToFile(new File(directory, FILE_NAME + ".trace.json"), toChromeTrace(records),
+                        StandardCharsets.UTF_8);
+            }
+        } catch (final Throwable t) {
+            Err.process(t);
+        }
+    }
+
+    private static String toJson(final List<Record> records) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"jvmUptimeAtOriginMillis\": ").append(JVM_UPTIME_AT_ORIGIN_MILLIS);
+        sb.append(",\n  \"phases\": [");
+        for (int i = 0; i < records.size(); i++) {
+            final Record record = records.get(i);
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("\n    {\"name\": ");
+            appendJsonString(sb, record.getName());
+            sb.append(", \"thread\": ");
+            appendJsonString(sb, record.getThread());
+            sb.append(", \"depth\": ").append(record.getDepth());
+            sb.append(", \"startMillis\": ").append(formatMillis(record.getStartNanos()));
+            sb.append(", \"wallMillis\": ").append(formatMillis(record.getWallNanos()));
+            sb.append(", \"cpuMillis\": ").append(formatMillis(record.getCpuNanos()));
+            sb.append("}");
+        }
+        sb.append("\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static String toChromeTrace(final List<Record> records) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"traceEvents\":[");
+        for (int i = 0; i < records.size(); i++) {
+            final Record record = records.get(i);
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("\n{\"name\":");
+            appendJsonString(sb, record.getName());
+            sb.append(",\"cat\":\"bootstrap\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+            appendJsonString(sb, record.getThread());
+            sb.append(",\"ts\":").append(formatMicros(record.getStartNanos()));
+            sb.append(",\"dur\":").append(formatMicros(record.getWallNanos()));
+            sb.append(",\"args\":{\"cpuMillis\":").append(formatMillis(record.getCpuNanos())).append("}}");
+        }
+        sb.append("\n],\"displayTimeUnit\":\"ms\"}\n");
+        return sb.toString();
+    }
+
+    private static String toHtml(final List<Record> records) {
+        long totalNanos = 1;
+        for (final Record record : records) {
+            totalNanos = Math.max(totalNanos, record.getStartNanos() + record.getWallNanos());
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Bootstrap Timeline</title><style>\n");
+        sb.append("body{font-family:sans-serif;font-size:12px}table{border-collapse:collapse;width:100%}");
+        sb.append("td{padding:2px 6px;white-space:nowrap}tr:nth-child(even){background:#f4f4f4}");
+        sb.append(".bar{position:relative;height:12px;min-width:600px}");
+        sb.append(".bar div{position:absolute;height:12px;background:#4a90d9;min-width:1px}");
+        sb.append("</style></head><body>\n<h3>Bootstrap Timeline (");
+        sb.append(formatMillis(totalNanos)).append(" ms, JVM uptime at start ");
+        sb.append(JVM_UPTIME_AT_ORIGIN_MILLIS).append(" ms)</h3>\n<table>\n");
+        sb.append("<tr><th>Phase</th><th>Thread</th><th>Start ms</th><th>Wall ms</th><th>CPU ms</th>");
+        sb.append("<th>Timeline</th></tr>\n");
+        for (final Record record : records) {
+            sb.append("<tr><td style=\"padding-left:").append(6 + record.getDepth() * 16).append("px\">");
+            appendHtml(sb, record.getName());
+            sb.append("</td><td>");
+            appendHtml(sb, record.getThread());
+            sb.append("</td><td>").append(formatMillis(record.getStartNanos()));
+            sb.append("</td><td>").append(formatMillis(record.getWallNanos()));
+            sb.append("</td><td>").append(formatMillis(record.getCpuNanos()));
+            sb.append("</td><td class=\"bar\"><div style=\"left:");
+            sb.append(formatPercent(record.getStartNanos(), totalNanos)).append("%;width:");
+            sb.append(formatPercent(record.getWallNanos(), totalNanos)).append("%\"></div></td></tr>\n");
+        }
+        sb.append("</table>\n</body></html>\n");
+        return sb.toString();
+    }
+
+    private static String formatMillis(final long nanos) {
+        if (nanos < 0) {
+            return "-1";
+        }
+        return String.format(Locale.ENGLISH, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static String formatMicros(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / NANOS_PER_MICRO);
+    }
+
+    private static String formatPercent(final long nanos, final long totalNanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos * 100D / totalNanos);
+    }
+
+    private static void appendJsonString(final StringBuilder sb, final String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void appendHtml(final StringBuilder sb, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * A running phase, only the thread that started it should end it.
+     */
+    @NotThreadSafe
+    public static final class Phase {
+        private final String name;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final int depth;
+        private final int bootstrapSequence;
+        private boolean ended;
+
+        private Phase(final String name) {
+            this.name = name;
+            if (name == null) {
+                this.startNanos = 0;
+                this.startCpuNanos = 0;
+                this.depth = 0;
+                this.bootstrapSequence = 0;
+                this.ended = true;
+            } else {
+                this.bootstrapSequence = BOOTSTRAP_SEQUENCE.get();
+                final int[] depthHolder = DEPTH.get();
+                this.depth = depthHolder[0]++;
+                this.startCpuNanos = getCurrentThreadCpuTime();
+                this.startNanos = System.nanoTime();
+            }
+        }
+
+        public void end() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            final long endNanos = System.nanoTime();
+            final long cpuNanos;
+            if (startCpuNanos < 0) {
+                cpuNanos = -1;
+            } else {
+                cpuNanos = getCurrentThreadCpuTime() - startCpuNanos;
+            }
+            DEPTH.get()[0]--;
+            if (bootstrapSequence != BOOTSTRAP_SEQUENCE.get()) {
+                //belongs to a previous bootstrap
+                return;
+            }
+            RECORDS.add(new Record(name, Thread.currentThread().getName(), depth, bootstrapSequence,
+                    startNanos - ORIGIN_NANOS, endNanos - startNanos, cpuNanos));
+        }
+    }
+
+    @Immutable
+    public static final class Record {
+        private final String name;
+        private final String thread;
+        private final int depth;
+        private final int bootstrapSequence;
+        private final long startNanos;
+        private final long wallNanos;
+        private final long cpuNanos;
+
+        private Record(final String name, final String thread, final int depth, final int bootstrapSequence,
+                final long startNanos, final long wallNanos, final long cpuNanos) {
+            this.name = name;
+            this.thread = thread;
+            this.depth = depth;
+            this.bootstrapSequence = bootstrapSequence;
+            this.startNanos = startNanos;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        /**
+         * The nesting level of the phase on its thread.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Relative to the initialization of the profiler.
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * -1 if the cpu time of threads can not be measured.
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + " [" + thread + "] " + formatMillis(wallNanos) + " ms";
+        }
+    }
+
+}
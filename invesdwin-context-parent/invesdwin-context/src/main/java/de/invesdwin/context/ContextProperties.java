@@ -46,50 +46,75 @@ public final class ContextProperties {
     private static File logDirectory;
 
     static {
-        final IPlatformInitializer initializer = PlatformInitializerProperties.getInitializer();
-        IS_TEST_ENVIRONMENT = initializer.initIsTestEnvironment();
-
-        File tempDirectory = null;
-        File tempClasspathDirectory = null;
+        final BootstrapProfiler.Phase phase = BootstrapProfiler.start("ContextProperties");
         try {
-            tempDirectory = initializer.initTempDirectory();
-            tempClasspathDirectory = initializer.initTempClasspathDirectory(tempDirectory);
-        } catch (final Throwable t) {
-            //webstart safety for access control
-            tempDirectory = null;
-            tempClasspathDirectory = null;
-            PlatformInitializerProperties.logInitializationFailedIsIgnored(t);
-        }
-        TEMP_DIRECTORY = tempDirectory;
-        TEMP_CLASSPATH_DIRECTORY = tempClasspathDirectory;
+            final IPlatformInitializer initializer = PlatformInitializerProperties.getInitializer();
+            IS_TEST_ENVIRONMENT = initializer.initIsTestEnvironment();
 
-        if (PlatformInitializerProperties.isAllowed()) {
+            File tempDirectory = null;
+            File tempClasspathDirectory = null;
             try {
-                initializer.initXmlTransformerConfigurer();
-                initializer.initLogbackConfigurationLoader();
-                initializer.initSystemPropertiesLoader();
-                initializer.initJavaUtilPrefsBackingStoreDirectory();
-                initializer.initDefaultCache(DEFAULT_CACHE_NAME);
+                tempDirectory = initializer.initTempDirectory();
+                tempClasspathDirectory = initializer.initTempClasspathDirectory(tempDirectory);
             } catch (final Throwable t) {
+                //webstart safety for access control
+                tempDirectory = null;
+                tempClasspathDirectory = null;
                 PlatformInitializerProperties.logInitializationFailedIsIgnored(t);
             }
-        }
+            TEMP_DIRECTORY = tempDirectory;
+            TEMP_CLASSPATH_DIRECTORY = tempClasspathDirectory;
 
-        DEFAULT_NETWORK_TIMEOUT = readDefaultNetworkTimeout();
-        if (!readConscryptSecurityProviderDisabled()) {
-            initializer.initConscryptSecurityProvider();
-        }
-        initializer.initCryptoPolicyUnlimited();
-        URIs.setDefaultNetworkTimeout(DEFAULT_NETWORK_TIMEOUT);
-        InputStreamHttpResponseConsumer
-                .setDefaultTempDir(new File(TEMP_DIRECTORY, InputStreamHttpResponseConsumer.class.getSimpleName()));
-        DEFAULT_NETWORK_TIMEOUT_MILLIS = ContextProperties.DEFAULT_NETWORK_TIMEOUT.intValue(FTimeUnit.MILLISECONDS);
-        CPU_THREAD_POOL_COUNT = readCpuThreadPoolCount();
-        Executors.setCpuThreadPoolCount(CPU_THREAD_POOL_COUNT);
+            if (PlatformInitializerProperties.isAllowed()) {
+                try {
+                    initializer.initXmlTransformerConfigurer();
+                    final BootstrapProfiler.Phase logbackPhase = BootstrapProfiler.start("logback");
+                    try {
+                        initializer.initLogbackConfigurationLoader();
+                    } finally {
+                        logbackPhase.end();
+                    }
+                    final BootstrapProfiler.Phase systemPropertiesPhase = BootstrapProfiler.start("system properties");
+                    try {
+                        initializer.initSystemPropertiesLoader();
+                    } finally {
+                        systemPropertiesPhase.end();
+                    }
+                    initializer.initJavaUtilPrefsBackingStoreDirectory();
+                    final BootstrapProfiler.Phase defaultCachePhase = BootstrapProfiler.start("default cache");
+                    try {
+                        initializer.initDefaultCache(DEFAULT_CACHE_NAME);
+                    } finally {
+                        defaultCachePhase.end();
+                    }
+                } catch (final Throwable t) {
+                    PlatformInitializerProperties.logInitializationFailedIsIgnored(t);
+                }
+            }
 
-        initDebugStacktraces();
+            DEFAULT_NETWORK_TIMEOUT = readDefaultNetworkTimeout();
+            final BootstrapProfiler.Phase securityPhase = BootstrapProfiler.start("security providers");
+            try {
+                if (!readConscryptSecurityProviderDisabled()) {
+                    initializer.initConscryptSecurityProvider();
+                }
+                initializer.initCryptoPolicyUnlimited();
+            } finally {
+                securityPhase.end();
+            }
+            URIs.setDefaultNetworkTimeout(DEFAULT_NETWORK_TIMEOUT);
+            InputStreamHttpResponseConsumer
+                    .setDefaultTempDir(new File(TEMP_DIRECTORY, InputStreamHttpResponseConsumer.class.getSimpleName()));
+            DEFAULT_NETWORK_TIMEOUT_MILLIS = ContextProperties.DEFAULT_NETWORK_TIMEOUT.intValue(FTimeUnit.MILLISECONDS);
+            CPU_THREAD_POOL_COUNT = readCpuThreadPoolCount();
+            Executors.setCpuThreadPoolCount(CPU_THREAD_POOL_COUNT);
+
+            initDebugStacktraces();
 
-        USER_NAME = new SystemProperties().getString("user.name");
+            USER_NAME = new SystemProperties().getString("user.name");
+        } finally {
+            phase.end();
+        }
     }
 
     private ContextProperties() {
@@ -0,0 +1,296 @@
+package de.invesdwin.context.beans.hook;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.BootstrapProfiler;
+import de.invesdwin.context.log.Log;
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Calls hooks in the order of their HookDependsOn declarations. Hooks are started as soon as all their dependencies are
+ * finished, either on the executor (parallel) or on the thread that called run(). The timings of the hooks are logged
+ * when the awaited hooks are finished, the timings of hooks that are still running at that point are logged when they
+ * are finished as well.
+ */
+@ThreadSafe
+final class DependencyAwareHookRunner<H> {
+
+    private static final Log LOG = new Log(DependencyAwareHookRunner.class);
+
+    private final String name;
+    private final IHookInvoker<H> invoker;
+    private final List<Node<H>> nodes;
+    private final BlockingQueue<Node<H>> callerQueue = new LinkedBlockingQueue<Node<H>>();
+    private final Node<H> awaitedFinishedSignal = new Node<H>(null);
+    private final AtomicInteger remainingAwaited = new AtomicInteger();
+    private final AtomicInteger remaining = new AtomicInteger();
+    private final AtomicInteger remainingUnscheduled = new AtomicInteger();
+    private ExecutorService executor;
+    private Predicate<H> parallel;
+    private Runnable allScheduledCallback;
+    private Runnable allFinishedCallback;
+    private long runStartNanos;
+
+    DependencyAwareHookRunner(final String name, final Collection<H> hooks, final IHookInvoker<H> invoker) {
+        this.name = name;
+        this.invoker = invoker;
+        this.nodes = new ArrayList<Node<H>>(hooks.size());
+        final Map<H, Node<H>> hookNodes = new IdentityHashMap<H, Node<H>>();
+        for (final H hook : hooks) {
+            final Node<H> node = new Node<H>(hook);
+            nodes.add(node);
+            hookNodes.put(hook, node);
+        }
+        for (final Node<H> node : nodes) {
+            final HookDependsOn dependsOn = node.hook.getClass().getAnnotation(HookDependsOn.class);
+            if (dependsOn == null) {
+                continue;
+            }
+            for (final Node<H> dependency : nodes) {
+                if (dependency != node && isAnyInstance(dependency.hook, dependsOn.value())) {
+                    dependency.dependents.add(node);
+                    node.dependencies.add(dependency);
+                }
+            }
+        }
+        assertNoCycles();
+    }
+
+    private static boolean isAnyInstance(final Object hook, final Class<?>[] types) {
+        for (final Class<?> type : types) {
+            if (type.isInstance(hook)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertNoCycles() {
+        final Map<Node<H>, Boolean> visiting = new IdentityHashMap<Node<H>, Boolean>();
+        for (final Node<H> node : nodes) {
+            assertNoCycles(node, visiting, new ArrayList<Node<H>>());
+        }
+    }
+
+    /**
+     * @param visiting
+     *            true while the node is on the current path, false when it is known to be free of cycles
+     */
+    private void assertNoCycles(final Node<H> node, final Map<Node<H>, Boolean> visiting, final List<Node<H>> path) {
+        final Boolean state = visiting.get(node);
+        if (state == Boolean.FALSE) {
+            return;
+        }
+        path.add(node);
+        if (state == Boolean.TRUE) {
+            throw new IllegalStateException(name + " has a cyclic " + HookDependsOn.class.getSimpleName() + ": " + path);
+        }
+        visiting.put(node, Boolean.TRUE);
+        for (final Node<H> dependency : node.dependencies) {
+            assertNoCycles(dependency, visiting, path);
+        }
+        visiting.put(node, Boolean.FALSE);
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * Returns after all hooks that are called on the current thread and all awaited hooks are finished.
+     *
+     * @param executor
+     *            is used for the hooks that may run in parallel, can be null if there are none
+     * @param parallel
+     *            decides which hooks are called on the executor, the others are called on the current thread
+     * @param awaited
+     *            decides for which of the parallel hooks this method should wait
+     * @param allScheduledCallback
+     *            gets called when the last hook was submitted, e.g. to shut down the executor, can be null
+     * @param allFinishedCallback
+     *            gets called when all hooks are finished, can be null
+     */
+    public void run(final ExecutorService executor, final Predicate<H> parallel, final Predicate<H> awaited,
+            final Runnable allScheduledCallback, final Runnable allFinishedCallback) throws InterruptedException {
+        this.executor = executor;
+        this.parallel = parallel;
+        this.allScheduledCallback = allScheduledCallback;
+        this.allFinishedCallback = allFinishedCallback;
+        this.runStartNanos = System.nanoTime();
+        remaining.set(nodes.size());
+        remainingUnscheduled.set(nodes.size());
+        int awaitedCount = 0;
+        for (final Node<H> node : nodes) {
+            node.pendingDependencies.set(node.dependencies.size());
+            node.awaited = !parallel.test(node.hook) || awaited.test(node.hook);
+            if (node.awaited) {
+                awaitedCount++;
+            }
+        }
+        remainingAwaited.set(awaitedCount);
+        if (nodes.isEmpty()) {
+            allScheduled();
+            allFinished();
+            return;
+        }
+        for (final Node<H> node : nodes) {
+            if (node.dependencies.isEmpty()) {
+                schedule(node);
+            }
+        }
+        if (awaitedCount == 0) {
+            return;
+        }
+        while (true) {
+            final Node<H> node = callerQueue.take();
+            if (node == awaitedFinishedSignal) {
+                return;
+            }
+            call(node);
+        }
+    }
+
+    private void schedule(final Node<H> node) {
+        if (parallel.test(node.hook)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    call(node);
+                }
+            });
+        } else {
+            callerQueue.add(node);
+        }
+        //dependents get submitted when their dependencies finish, thus this might happen on any thread
+        if (remainingUnscheduled.decrementAndGet() == 0) {
+            allScheduled();
+        }
+    }
+
+    private void allScheduled() {
+        if (allScheduledCallback != null) {
+            allScheduledCallback.run();
+        }
+    }
+
+    private void call(final Node<H> node) {
+        final BootstrapProfiler.Phase phase = BootstrapProfiler.start(name + " " + node);
+        node.startNanos = System.nanoTime();
+        try {
+            invoker.invoke(node.hook);
+        } catch (final Throwable t) {
+            Err.process(t);
+        } finally {
+            node.durationNanos = System.nanoTime() - node.startNanos;
+            phase.end();
+            finished(node);
+        }
+    }
+
+    private void finished(final Node<H> node) {
+        node.finished = true;
+        for (final Node<H> dependent : node.dependents) {
+            if (dependent.pendingDependencies.decrementAndGet() == 0) {
+                schedule(dependent);
+            }
+        }
+        if (node.awaited && remainingAwaited.decrementAndGet() == 0) {
+            logTimings();
+            callerQueue.add(awaitedFinishedSignal);
+        }
+        if (remaining.decrementAndGet() == 0) {
+            allFinished();
+        }
+    }
+
+    private void allFinished() {
+        logTimings();
+        if (allFinishedCallback != null) {
+            allFinishedCallback.run();
+        }
+    }
+
+    /**
+     * Logs the finished hooks that were not logged yet.
+     */
+    private synchronized void logTimings() {
+        if (nodes.isEmpty() || !LOG.isInfoEnabled()) {
+            return;
+        }
+        final List<Node<H>> finished = new ArrayList<Node<H>>();
+        int running = 0;
+        for (final Node<H> node : nodes) {
+            if (!node.finished) {
+                running++;
+            } else if (!node.logged) {
+                node.logged = true;
+                finished.add(node);
+            }
+        }
+        if (finished.isEmpty()) {
+            return;
+        }
+        Collections.sort(finished, new Comparator<Node<H>>() {
+            @Override
+            public int compare(final Node<H> o1, final Node<H> o2) {
+                return Long.compare(o2.durationNanos, o1.durationNanos);
+            }
+        });
+        final StringBuilder sb = new StringBuilder();
+        for (final Node<H> node : finished) {
+            sb.append("\n    ");
+            sb.append(new Duration(node.durationNanos, FTimeUnit.NANOSECONDS));
+            sb.append(" ");
+            sb.append(node);
+        }
+        final Duration elapsed = new Duration(System.nanoTime() - runStartNanos, FTimeUnit.NANOSECONDS);
+        if (running > 0) {
+            LOG.info("%s %s hooks finished after %s, %s are still running:%s", finished.size(), name, elapsed,
+                    running, sb);
+        } else {
+            LOG.info("%s %s hooks finished after %s:%s", finished.size(), name, elapsed, sb);
+        }
+    }
+
+    @FunctionalInterface
+    interface IHookInvoker<H> {
+        void invoke(H hook) throws Exception;
+    }
+
+    private static final class Node<H> {
+        private final H hook;
+        private final List<Node<H>> dependencies = new ArrayList<Node<H>>();
+        private final List<Node<H>> dependents = new ArrayList<Node<H>>();
+        private final AtomicInteger pendingDependencies = new AtomicInteger();
+        private volatile boolean awaited;
+        private volatile boolean finished;
+        /**
+         * Guarded by the runner.
+         */
+        private boolean logged;
+        private volatile long startNanos;
+        private volatile long durationNanos;
+
+        private Node(final H hook) {
+            this.hook = hook;
+        }
+
+        @Override
+        public String toString() {
+            return hook.getClass().getName();
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package de.invesdwin.context.beans.hook;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that a startup or pre startup hook may only be called after all registered hooks of the given types have
+ * finished. Hooks without dependencies between each other can then be run in parallel (see IParallelPreStartupHook).
+ */
+@Documented
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HookDependsOn {
+
+    /**
+     * Interfaces or classes of the hooks that need to be finished first.
+     */
+    Class<?>[] value();
+
+}
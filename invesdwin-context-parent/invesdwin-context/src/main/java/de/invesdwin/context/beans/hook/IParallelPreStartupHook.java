@@ -0,0 +1,10 @@
+package de.invesdwin.context.beans.hook;
+
+/**
+ * The same as IPreStartupHook with the difference that it can be called in parallel to other hooks of this type. Only
+ * use this if the hook does not trigger static initializers that might deadlock with other hooks, use HookDependsOn to
+ * declare an order otherwise.
+ */
+public interface IParallelPreStartupHook extends IPreStartupHook {
+
+}
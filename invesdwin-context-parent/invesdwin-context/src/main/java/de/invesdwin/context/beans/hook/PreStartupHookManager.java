@@ -1,7 +1,10 @@
 package de.invesdwin.context.beans.hook;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
@@ -11,14 +14,17 @@ import org.springframework.beans.factory.FactoryBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
-import de.invesdwin.context.log.error.Err;
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.collections.fast.concurrent.ASynchronizedFastIterableDelegateSet;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
 
 /**
  * Registers hooks for the application start. The hooks are called only once before the merged ApplicationContext has
  * been initialized.
  * 
- * To avoid deadlocks with static initializers, all hooks are called by the same thread sequencially.
+ * To avoid deadlocks with static initializers, all hooks are called by the same thread sequencially. Hooks that
+ * implement IParallelPreStartupHook are called in parallel instead. The order can be declared with HookDependsOn.
  * 
  * @author subes
  * 
@@ -28,8 +34,15 @@ import de.invesdwin.util.assertions.Assertions;
 public final class PreStartupHookManager implements ApplicationContextAware, FactoryBean<PreStartupHookManager> {
 
     private static final PreStartupHookManager INSTANCE = new PreStartupHookManager();
-    @GuardedBy("INSTANCE")
-    private static final Set<IPreStartupHook> REGISTERED_HOOKS = new HashSet<IPreStartupHook>();
+    /**
+     * Copy on write so that calling the hooks does not require a lock.
+     */
+    private static final ASynchronizedFastIterableDelegateSet<IPreStartupHook> REGISTERED_HOOKS = new ASynchronizedFastIterableDelegateSet<IPreStartupHook>() {
+        @Override
+        protected Set<IPreStartupHook> newDelegate() {
+            return new LinkedHashSet<IPreStartupHook>();
+        }
+    };
     @GuardedBy("INSTANCE")
     private static boolean alreadyStarted;
 
@@ -63,14 +76,48 @@ public final class PreStartupHookManager implements ApplicationContextAware, Fac
                     .as("%s may only be started once initially!", IPreStartupHook.class.getSimpleName())
                     .isFalse();
             PreStartupHookManager.alreadyStarted = true;
-            for (final IPreStartupHook hook : REGISTERED_HOOKS) {
-                try {
-                    hook.preStartup();
-                } catch (final Exception e) {
-                    Err.process(e);
-                }
+        }
+        //no more hooks can be registered now, thus the hooks can be called without holding the lock
+        final List<IPreStartupHook> hooks = new ArrayList<IPreStartupHook>(REGISTERED_HOOKS);
+        WrappedExecutorService executor = null;
+        for (final IPreStartupHook hook : hooks) {
+            if (hook instanceof IParallelPreStartupHook) {
+                executor = Executors.newFixedThreadPool(getClass().getSimpleName(),
+                        Executors.getCpuThreadPoolCount());
+                break;
             }
         }
+        final WrappedExecutorService executorCopy = executor;
+        final DependencyAwareHookRunner<IPreStartupHook> runner = new DependencyAwareHookRunner<IPreStartupHook>(
+                IPreStartupHook.class.getSimpleName(), hooks,
+                new DependencyAwareHookRunner.IHookInvoker<IPreStartupHook>() {
+                    @Override
+                    public void invoke(final IPreStartupHook hook) throws Exception {
+                        hook.preStartup();
+                    }
+                });
+        try {
+            runner.run(executorCopy, new Predicate<IPreStartupHook>() {
+                @Override
+                public boolean test(final IPreStartupHook hook) {
+                    return hook instanceof IParallelPreStartupHook;
+                }
+            }, new Predicate<IPreStartupHook>() {
+                @Override
+                public boolean test(final IPreStartupHook hook) {
+                    return true;
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    if (executorCopy != null) {
+                        executorCopy.shutdown();
+                    }
+                }
+            }, null);
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
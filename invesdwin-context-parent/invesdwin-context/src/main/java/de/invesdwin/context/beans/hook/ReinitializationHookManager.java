@@ -1,9 +1,8 @@
 package de.invesdwin.context.beans.hook;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Named;
 
@@ -12,6 +11,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.collections.fast.concurrent.ASynchronizedFastIterableDelegateSet;
 
 @ThreadSafe
 @Named
@@ -19,47 +19,44 @@ public final class ReinitializationHookManager
         implements ApplicationContextAware, FactoryBean<ReinitializationHookManager> {
 
     private static final ReinitializationHookManager INSTANCE = new ReinitializationHookManager();
-    @GuardedBy("INSTANCE")
-    private static final Set<IReinitializationHook> REGISTERED_HOOKS = new HashSet<IReinitializationHook>();
+    /**
+     * Copy on write so that calling the hooks does not require a lock.
+     */
+    private static final ASynchronizedFastIterableDelegateSet<IReinitializationHook> REGISTERED_HOOKS = new ASynchronizedFastIterableDelegateSet<IReinitializationHook>() {
+        @Override
+        protected Set<IReinitializationHook> newDelegate() {
+            return new LinkedHashSet<IReinitializationHook>();
+        }
+    };
 
     private ReinitializationHookManager() {}
 
     public static void reinitializationStarted() {
-        synchronized (INSTANCE) {
-            if (StartupHookManager.isAlreadyStarted()) {
-                for (final IReinitializationHook hook : REGISTERED_HOOKS) {
-                    hook.reinitializationStarted();
-                }
+        if (StartupHookManager.isAlreadyStarted()) {
+            for (final IReinitializationHook hook : REGISTERED_HOOKS) {
+                hook.reinitializationStarted();
             }
         }
     }
 
     public static void reinitializationFinished() {
-        synchronized (INSTANCE) {
-            if (StartupHookManager.isAlreadyStarted()) {
-                for (final IReinitializationHook hook : REGISTERED_HOOKS) {
-                    hook.reinitializationFinished();
-                }
+        if (StartupHookManager.isAlreadyStarted()) {
+            for (final IReinitializationHook hook : REGISTERED_HOOKS) {
+                hook.reinitializationFinished();
             }
         }
     }
 
     public static void reinitializationFailed() {
-        synchronized (INSTANCE) {
-            if (StartupHookManager.isAlreadyStarted()) {
-                for (final IReinitializationHook hook : REGISTERED_HOOKS) {
-                    hook.reinitializationFailed();
-                }
+        if (StartupHookManager.isAlreadyStarted()) {
+            for (final IReinitializationHook hook : REGISTERED_HOOKS) {
+                hook.reinitializationFailed();
             }
         }
     }
 
     public static void register(final IReinitializationHook hook) {
-        synchronized (INSTANCE) {
-            Assertions.assertThat(REGISTERED_HOOKS.add(hook))
-                    .as("Hook [%s] has already been registered!", hook)
-                    .isTrue();
-        }
+        Assertions.assertThat(REGISTERED_HOOKS.add(hook)).as("Hook [%s] has already been registered!", hook).isTrue();
     }
 
     @Override
@@ -1,10 +1,11 @@
 package de.invesdwin.context.beans.hook;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Future;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
@@ -14,18 +15,25 @@ import org.springframework.beans.factory.FactoryBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
+import de.invesdwin.context.BootstrapProfiler;
 import de.invesdwin.context.log.error.Err;
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.collections.fast.concurrent.ASynchronizedFastIterableDelegateSet;
 import de.invesdwin.util.concurrent.Executors;
 import de.invesdwin.util.concurrent.WrappedExecutorService;
-import de.invesdwin.util.concurrent.future.Futures;
 
 /**
  * Registers hooks for the application start. The hooks are called only once after the merged ApplicationContext has
  * been initialized.
  * 
  * These hooks are started in their own seperate threads to speedup the startup process and allow multiple background
- * processes while the application runs.
+ * processes while the application runs. A hook is only started after the hooks it declares with HookDependsOn have
+ * finished.
+ * 
+ * Hooks that are passed to registerOrCall while the registered hooks are being started are queued and called after
+ * start() has waited for the blocking hooks, the same as if they were called right after the start. The registering
+ * thread waits until its hook was called and gets its exception, unless it is a hook itself (then it could wait for
+ * itself).
  * 
  * @author subes
  * 
@@ -35,12 +43,25 @@ import de.invesdwin.util.concurrent.future.Futures;
 public final class StartupHookManager implements ApplicationContextAware, FactoryBean<StartupHookManager> {
 
     private static final StartupHookManager INSTANCE = new StartupHookManager();
-    @GuardedBy("INSTANCE")
-    private static final Set<IStartupHook> REGISTERED_HOOKS = new HashSet<IStartupHook>();
+    /**
+     * Copy on write so that calling the hooks does not require a lock.
+     */
+    private static final ASynchronizedFastIterableDelegateSet<IStartupHook> REGISTERED_HOOKS = new ASynchronizedFastIterableDelegateSet<IStartupHook>() {
+        @Override
+        protected Set<IStartupHook> newDelegate() {
+            return new LinkedHashSet<IStartupHook>();
+        }
+    };
     @GuardedBy("INSTANCE")
     private static boolean alreadyStarted;
     @GuardedBy("INSTANCE")
     private static List<IStartupHook> queuedHooksForContextReinitialization;
+    @GuardedBy("INSTANCE")
+    private static List<QueuedStartupHook> queuedHooksForStartup;
+    /**
+     * Set while the current thread starts hooks, a hook that registers another hook must not wait for it.
+     */
+    private static final ThreadLocal<Boolean> STARTING_HOOKS = new ThreadLocal<Boolean>();
 
     static {
         ReinitializationHookManager.register(new IReinitializationHook() {
@@ -82,21 +103,31 @@ public final class StartupHookManager implements ApplicationContextAware, Factor
     private StartupHookManager() {}
 
     public static void registerOrCall(final IStartupHook hook) {
+        final QueuedStartupHook queued;
         synchronized (INSTANCE) {
             if (alreadyStarted) {
-                if (queuedHooksForContextReinitialization != null) {
+                if (queuedHooksForStartup != null) {
+                    queued = new QueuedStartupHook(hook, STARTING_HOOKS.get() == null);
+                    queuedHooksForStartup.add(queued);
+                } else if (queuedHooksForContextReinitialization != null) {
                     queuedHooksForContextReinitialization.add(hook);
+                    queued = null;
                 } else {
                     try {
                         hook.startup();
                     } catch (final Exception e) {
                         throw Err.process(e);
                     }
+                    queued = null;
                 }
             } else {
                 register(hook);
+                queued = null;
             }
         }
+        if (queued != null && queued.waiting) {
+            queued.await();
+        }
     }
 
     public static void register(final IStartupHook hook) {
@@ -127,31 +158,122 @@ public final class StartupHookManager implements ApplicationContextAware, Factor
                     .as("%s may only be started once initially!", IStartupHook.class.getSimpleName())
                     .isFalse();
             StartupHookManager.alreadyStarted = true;
-            final WrappedExecutorService executor = Executors.newFixedThreadPool(getClass().getSimpleName(),
-                    Math.max(10, Executors.getCpuThreadPoolCount() * 2));
-            final List<Future<?>> blockingHooks = new ArrayList<Future<?>>();
-            for (final IStartupHook hook : REGISTERED_HOOKS) {
-                final Runnable task = new Runnable() {
+            queuedHooksForStartup = new ArrayList<QueuedStartupHook>();
+        }
+        //no more hooks can be registered now, thus the hooks can be called without holding the lock
+        final WrappedExecutorService executor = Executors.newFixedThreadPool(getClass().getSimpleName(),
+                Math.max(10, Executors.getCpuThreadPoolCount() * 2));
+        final DependencyAwareHookRunner<IStartupHook> runner = new DependencyAwareHookRunner<IStartupHook>(
+                IStartupHook.class.getSimpleName(), new ArrayList<IStartupHook>(REGISTERED_HOOKS),
+                new DependencyAwareHookRunner.IHookInvoker<IStartupHook>() {
                     @Override
-                    public void run() {
+                    public void invoke(final IStartupHook hook) throws Exception {
+                        final boolean alreadyStartingHooks = STARTING_HOOKS.get() != null;
+                        STARTING_HOOKS.set(Boolean.TRUE);
                         try {
                             hook.startup();
-                        } catch (final Exception e) {
-                            Err.process(e);
+                        } finally {
+                            if (!alreadyStartingHooks) {
+                                STARTING_HOOKS.remove();
+                            }
                         }
-                    };
-                };
-                if (hook instanceof IBlockingStartupHook) {
-                    blockingHooks.add(executor.submit(task));
+                    }
+                });
+        STARTING_HOOKS.set(Boolean.TRUE);
+        try {
+            runner.run(executor, new Predicate<IStartupHook>() {
+                @Override
+                public boolean test(final IStartupHook hook) {
+                    return true;
+                }
+            }, new Predicate<IStartupHook>() {
+                @Override
+                public boolean test(final IStartupHook hook) {
+                    return hook instanceof IBlockingStartupHook;
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    //dependents get submitted when their dependencies finish, the running hooks are not affected
+                    executor.shutdown();
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    //include the non blocking hooks that finished after the bootstrap
+                    BootstrapProfiler.writeTimeline();
+                }
+            });
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                callQueuedHooksForStartup();
+            } finally {
+                STARTING_HOOKS.remove();
+            }
+        }
+    }
+
+    /**
+     * Hooks that get queued while the queued ones are called are called as well, only then registerOrCall calls the
+     * hooks directly again.
+     */
+    private static void callQueuedHooksForStartup() {
+        while (true) {
+            final List<QueuedStartupHook> hooks;
+            synchronized (INSTANCE) {
+                if (queuedHooksForStartup.isEmpty()) {
+                    queuedHooksForStartup = null;
+                    return;
+                }
+                hooks = new ArrayList<QueuedStartupHook>(queuedHooksForStartup);
+                queuedHooksForStartup.clear();
+            }
+            for (final QueuedStartupHook hook : hooks) {
+                hook.call();
+            }
+        }
+    }
+
+    private static final class QueuedStartupHook {
+        private final IStartupHook hook;
+        /**
+         * The registering thread rethrows the exception when it waits, otherwise it is only logged.
+         */
+        private final boolean waiting;
+        private final CountDownLatch called = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        private QueuedStartupHook(final IStartupHook hook, final boolean waiting) {
+            this.hook = hook;
+            this.waiting = waiting;
+        }
+
+        private void call() {
+            try {
+                hook.startup();
+            } catch (final Throwable t) {
+                if (waiting) {
+                    failure = t;
                 } else {
-                    executor.execute(task);
+                    Err.process(t);
                 }
+            } finally {
+                called.countDown();
             }
-            executor.shutdown();
+        }
+
+        private void await() {
             try {
-                Futures.wait(blockingHooks);
+                called.await();
             } catch (final InterruptedException e) {
-                throw new RuntimeException(e);
+                Thread.currentThread().interrupt();
+                throw Err.process(e);
+            }
+            final Throwable failureCopy = failure;
+            if (failureCopy != null) {
+                throw Err.process(failureCopy);
             }
         }
     }
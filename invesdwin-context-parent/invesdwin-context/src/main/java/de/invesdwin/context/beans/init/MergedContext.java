@@ -19,6 +19,7 @@ import org.springframework.context.support.GenericXmlApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import de.invesdwin.context.BootstrapProfiler;
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.PlatformInitializerProperties;
 import de.invesdwin.context.beans.hook.PreStartupHookManager;
@@ -190,11 +191,17 @@ public final class MergedContext extends ADelegateContext {
     }
 
     public static void logBootstrapFinished() {
-        instance.getBean(StartupHookManager.class).start();
+        final BootstrapProfiler.Phase phase = BootstrapProfiler.start("StartupHookManager");
+        try {
+            instance.getBean(StartupHookManager.class).start();
+        } finally {
+            phase.end();
+        }
         LOG.info("Bootstrap finished after: %s",
                 PlatformInitializerProperties.START_OF_APPLICATION_CPU_TIME.toDuration());
         bootstrapFinished = true;
         bootstrapRunning = false;
+        BootstrapProfiler.writeTimeline();
     }
 
     public static void logContextsBeingLoaded(final List<PositionedResource> contexts) {
@@ -230,29 +237,45 @@ public final class MergedContext extends ADelegateContext {
                 .as("Did not detect any base packages, thus cannot bootstrap!")
                 .isNotEmpty();
 
-        PreMergedContext.getInstance().getBean(PreStartupHookManager.class).start();
-
-        //First work with temp context
-        final List<PositionedResource> contexts = PreMergedContext.collectMergedContexts();
-        //Now create the real context
-        final GenericXmlApplicationContext delegate = new GenericXmlApplicationContext();
-        //so that the reference is already set while beans get initialized
-        delegate.registerShutdownHook();
-        for (final Entry<String, Resource> e : new ComponentScanConfigurer().getApplicationContextXmlConfigs(false)
-                .entrySet()) {
-            contexts.add(PositionedResource.of(e.getValue(), null));
-        }
+        BootstrapProfiler.bootstrapStarted();
+        final BootstrapProfiler.Phase phase = BootstrapProfiler.start("MergedContext.bootstrap");
+        try {
+            final BootstrapProfiler.Phase preStartupPhase = BootstrapProfiler.start("PreStartupHookManager");
+            try {
+                PreMergedContext.getInstance().getBean(PreStartupHookManager.class).start();
+            } finally {
+                preStartupPhase.end();
+            }
+
+            //First work with temp context
+            final List<PositionedResource> contexts = PreMergedContext.collectMergedContexts();
+            //Now create the real context
+            final GenericXmlApplicationContext delegate = new GenericXmlApplicationContext();
+            //so that the reference is already set while beans get initialized
+            delegate.registerShutdownHook();
+            for (final Entry<String, Resource> e : new ComponentScanConfigurer().getApplicationContextXmlConfigs(false)
+                    .entrySet()) {
+                contexts.add(PositionedResource.of(e.getValue(), null));
+            }
 
-        logContextsBeingLoaded(contexts);
+            logContextsBeingLoaded(contexts);
 
-        delegate.load(contexts.toArray(new Resource[contexts.size()]));
-        //set the reference
-        instance = new MergedContext(delegate);
+            delegate.load(contexts.toArray(new Resource[contexts.size()]));
+            //set the reference
+            instance = new MergedContext(delegate);
 
-        configureInstance();
+            configureInstance();
 
-        //now load the beans
-        instance.refresh();
+            //now load the beans
+            final BootstrapProfiler.Phase refreshPhase = BootstrapProfiler.start("MergedContext.refresh");
+            try {
+                instance.refresh();
+            } finally {
+                refreshPhase.end();
+            }
+        } finally {
+            phase.end();
+        }
 
         logBootstrapFinished();
     }
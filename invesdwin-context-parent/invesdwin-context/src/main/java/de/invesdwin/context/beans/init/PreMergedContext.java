@@ -15,6 +15,7 @@ import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.context.support.GenericXmlApplicationContext;
 import org.springframework.core.io.Resource;
 
+import de.invesdwin.context.BootstrapProfiler;
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.PlatformInitializerProperties;
 import de.invesdwin.context.beans.hook.StartupHookManager;
@@ -36,15 +37,32 @@ public final class PreMergedContext extends ADelegateContext {
 
     static {
         if (PlatformInitializerProperties.isAllowed()) {
+            final BootstrapProfiler.Phase phase = BootstrapProfiler.start("PreMergedContext");
             try {
-                PlatformInitializerProperties.getInitializer().initInstrumentation();
+                final BootstrapProfiler.Phase instrumentationPhase = BootstrapProfiler.start("instrumentation");
+                try {
+                    PlatformInitializerProperties.getInitializer().initInstrumentation();
+                } finally {
+                    instrumentationPhase.end();
+                }
                 Assertions.assertThat(ContextProperties.TEMP_CLASSPATH_DIRECTORY).isNotNull();
                 Assertions.assertThat(StartupHookManager.isAlreadyStarted()).isFalse();
                 //reload initializer after instrumentation was done, since a hook might have changed the initializer
                 final IPlatformInitializer initializer = PlatformInitializerProperties.getInitializer();
                 //needs to happen after properties have been loaded
-                initializer.initClassPathScanner();
-                initializer.registerTypesForSerialization();
+                final BootstrapProfiler.Phase classPathScannerPhase = BootstrapProfiler.start("class path scanner");
+                try {
+                    initializer.initClassPathScanner();
+                } finally {
+                    classPathScannerPhase.end();
+                }
+                final BootstrapProfiler.Phase serializationPhase = BootstrapProfiler
+                        .start("serialization registration");
+                try {
+                    initializer.registerTypesForSerialization();
+                } finally {
+                    serializationPhase.end();
+                }
                 Assertions.assertThat(Err.UNCAUGHT_EXCEPTION_HANDLER).isNotNull();
                 initializer.initProtocolRegistration();
                 initializer.initDefaultTimezoneConfigurer();
@@ -55,6 +73,8 @@ public final class PreMergedContext extends ADelegateContext {
                 initializer.initUiManager();
             } catch (final Throwable t) {
                 PlatformInitializerProperties.logInitializationFailedIsIgnored(t);
+            } finally {
+                phase.end();
             }
         }
     }
@@ -84,7 +104,12 @@ public final class PreMergedContext extends ADelegateContext {
                 instance.getDelegate().load(e.getValue());
             }
             disableConfigurationAnnotationProcessing(ctx);
-            instance.refresh();
+            final BootstrapProfiler.Phase phase = BootstrapProfiler.start("PreMergedContext.refresh");
+            try {
+                instance.refresh();
+            } finally {
+                phase.end();
+            }
         }
         return instance;
     }
@@ -93,24 +118,30 @@ public final class PreMergedContext extends ADelegateContext {
      * This should only be used by infrastructure classes.
      */
     public static synchronized List<PositionedResource> collectMergedContexts() {
-        /*
-         * First only collect the context files, don't allow eager init or else the result will be cached and unit tests
-         * will fail to register new beans during configuration phase
-         */
-        final Map<String, IContextLocation> mergers = getInstance().getBeansOfType(IContextLocation.class, true, false);
-        final List<PositionedResource> contexts = new ArrayList<PositionedResource>();
-        for (final IContextLocation merger : mergers.values()) {
-            final List<PositionedResource> contextResources = merger.getContextResources();
-            if (contextResources != null) {
-                for (final PositionedResource contextResource : contextResources) {
-                    if (contextResource != null) {
-                        contexts.add(contextResource);
+        final BootstrapProfiler.Phase phase = BootstrapProfiler.start("PreMergedContext.collectMergedContexts");
+        try {
+            /*
+             * First only collect the context files, don't allow eager init or else the result will be cached and unit
+             * tests will fail to register new beans during configuration phase
+             */
+            final Map<String, IContextLocation> mergers = getInstance().getBeansOfType(IContextLocation.class, true,
+                    false);
+            final List<PositionedResource> contexts = new ArrayList<PositionedResource>();
+            for (final IContextLocation merger : mergers.values()) {
+                final List<PositionedResource> contextResources = merger.getContextResources();
+                if (contextResources != null) {
+                    for (final PositionedResource contextResource : contextResources) {
+                        if (contextResource != null) {
+                            contexts.add(contextResource);
+                        }
                     }
                 }
             }
+            PositionedResource.COMPARATOR.sort(contexts, true);
+            return contexts;
+        } finally {
+            phase.end();
         }
-        PositionedResource.COMPARATOR.sort(contexts, true);
-        return contexts;
     }
 
     /**
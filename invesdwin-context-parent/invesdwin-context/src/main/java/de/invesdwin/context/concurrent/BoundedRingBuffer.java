@@ -0,0 +1,122 @@
+package de.invesdwin.context.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded lock-free array queue (Dmitry Vyukov's algorithm) that supports multiple producers and multiple consumers.
+ * Each slot has a sequence number that tells producers and consumers whether the slot is ready for them, thus they
+ * only contend on the position counters and never on a lock. The capacity is rounded up to the next power of two,
+ * thus it can be at most MAX_CAPACITY.
+ */
+@ThreadSafe
+public class BoundedRingBuffer<E> {
+
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    public BoundedRingBuffer(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity should be positive: " + capacity);
+        }
+        if (capacity > MAX_CAPACITY) {
+            //the next power of two would overflow
+            throw new IllegalArgumentException("capacity should not be greater than " + MAX_CAPACITY + ": " + capacity);
+        }
+        final int powerOfTwoCapacity = Integer.highestOneBit(capacity - 1) << 1;
+        final int actualCapacity = Math.max(powerOfTwoCapacity, 2);
+        this.buffer = new Object[actualCapacity];
+        this.sequences = new AtomicLongArray(actualCapacity);
+        for (int i = 0; i < actualCapacity; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = actualCapacity - 1;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns false if the buffer is full.
+     */
+    public boolean offer(final E element) {
+        if (element == null) {
+            throw new NullPointerException("element should not be null");
+        }
+        long position = enqueuePosition.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+        buffer[index] = element;
+        //release the slot to the consumers, the sequence write publishes the element
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Returns null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = dequeuePosition.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+        final E element = (E) buffer[index];
+        buffer[index] = null;
+        //release the slot to the producers of the next round
+        sequences.lazySet(index, position + mask + 1);
+        return element;
+    }
+
+    /**
+     * Only an estimate while producers or consumers are active.
+     */
+    public int size() {
+        final long size = enqueuePosition.get() - dequeuePosition.get();
+        if (size <= 0) {
+            return 0;
+        } else if (size >= buffer.length) {
+            return buffer.length;
+        } else {
+            return (int) size;
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+}
@@ -1,44 +1,93 @@
 package de.invesdwin.context.jcache;
 
-import java.util.ArrayList;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
 
+import de.invesdwin.context.jcache.internal.CaffeineCacheView;
 import de.invesdwin.context.jcache.internal.SizeCountingCacheEntryListener;
+import de.invesdwin.context.jcache.util.CaffeineCaches;
 
 @NotThreadSafe
 public abstract class ACacheMap<K, V> implements Map<K, V> {
 
     private Cache<K, V> delegate;
-    private final SizeCountingCacheEntryListener<K, V> sizeCounter;
+    private volatile SizeCountingCacheEntryListener<K, V> sizeCounter;
+    private volatile com.github.benmanes.caffeine.cache.Cache<?, ?> estimatedSizeDelegate;
+    private volatile CaffeineCacheView<K, V> caffeineView;
 
-    public ACacheMap() {
-        this.sizeCounter = new SizeCountingCacheEntryListener<K, V>();
-    }
+    public ACacheMap() {}
 
     protected abstract Cache<K, V> createDelegate();
 
+    /**
+     * Override this to return true when an approximate size is good enough. The size will then be taken from the
+     * estimated size of the underlying caffeine cache and no size counting listener has to be registered, thus writes
+     * become cheaper. This falls back to exact counting when the provider is not caffeine.
+     */
+    protected boolean isSizeEstimated() {
+        return false;
+    }
+
     public synchronized Cache<K, V> getDelegate() {
         if (delegate == null) {
             delegate = createDelegate();
-            delegate.registerCacheEntryListener(sizeCounter.newConfiguration());
+            caffeineView = CaffeineCacheView.of(delegate);
+            if (isSizeEstimated()) {
+                estimatedSizeDelegate = CaffeineCaches.unwrap(delegate);
+            }
+            if (estimatedSizeDelegate == null) {
+                sizeCounter = new SizeCountingCacheEntryListener<K, V>();
+                delegate.registerCacheEntryListener(sizeCounter.newConfiguration());
+            }
         }
         return delegate;
     }
 
     /**
-     * This might not return the correct value!
+     * Null if the provider is not caffeine, then the JCache iterator is used.
+     */
+    private CaffeineCacheView<K, V> getCaffeineView() {
+        getDelegate();
+        return caffeineView;
+    }
+
+    /**
+     * This is exact for create/update/remove/expire events, unless isSizeEstimated() is enabled.
      */
     @Override
     public int size() {
-        return sizeCounter.getSize();
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> estimatedSizeDelegateCopy = estimatedSizeDelegate;
+        if (estimatedSizeDelegateCopy != null) {
+            final long estimatedSize = estimatedSizeDelegateCopy.estimatedSize();
+            if (estimatedSize >= Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            } else {
+                return (int) estimatedSize;
+            }
+        }
+        final SizeCountingCacheEntryListener<K, V> sizeCounterCopy = sizeCounter;
+        if (sizeCounterCopy != null) {
+            return sizeCounterCopy.getSize();
+        } else {
+            //delegate not yet initialized
+            return 0;
+        }
     }
 
     @Override
@@ -81,13 +130,66 @@ public abstract class ACacheMap<K, V> implements Map<K, V> {
     }
 
     /**
-     * not overriding putIfAbsend here since no benefit available
+     * Fetches all keys in one bulk operation, missing keys are not contained in the result.
      */
+    public Map<K, V> getAll(final Set<? extends K> keys) {
+        return getDelegate().getAll(keys);
+    }
+
     @Override
     public V put(final K key, final V value) {
         return getDelegate().getAndPut(key, value);
     }
 
+    /**
+     * Uses an atomic entry processor so that the previous value can be returned as the Map contract requires.
+     */
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        return getDelegate().invoke(key, new PutIfAbsentEntryProcessor<K, V>(value));
+    }
+
+    /**
+     * Misses are loaded inside an atomic entry processor, thus concurrent misses on the same key only trigger one load
+     * while the other threads wait for that result (single-flight). Hits don't need the entry processor.
+     */
+    @Override
+    public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+        final V existing = getDelegate().get(key);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            return getDelegate().invoke(key, new ComputeIfAbsentEntryProcessor<K, V>(mappingFunction));
+        } catch (final EntryProcessorException e) {
+            throw unwrapEntryProcessorException(e);
+        }
+    }
+
+    @Override
+    public V merge(final K key, final V value,
+            final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        try {
+            return getDelegate().invoke(key, new MergeEntryProcessor<K, V>(value, remappingFunction));
+        } catch (final EntryProcessorException e) {
+            throw unwrapEntryProcessorException(e);
+        }
+    }
+
+    /**
+     * The Map contract requires the exception of the function to be thrown as is, while JCache wraps it.
+     */
+    private static RuntimeException unwrapEntryProcessorException(final EntryProcessorException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else {
+            return e;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public V remove(final Object key) {
@@ -103,25 +205,43 @@ public abstract class ACacheMap<K, V> implements Map<K, V> {
         getDelegate().putAll(m);
     }
 
+    public void removeAll(final Set<? extends K> keys) {
+        getDelegate().removeAll(keys);
+    }
+
     @Override
     public void clear() {
         getDelegate().removeAll();
     }
 
+    /**
+     * Iterates over all entries without materializing a copy and without wrapping each entry.
+     */
     @Override
-    @Deprecated
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            caffeineViewCopy.forEach(action);
+        } else {
+            for (final javax.cache.Cache.Entry<K, V> e : getDelegate()) {
+                action.accept(e.getKey(), e.getValue());
+            }
+        }
+    }
+
     /**
-     * Use keysIterator instead
+     * A lazy view that is backed by the cache. Iteration is weakly consistent and parallel streams are supported.
      */
+    @Override
     public Set<K> keySet() {
-        final Set<K> keys = new HashSet<K>();
-        for (final javax.cache.Cache.Entry<K, V> e : getDelegate()) {
-            keys.add(e.getKey());
-        }
-        return keys;
+        return new KeySetView();
     }
 
     public Iterator<K> keysIterator() {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            return caffeineViewCopy.iterator((key, value) -> key, this::remove);
+        }
         return new Iterator<K>() {
             private final Iterator<javax.cache.Cache.Entry<K, V>> entryIterator = getDelegate().iterator();
 
@@ -142,20 +262,28 @@ public abstract class ACacheMap<K, V> implements Map<K, V> {
         };
     }
 
-    @Override
-    @Deprecated
+    public Spliterator<K> keysSpliterator() {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            return caffeineViewCopy.spliterator((key, value) -> key);
+        } else {
+            return Spliterators.spliteratorUnknownSize(keysIterator(), Spliterator.NONNULL | Spliterator.DISTINCT);
+        }
+    }
+
     /**
-     * Use valuesIterator instead
+     * A lazy view that is backed by the cache. Iteration is weakly consistent and parallel streams are supported.
      */
+    @Override
     public Collection<V> values() {
-        final List<V> values = new ArrayList<V>();
-        for (final javax.cache.Cache.Entry<K, V> e : getDelegate()) {
-            values.add(e.getValue());
-        }
-        return values;
+        return new ValuesView();
     }
 
     public Iterator<V> valuesIterator() {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            return caffeineViewCopy.iterator((key, value) -> value, this::remove);
+        }
         return new Iterator<V>() {
             private final Iterator<javax.cache.Cache.Entry<K, V>> entryIterator = getDelegate().iterator();
 
@@ -176,20 +304,29 @@ public abstract class ACacheMap<K, V> implements Map<K, V> {
         };
     }
 
-    @Override
-    @Deprecated
+    public Spliterator<V> valuesSpliterator() {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            return caffeineViewCopy.spliterator((key, value) -> value);
+        } else {
+            return Spliterators.spliteratorUnknownSize(valuesIterator(), Spliterator.NONNULL);
+        }
+    }
+
     /**
-     * Use entriesIterator instead
+     * A lazy view that is backed by the cache. Iteration is weakly consistent and parallel streams are supported. Use
+     * forEach(BiConsumer) to iterate without allocating an entry object per entry.
      */
+    @Override
     public Set<Entry<K, V>> entrySet() {
-        final Set<Entry<K, V>> entries = new HashSet<Entry<K, V>>();
-        for (final javax.cache.Cache.Entry<K, V> e : getDelegate()) {
-            entries.add(new CacheEntryWrapper(e));
-        }
-        return entries;
+        return new EntrySetView();
     }
 
     public Iterator<Entry<K, V>> entriesIterator() {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            return caffeineViewCopy.iterator(CacheMapEntry::new, this::remove);
+        }
         return new Iterator<Entry<K, V>>() {
             private final Iterator<javax.cache.Cache.Entry<K, V>> entryIterator = getDelegate().iterator();
 
@@ -200,7 +337,8 @@ public abstract class ACacheMap<K, V> implements Map<K, V> {
 
             @Override
             public Entry<K, V> next() {
-                return new CacheEntryWrapper(entryIterator.next());
+                final javax.cache.Cache.Entry<K, V> next = entryIterator.next();
+                return new CacheMapEntry(next.getKey(), next.getValue());
             }
 
             @Override
@@ -210,32 +348,222 @@ public abstract class ACacheMap<K, V> implements Map<K, V> {
         };
     }
 
-    private class CacheEntryWrapper implements Entry<K, V> {
-        private V overridenValue;
-        private final javax.cache.Cache.Entry<K, V> entry;
+    public Spliterator<Entry<K, V>> entriesSpliterator() {
+        final CaffeineCacheView<K, V> caffeineViewCopy = getCaffeineView();
+        if (caffeineViewCopy != null) {
+            return caffeineViewCopy.spliterator(CacheMapEntry::new);
+        } else {
+            return Spliterators.spliteratorUnknownSize(entriesIterator(), Spliterator.NONNULL | Spliterator.DISTINCT);
+        }
+    }
+
+    private static final class PutIfAbsentEntryProcessor<K, V> implements EntryProcessor<K, V, V> {
+        private final V value;
 
-        CacheEntryWrapper(final javax.cache.Cache.Entry<K, V> entry) {
-            this.entry = entry;
+        private PutIfAbsentEntryProcessor(final V value) {
+            this.value = value;
         }
 
         @Override
-        public K getKey() {
-            return entry.getKey();
+        public V process(final MutableEntry<K, V> entry, final Object... arguments) {
+            if (entry.exists()) {
+                return entry.getValue();
+            } else {
+                entry.setValue(value);
+                return null;
+            }
+        }
+    }
+
+    private static final class ComputeIfAbsentEntryProcessor<K, V> implements EntryProcessor<K, V, V> {
+        private final Function<? super K, ? extends V> mappingFunction;
+
+        private ComputeIfAbsentEntryProcessor(final Function<? super K, ? extends V> mappingFunction) {
+            this.mappingFunction = mappingFunction;
         }
 
         @Override
-        public V getValue() {
-            if (overridenValue != null) {
-                return overridenValue;
-            } else {
+        public V process(final MutableEntry<K, V> entry, final Object... arguments) {
+            if (entry.exists()) {
                 return entry.getValue();
             }
+            final V value = mappingFunction.apply(entry.getKey());
+            if (value != null) {
+                entry.setValue(value);
+            }
+            return value;
+        }
+    }
+
+    private static final class MergeEntryProcessor<K, V> implements EntryProcessor<K, V, V> {
+        private final V value;
+        private final BiFunction<? super V, ? super V, ? extends V> remappingFunction;
+
+        private MergeEntryProcessor(final V value,
+                final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            this.value = value;
+            this.remappingFunction = remappingFunction;
+        }
+
+        @Override
+        public V process(final MutableEntry<K, V> entry, final Object... arguments) {
+            final V newValue;
+            if (entry.exists()) {
+                newValue = remappingFunction.apply(entry.getValue(), value);
+            } else {
+                newValue = value;
+            }
+            if (newValue == null) {
+                entry.remove();
+            } else {
+                entry.setValue(newValue);
+            }
+            return newValue;
+        }
+    }
+
+    private final class CacheMapEntry implements Entry<K, V> {
+        private final K key;
+        private V value;
+
+        private CacheMapEntry(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
         }
 
         @Override
         public V setValue(final V value) {
-            overridenValue = value;
-            return put(getKey(), value);
+            this.value = value;
+            return put(key, value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> other = (Entry<?, ?>) obj;
+            return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private final class KeySetView extends AbstractSet<K> {
+        @Override
+        public Iterator<K> iterator() {
+            return keysIterator();
+        }
+
+        @Override
+        public Spliterator<K> spliterator() {
+            return keysSpliterator();
+        }
+
+        @Override
+        public int size() {
+            return ACacheMap.this.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            return ACacheMap.this.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            ACacheMap.this.clear();
+        }
+    }
+
+    private final class ValuesView extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return valuesIterator();
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return valuesSpliterator();
+        }
+
+        @Override
+        public int size() {
+            return ACacheMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ACacheMap.this.clear();
+        }
+    }
+
+    private final class EntrySetView extends AbstractSet<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return entriesIterator();
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> spliterator() {
+            return entriesSpliterator();
+        }
+
+        @Override
+        public int size() {
+            return ACacheMap.this.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) o;
+            final V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) o;
+            try {
+                return getDelegate().remove((K) entry.getKey(), (V) entry.getValue());
+            } catch (final ClassCastException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void clear() {
+            ACacheMap.this.clear();
         }
     }
 
@@ -0,0 +1,116 @@
+package de.invesdwin.context.jcache;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.jcache.internal.LongKeyCacheTable;
+
+/**
+ * Same as ACacheCollection but the elements are keyed by a primitive int, thus membership tests do not need to box the
+ * key. Only the maximumSize, expireAfterWrite, expireAfterAccess and ticker settings of the CacheBuilder are supported.
+ */
+@NotThreadSafe
+public abstract class AIntKeyCacheCollection<E> extends AbstractCollection<E> {
+
+    private volatile LongKeyCacheTable<E> delegate;
+
+    /**
+     * The builder is only used as the configuration, create() does not need to be called.
+     */
+    protected abstract CacheBuilder<?, ?> createCacheBuilder();
+
+    protected abstract int keyOf(Object o);
+
+    /**
+     * Only the creation is synchronized, so that accesses are only striped by the table.
+     */
+    public LongKeyCacheTable<E> getDelegate() {
+        if (delegate == null) {
+            synchronized (this) {
+                if (delegate == null) {
+                    delegate = new LongKeyCacheTable<E>(createCacheBuilder());
+                }
+            }
+        }
+        return delegate;
+    }
+
+    @Override
+    public int size() {
+        return getDelegate().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() <= 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (o == null) {
+            return false;
+        }
+        return getDelegate().containsKey(keyOf(o));
+    }
+
+    /**
+     * Iterates over a snapshot of the elements, removals are applied to the cache.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final List<E> snapshot = getDelegate().values();
+        return new Iterator<E>() {
+            private final Iterator<E> iterator = snapshot.iterator();
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                getDelegate().remove(keyOf(last));
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public boolean add(final E e) {
+        return getDelegate().put(keyOf(e), e) != e;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (o == null) {
+            return false;
+        }
+        return getDelegate().remove(keyOf(o)) != null;
+    }
+
+    @Override
+    public void clear() {
+        getDelegate().clear();
+    }
+
+    /**
+     * Removes expired entries eagerly, otherwise they are removed when accessed or when the size limit is reached.
+     */
+    public void cleanUp() {
+        getDelegate().cleanUp();
+    }
+
+}
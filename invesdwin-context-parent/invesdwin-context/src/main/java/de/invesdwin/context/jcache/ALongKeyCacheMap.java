@@ -0,0 +1,88 @@
+package de.invesdwin.context.jcache;
+
+import java.util.Collection;
+import java.util.function.ObjLongConsumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.jcache.internal.LongKeyCacheTable;
+
+/**
+ * A cache map for primitive long keys that does not box the keys on access. Only the maximumSize, expireAfterWrite,
+ * expireAfterAccess and ticker settings of the CacheBuilder are supported, the cache is not registered in the JCache
+ * manager.
+ */
+@NotThreadSafe
+public abstract class ALongKeyCacheMap<V> {
+
+    private volatile LongKeyCacheTable<V> delegate;
+
+    /**
+     * The builder is only used as the configuration, create() does not need to be called.
+     */
+    protected abstract CacheBuilder<?, ?> createCacheBuilder();
+
+    /**
+     * Only the creation is synchronized, so that accesses are only striped by the table.
+     */
+    public LongKeyCacheTable<V> getDelegate() {
+        if (delegate == null) {
+            synchronized (this) {
+                if (delegate == null) {
+                    delegate = new LongKeyCacheTable<V>(createCacheBuilder());
+                }
+            }
+        }
+        return delegate;
+    }
+
+    public int size() {
+        return getDelegate().size();
+    }
+
+    public boolean isEmpty() {
+        return size() <= 0;
+    }
+
+    public boolean containsKey(final long key) {
+        return getDelegate().containsKey(key);
+    }
+
+    public V get(final long key) {
+        return getDelegate().get(key);
+    }
+
+    public V put(final long key, final V value) {
+        return getDelegate().put(key, value);
+    }
+
+    public V remove(final long key) {
+        return getDelegate().remove(key);
+    }
+
+    public void clear() {
+        getDelegate().clear();
+    }
+
+    /**
+     * Removes expired entries eagerly, otherwise they are removed when accessed or when the size limit is reached.
+     */
+    public void cleanUp() {
+        getDelegate().cleanUp();
+    }
+
+    /**
+     * The consumer gets called while the lock of a segment is held.
+     */
+    public void forEach(final ObjLongConsumer<? super V> consumer) {
+        getDelegate().forEach(consumer);
+    }
+
+    /**
+     * A snapshot of the values.
+     */
+    public Collection<V> values() {
+        return getDelegate().values();
+    }
+
+}
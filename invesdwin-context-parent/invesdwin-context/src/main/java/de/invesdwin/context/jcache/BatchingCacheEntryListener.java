@@ -0,0 +1,410 @@
+package de.invesdwin.context.jcache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.FactoryBuilder.SingletonFactory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.EventType;
+
+import de.invesdwin.context.concurrent.BoundedRingBuffer;
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Decouples a slow listener from the writing threads. Events are put into a bounded ring buffer and delivered to the
+ * delegate in batches on a background thread. A batch is delivered as soon as it reaches the maximum batch size or when
+ * the maximum latency since its first event has passed. Consecutive events of the same type are passed to the delegate
+ * in one call, the order of the events is retained (unless they are coalesced).
+ * 
+ * The filter and the oldValueRequired setting of the delegate are still applied on the writing thread. With BLOCK (and
+ * COALESCE_BY_KEY) a writing thread waits for space in the buffer, unless the listener gets closed (then the event is
+ * dropped) or the writing thread is the dispatcher itself because the delegate writes to the cache (then the event is
+ * delivered inline, since the dispatcher can not wait for itself).
+ */
+@ThreadSafe
+public class BatchingCacheEntryListener<K, V> extends CacheEntryListenerSupport<K, V> implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final Duration DEFAULT_MAX_LATENCY = new Duration(10, FTimeUnit.MILLISECONDS);
+    private static final long BLOCK_PARK_NANOS = 100_000L;
+
+    private final CacheEntryListenerSupport<K, V> delegate;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private Duration maxLatency = DEFAULT_MAX_LATENCY;
+    private CacheEntryListenerBackPressure backPressure = CacheEntryListenerBackPressure.BLOCK;
+
+    /**
+     * Contains events or keys when coalescing.
+     */
+    private volatile BoundedRingBuffer<Object> buffer;
+    private final ConcurrentMap<Object, CacheEntryEvent<? extends K, ? extends V>> coalescedEvents = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    @GuardedBy("this")
+    private WrappedExecutorService executor;
+    private volatile Thread dispatcherThread;
+    private volatile boolean dispatcherSleeping;
+    private volatile boolean closed;
+    private final AtomicBoolean delegateClosed = new AtomicBoolean();
+
+    public BatchingCacheEntryListener(final CacheEntryListenerSupport<K, V> delegate) {
+        this.delegate = delegate;
+    }
+
+    public CacheEntryListenerSupport<K, V> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Can only be changed before the first event arrived.
+     */
+    public BatchingCacheEntryListener<K, V> withBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public BatchingCacheEntryListener<K, V> withMaxBatchSize(final int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public BatchingCacheEntryListener<K, V> withMaxLatency(final Duration maxLatency) {
+        this.maxLatency = maxLatency;
+        return this;
+    }
+
+    public Duration getMaxLatency() {
+        return maxLatency;
+    }
+
+    public BatchingCacheEntryListener<K, V> withBackPressure(final CacheEntryListenerBackPressure backPressure) {
+        this.backPressure = backPressure;
+        return this;
+    }
+
+    public CacheEntryListenerBackPressure getBackPressure() {
+        return backPressure;
+    }
+
+    /**
+     * The number of events that were dropped because of DROP_OLDEST or because the listener got closed while a writer
+     * was waiting for space in the buffer.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * The number of events that were replaced by a newer event because of COALESCE_BY_KEY.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getPending() {
+        final BoundedRingBuffer<Object> bufferCopy = buffer;
+        if (bufferCopy == null) {
+            return 0;
+        } else {
+            return bufferCopy.size();
+        }
+    }
+
+    //---------------------------------- enqueue -----------------------------------//
+
+    @Override
+    public boolean evaluate(final CacheEntryEvent<? extends K, ? extends V> event) {
+        return delegate.evaluate(event);
+    }
+
+    @Override
+    public void onCreated(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        enqueue(events);
+    }
+
+    @Override
+    public void onUpdated(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        enqueue(events);
+    }
+
+    @Override
+    public void onRemoved(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        enqueue(events);
+    }
+
+    @Override
+    public void onExpired(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        enqueue(events);
+    }
+
+    private void enqueue(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        if (closed) {
+            return;
+        }
+        final BoundedRingBuffer<Object> bufferCopy = getBuffer();
+        for (final CacheEntryEvent<? extends K, ? extends V> event : events) {
+            switch (backPressure) {
+            case BLOCK:
+                offerBlocking(bufferCopy, event);
+                break;
+            case DROP_OLDEST:
+                while (!bufferCopy.offer(event)) {
+                    if (bufferCopy.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                break;
+            case COALESCE_BY_KEY:
+                offerCoalescing(bufferCopy, event);
+                break;
+            default:
+                throw new IllegalStateException("Unknown " + CacheEntryListenerBackPressure.class.getSimpleName()
+                        + ": " + backPressure);
+            }
+        }
+        if (dispatcherSleeping) {
+            LockSupport.unpark(dispatcherThread);
+        }
+    }
+
+    private void offerCoalescing(final BoundedRingBuffer<Object> bufferCopy,
+            final CacheEntryEvent<? extends K, ? extends V> event) {
+        final Object key = event.getKey();
+        if (coalescedEvents.put(key, event) == null) {
+            //the key is not yet queued (or the dispatcher already took the previous event)
+            offerBlocking(bufferCopy, key);
+        } else {
+            coalesced.increment();
+        }
+    }
+
+    private void offerBlocking(final BoundedRingBuffer<Object> bufferCopy, final Object element) {
+        while (!bufferCopy.offer(element)) {
+            if (closed) {
+                //the dispatcher stops, thus nobody would make space anymore
+                if (toEvent(element) != null) {
+                    dropped.increment();
+                }
+                return;
+            }
+            if (Thread.currentThread() == dispatcherThread) {
+                //the delegate writes to the cache, the dispatcher can not wait for itself
+                final CacheEntryEvent<? extends K, ? extends V> event = toEvent(element);
+                if (event != null) {
+                    dispatchRun(event.getEventType(),
+                            Collections.<CacheEntryEvent<? extends K, ? extends V>> singletonList(event));
+                }
+                return;
+            }
+            LockSupport.unpark(dispatcherThread);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    private BoundedRingBuffer<Object> getBuffer() {
+        if (buffer == null) {
+            synchronized (this) {
+                if (buffer == null) {
+                    final BoundedRingBuffer<Object> newBuffer = new BoundedRingBuffer<Object>(bufferSize);
+                    executor = Executors.newFixedThreadPool(
+                            BatchingCacheEntryListener.class.getSimpleName() + "_"
+                                    + delegate.getClass().getSimpleName(),
+                            1);
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            dispatcherThread = Thread.currentThread();
+                            dispatchLoop(newBuffer);
+                        }
+                    });
+                    buffer = newBuffer;
+                }
+            }
+        }
+        return buffer;
+    }
+
+    //---------------------------------- dispatch -----------------------------------//
+
+    private void dispatchLoop(final BoundedRingBuffer<Object> bufferCopy) {
+        final List<CacheEntryEvent<? extends K, ? extends V>> batch = new ArrayList<>();
+        final List<CacheEntryEvent<? extends K, ? extends V>> run = new ArrayList<>();
+        while (true) {
+            final CacheEntryEvent<? extends K, ? extends V> first = poll(bufferCopy);
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                sleep(bufferCopy, maxLatency.longValue(FTimeUnit.NANOSECONDS));
+                continue;
+            }
+            batch.add(first);
+            final long deadline = System.nanoTime() + maxLatency.longValue(FTimeUnit.NANOSECONDS);
+            while (batch.size() < maxBatchSize) {
+                final CacheEntryEvent<? extends K, ? extends V> next = poll(bufferCopy);
+                if (next != null) {
+                    batch.add(next);
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || closed) {
+                        break;
+                    }
+                    sleep(bufferCopy, remaining);
+                }
+            }
+            dispatch(batch, run);
+            batch.clear();
+        }
+    }
+
+    private CacheEntryEvent<? extends K, ? extends V> poll(final BoundedRingBuffer<Object> bufferCopy) {
+        while (true) {
+            final Object element = bufferCopy.poll();
+            if (element == null) {
+                return null;
+            }
+            final CacheEntryEvent<? extends K, ? extends V> event = toEvent(element);
+            if (event != null) {
+                return event;
+            }
+        }
+    }
+
+    /**
+     * Returns null when coalescing and the event of the key was already taken.
+     */
+    @SuppressWarnings("unchecked")
+    private CacheEntryEvent<? extends K, ? extends V> toEvent(final Object element) {
+        if (backPressure == CacheEntryListenerBackPressure.COALESCE_BY_KEY) {
+            return coalescedEvents.remove(element);
+        } else {
+            return (CacheEntryEvent<? extends K, ? extends V>) element;
+        }
+    }
+
+    private void sleep(final BoundedRingBuffer<Object> bufferCopy, final long nanos) {
+        dispatcherSleeping = true;
+        try {
+            //check again to not miss an event that was offered before the flag was set
+            if (bufferCopy.isEmpty()) {
+                LockSupport.parkNanos(nanos);
+            }
+        } finally {
+            dispatcherSleeping = false;
+        }
+    }
+
+    private void dispatch(final List<CacheEntryEvent<? extends K, ? extends V>> batch,
+            final List<CacheEntryEvent<? extends K, ? extends V>> run) {
+        EventType runType = null;
+        for (int i = 0; i < batch.size(); i++) {
+            final CacheEntryEvent<? extends K, ? extends V> event = batch.get(i);
+            if (runType != null && runType != event.getEventType()) {
+                dispatchRun(runType, run);
+                run.clear();
+            }
+            runType = event.getEventType();
+            run.add(event);
+        }
+        if (runType != null) {
+            dispatchRun(runType, run);
+            run.clear();
+        }
+    }
+
+    private void dispatchRun(final EventType type, final List<CacheEntryEvent<? extends K, ? extends V>> run) {
+        try {
+            switch (type) {
+            case CREATED:
+                delegate.onCreated(run);
+                break;
+            case UPDATED:
+                delegate.onUpdated(run);
+                break;
+            case REMOVED:
+                delegate.onRemoved(run);
+                break;
+            case EXPIRED:
+                delegate.onExpired(run);
+                break;
+            default:
+                throw new IllegalStateException("Unknown " + EventType.class.getSimpleName() + ": " + type);
+            }
+        } catch (final Throwable t) {
+            //keep dispatching the following batches
+            Err.process(t);
+        }
+    }
+
+    //---------------------------------- lifecycle -----------------------------------//
+
+    /**
+     * Delivers the pending events, stops the background thread and closes the delegate if it is Closeable. JCache calls
+     * this when the cache gets closed, but it only knows this wrapper, thus the delegate has to be closed here.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        final WrappedExecutorService executorCopy;
+        synchronized (this) {
+            executorCopy = executor;
+            executor = null;
+        }
+        if (executorCopy != null) {
+            LockSupport.unpark(dispatcherThread);
+            executorCopy.shutdown();
+            try {
+                executorCopy.awaitTermination();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (delegate instanceof Closeable && delegateClosed.compareAndSet(false, true)) {
+            try {
+                ((Closeable) delegate).close();
+            } catch (final IOException e) {
+                Err.process(e);
+            }
+        }
+    }
+
+    /**
+     * The listener itself only enqueues the events, thus it is registered synchronously to keep the order of the
+     * events.
+     */
+    @Override
+    public CacheEntryListenerConfiguration<K, V> newConfiguration() {
+        final CacheEntryListenerConfiguration<K, V> delegateConfiguration = delegate.newConfiguration();
+        return new MutableCacheEntryListenerConfiguration<K, V>(new SingletonFactory<CacheEntryListener<K, V>>(this),
+                delegateConfiguration.getCacheEntryEventFilterFactory(),
+                delegateConfiguration.isOldValueRequired(), true);
+    }
+
+}
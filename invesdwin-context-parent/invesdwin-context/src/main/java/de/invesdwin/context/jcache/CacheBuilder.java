@@ -1,5 +1,6 @@
 package de.invesdwin.context.jcache;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -7,14 +8,19 @@ import java.util.concurrent.Executor;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.cache.Cache;
-import javax.cache.Caching;
 import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
 import javax.cache.integration.CacheWriter;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
 import de.invesdwin.context.jcache.internal.CacheBuilderInternalFactory;
 import de.invesdwin.util.bean.AValueObject;
 import de.invesdwin.util.lang.UniqueNameGenerator;
+import de.invesdwin.util.math.decimal.scaled.ByteSize;
+import de.invesdwin.util.math.decimal.scaled.ByteSizeScale;
 import de.invesdwin.util.time.duration.Duration;
 
 @NotThreadSafe
@@ -35,10 +41,19 @@ public class CacheBuilder<K, V> extends AValueObject {
     //caffeine
     private String name;
     private Integer maximumSize;
+    private ByteSize maximumWeight;
+    private Weigher<? super K, ? super V> weigher;
     private Duration expireAfterWrite;
     private Duration expireAfterAccess;
     private Duration refreshAfterWrite;
+    private boolean refreshAhead;
     private Executor executor;
+    private Copier copier;
+    private Ticker ticker;
+
+    //overflow tier
+    private ByteSize overflowTierSize;
+    private File overflowTierDirectory;
 
     public CacheBuilder() {}
 
@@ -151,6 +166,31 @@ public class CacheBuilder<K, V> extends AValueObject {
         return this;
     }
 
+    public ByteSize getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Evicts entries based on their estimated memory footprint instead of their count. Can not be combined with
+     * withMaximumSize. Use CaffeineCaches.getWeightedSize(cache) to get the current total weight.
+     */
+    public CacheBuilder<K, V> withMaximumWeight(final ByteSize maximumWeight) {
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    public Weigher<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+
+    /**
+     * The weigher should return the size of the entry in bytes. Defaults to MemoryMeterWeigher.
+     */
+    public CacheBuilder<K, V> withWeigher(final Weigher<? super K, ? super V> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+
     public Duration getExpireAfterWrite() {
         return expireAfterWrite;
     }
@@ -178,6 +218,22 @@ public class CacheBuilder<K, V> extends AValueObject {
         return this;
     }
 
+    public boolean isRefreshAhead() {
+        return refreshAhead;
+    }
+
+    /**
+     * Refreshes entries asynchronously on a shared bounded executor after the given duration while the stale value is
+     * still being served. Concurrent accesses to an entry that is being refreshed do not trigger additional reloads.
+     * Refresh latencies and failures are reported to the CacheRefreshHookManager. Requires a cache loader and can not be
+     * combined with withExecutor.
+     */
+    public CacheBuilder<K, V> withRefreshAhead(final Duration refreshAfterWrite) {
+        this.refreshAfterWrite = refreshAfterWrite;
+        this.refreshAhead = refreshAfterWrite != null;
+        return this;
+    }
+
     public Executor getExecutor() {
         return executor;
     }
@@ -187,14 +243,80 @@ public class CacheBuilder<K, V> extends AValueObject {
         return this;
     }
 
+    public Copier getCopier() {
+        return copier;
+    }
+
+    /**
+     * Only used when storeByValue is enabled. Defaults to DeepCloneCopier. Use IdentityCopier for immutable values,
+     * CopyConstructorCopier for values that provide a copy constructor or LazyDeserializingCopier to store the
+     * serialized bytes only once.
+     */
+    public CacheBuilder<K, V> withCopier(final Copier copier) {
+        this.copier = copier;
+        return this;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * The time source for expiration and refresh, defaults to System.nanoTime(). Mostly useful to control the time in
+     * tests.
+     */
+    public CacheBuilder<K, V> withTicker(final Ticker ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    //---------------------------------- overflow tier -----------------------------------//
+
+    public ByteSize getOverflowTierSize() {
+        return overflowTierSize;
+    }
+
+    /**
+     * Null means the default directory below ContextProperties.getCacheDirectory() is used.
+     */
+    public File getOverflowTierDirectory() {
+        return overflowTierDirectory;
+    }
+
+    /**
+     * Entries that get evicted from the heap are spilled into a memory mapped store of the given size below
+     * ContextProperties.getCacheDirectory() and are promoted back to the heap on the next access. Values need to be
+     * serializable. When the store is full, the oldest spilled entries are dropped. The size is limited to 2GB
+     * (Integer.MAX_VALUE bytes) since the store is mapped into a single buffer. The store is closed and its file deleted
+     * when the cache gets closed or destroyed.
+     */
+    public CacheBuilder<K, V> withOffHeapTier(final ByteSize size) {
+        this.overflowTierSize = size;
+        this.overflowTierDirectory = null;
+        return this;
+    }
+
+    /**
+     * Same as withOffHeapTier(ByteSize) but the memory mapped file is placed into the given directory. The size is
+     * also limited to 2GB.
+     */
+    public CacheBuilder<K, V> withDiskTier(final File directory, final ByteSize size) {
+        this.overflowTierSize = size;
+        this.overflowTierDirectory = directory;
+        return this;
+    }
+
     public Cache<K, V> create() {
         assertNameIsSet();
+        assertMaximumSizeOrWeight();
+        assertRefreshAhead();
+        assertOverflowTierSize();
         return CacheBuilderInternalFactory.newCache(this);
     }
 
     public Cache<K, V> getOrCreate() {
         assertNameIsSet();
-        final Cache<K, V> existing = Caching.getCachingProvider().getCacheManager().getCache(name);
+        final Cache<K, V> existing = CacheBuilderInternalFactory.getCache(name);
         if (existing != null) {
             return existing;
         } else {
@@ -208,4 +330,28 @@ public class CacheBuilder<K, V> extends AValueObject {
         }
     }
 
+    private void assertMaximumSizeOrWeight() {
+        if (maximumSize != null && maximumWeight != null) {
+            throw new IllegalStateException("maximumSize and maximumWeight should not be combined");
+        }
+    }
+
+    private void assertRefreshAhead() {
+        if (refreshAhead) {
+            if (cacheLoader == null) {
+                throw new IllegalStateException("refreshAhead requires a cacheLoader");
+            }
+            if (executor != null) {
+                throw new IllegalStateException("refreshAhead and executor should not be combined");
+            }
+        }
+    }
+
+    private void assertOverflowTierSize() {
+        if (overflowTierSize != null && overflowTierSize.getValue(ByteSizeScale.BYTES) > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                    "overflowTierSize should not exceed " + Integer.MAX_VALUE + " bytes: " + overflowTierSize);
+        }
+    }
+
 }
@@ -0,0 +1,21 @@
+package de.invesdwin.context.jcache;
+
+/**
+ * Decides what a BatchingCacheEntryListener does when its buffer is full.
+ */
+public enum CacheEntryListenerBackPressure {
+    /**
+     * The writing thread waits until the listener thread made room. No events are lost.
+     */
+    BLOCK,
+    /**
+     * The oldest queued event is dropped to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Only the latest pending event per key is delivered, thus intermediate events of a key that has not been delivered
+     * yet are skipped. The buffer only holds distinct keys and the writing thread waits when it is full. Useful for
+     * listeners that only need the latest state of an entry.
+     */
+    COALESCE_BY_KEY;
+}
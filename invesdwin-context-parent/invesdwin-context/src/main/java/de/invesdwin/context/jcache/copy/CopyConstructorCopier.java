@@ -0,0 +1,50 @@
+package de.invesdwin.context.jcache.copy;
+
+import java.lang.reflect.Constructor;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
+import de.invesdwin.util.error.Throwables;
+
+/**
+ * Copies values by invoking a copy constructor (a public constructor that takes an instance of the same class). The
+ * constructor lookup is cached per class. Values that don't provide a copy constructor fall back to a deep clone.
+ */
+@Immutable
+public final class CopyConstructorCopier implements Copier {
+
+    public static final CopyConstructorCopier INSTANCE = new CopyConstructorCopier();
+
+    private static final ClassValue<Constructor<?>> COPY_CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(final Class<?> type) {
+            try {
+                return type.getConstructor(type);
+            } catch (final NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+
+    private CopyConstructorCopier() {}
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T copy(final T object, final ClassLoader classLoader) {
+        if (ImmutableCopierTypes.isImmutable(object)) {
+            return object;
+        }
+        final Constructor<?> copyConstructor = COPY_CONSTRUCTORS.get(object.getClass());
+        if (copyConstructor == null) {
+            return DeepCloneCopier.INSTANCE.copy(object, classLoader);
+        }
+        try {
+            return (T) copyConstructor.newInstance(object);
+        } catch (final Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+}
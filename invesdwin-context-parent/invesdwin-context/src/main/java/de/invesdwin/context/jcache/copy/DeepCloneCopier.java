@@ -0,0 +1,29 @@
+package de.invesdwin.context.jcache.copy;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
+import de.invesdwin.util.lang.Objects;
+
+/**
+ * Default copier that does a full serialization round trip on every get and put. Immutable values are returned as
+ * they are.
+ */
+@Immutable
+public final class DeepCloneCopier implements Copier {
+
+    public static final DeepCloneCopier INSTANCE = new DeepCloneCopier();
+
+    private DeepCloneCopier() {}
+
+    @SuppressWarnings("null")
+    @Override
+    public <T> T copy(final T object, final ClassLoader classLoader) {
+        if (ImmutableCopierTypes.isImmutable(object)) {
+            return object;
+        }
+        return Objects.deepClone(object);
+    }
+
+}
@@ -0,0 +1,22 @@
+package de.invesdwin.context.jcache.copy;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
+/**
+ * Use this for caches that only contain immutable values, this makes store-by-value effectively free.
+ */
+@Immutable
+public final class IdentityCopier implements Copier {
+
+    public static final IdentityCopier INSTANCE = new IdentityCopier();
+
+    private IdentityCopier() {}
+
+    @Override
+    public <T> T copy(final T object, final ClassLoader classLoader) {
+        return object;
+    }
+
+}
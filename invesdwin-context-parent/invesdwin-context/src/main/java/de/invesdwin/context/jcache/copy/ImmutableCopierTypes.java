@@ -0,0 +1,22 @@
+package de.invesdwin.context.jcache.copy;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+final class ImmutableCopierTypes {
+
+    private ImmutableCopierTypes() {}
+
+    public static boolean isImmutable(final Object object) {
+        return object == null || object instanceof String || object instanceof Number && isBoxedNumber(object)
+                || object instanceof Boolean || object instanceof Character || object instanceof Enum;
+    }
+
+    private static boolean isBoxedNumber(final Object object) {
+        //subclasses of Number might be mutable (e.g. AtomicInteger)
+        final Class<?> type = object.getClass();
+        return type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                || type == Short.class || type == Byte.class;
+    }
+
+}
@@ -0,0 +1,58 @@
+package de.invesdwin.context.jcache.copy;
+
+import java.io.Serializable;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
+import de.invesdwin.util.lang.Objects;
+
+/**
+ * Stores the value only once in serialized form and deserializes it on each read. Thus a put only pays for
+ * serialization and a get only pays for deserialization, instead of a full deep clone round trip for both.
+ * 
+ * Since the cache internally holds the serialized bytes, cache entry listeners, cache writers and the conditional
+ * replace(key, oldValue, newValue) will see the serialized holder instead of the actual value. Thus only use this for
+ * caches that are accessed via plain get/put. Also keys are copied by the same copier, thus keys need to be of an
+ * immutable type (e.g. String, boxed primitives or enums), otherwise lookups would not find the serialized keys.
+ */
+@Immutable
+public final class LazyDeserializingCopier implements Copier {
+
+    public static final LazyDeserializingCopier INSTANCE = new LazyDeserializingCopier();
+
+    private LazyDeserializingCopier() {}
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T copy(final T object, final ClassLoader classLoader) {
+        if (ImmutableCopierTypes.isImmutable(object)) {
+            return object;
+        }
+        if (object instanceof SerializedValue) {
+            //read path
+            final SerializedValue serialized = (SerializedValue) object;
+            return Objects.deserialize(serialized.getBytes());
+        } else {
+            //write path
+            return (T) new SerializedValue(Objects.serialize((Serializable) object));
+        }
+    }
+
+    @Immutable
+    public static final class SerializedValue {
+
+        private final byte[] bytes;
+
+        private SerializedValue(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+    }
+
+}
@@ -1,6 +1,10 @@
 package de.invesdwin.context.jcache.internal;
 
+import java.io.File;
+import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 
 import javax.annotation.concurrent.Immutable;
@@ -13,52 +17,137 @@ import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
 import javax.cache.integration.CacheWriter;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.Weigher;
 import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
 import com.github.benmanes.caffeine.jcache.copy.Copier;
 
+import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.jcache.CacheBuilder;
 import de.invesdwin.context.jcache.CacheEntryListenerSupport;
 import de.invesdwin.context.jcache.MergedExpiryPolicy;
+import de.invesdwin.context.jcache.copy.DeepCloneCopier;
+import de.invesdwin.context.jcache.statistics.CacheStatistics;
+import de.invesdwin.context.jcache.statistics.CacheStatisticsRegistry;
+import de.invesdwin.context.jcache.statistics.internal.CacheStatisticsUnregisteringListener;
+import de.invesdwin.context.jcache.weigher.MemoryMeterWeigher;
 import de.invesdwin.util.collections.loadingcache.caffeine.CaffeineLoadingCacheMapConfig;
-import de.invesdwin.util.lang.Objects;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.math.Booleans;
+import de.invesdwin.util.math.Integers;
+import de.invesdwin.util.math.decimal.scaled.ByteSizeScale;
 import de.invesdwin.util.time.date.FTimeUnit;
 
 @Immutable
 public final class CacheBuilderInternalFactory {
 
-    private static final Factory<Copier> COPIER_FACTORY = new Factory<Copier>() {
+    private static final Factory<Copier> COPIER_FACTORY = new SingletonFactory<Copier>(DeepCloneCopier.INSTANCE);
+    private static final Factory<Executor> DISABLED_EXECUTOR_FACTORY = new Factory<Executor>() {
         @Override
-        public Copier create() {
-            return new Copier() {
-                @SuppressWarnings("null")
-                @Override
-                public <T> T copy(final T object, final ClassLoader classLoader) {
-                    return Objects.deepClone(object);
-                }
-            };
+        public Executor create() {
+            return CaffeineLoadingCacheMapConfig.DISABLED_EXECUTOR;
         }
     };
-    private static final Factory<Executor> DISABLED_EXECUTOR_FACTORY = new Factory<Executor>() {
+    private static final Factory<Executor> REFRESH_AHEAD_EXECUTOR_FACTORY = new Factory<Executor>() {
         @Override
         public Executor create() {
-            return CaffeineLoadingCacheMapConfig.DISABLED_EXECUTOR;
+            return RefreshAheadExecutor.INSTANCE;
         }
     };
 
+    /**
+     * The cache manager only knows the unwrapped caches, thus the wrappers are remembered here for getCache(name).
+     */
+    private static final ConcurrentMap<String, OverflowTierCache<?, ?>> NAME_OVERFLOWTIERCACHE = new ConcurrentHashMap<String, OverflowTierCache<?, ?>>();
+
     private CacheBuilderInternalFactory() {}
 
+    /**
+     * Returns the wrapped cache when it uses an overflow tier, null if the cache does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Cache<K, V> getCache(final String name) {
+        final Cache<K, V> existing = Caching.getCachingProvider().getCacheManager().getCache(name);
+        if (existing == null) {
+            return null;
+        }
+        final OverflowTierCache<K, V> overflowTierCache = (OverflowTierCache<K, V>) NAME_OVERFLOWTIERCACHE.get(name);
+        if (overflowTierCache != null && overflowTierCache.getDelegate() == existing) {
+            return overflowTierCache;
+        }
+        return existing;
+    }
+
+    /**
+     * Called by the overflow tier when the cache gets closed or destroyed.
+     */
+    static void unregisterOverflowTierCache(final Cache<?, ?> delegate) {
+        final OverflowTierCache<?, ?> overflowTierCache = NAME_OVERFLOWTIERCACHE.get(delegate.getName());
+        if (overflowTierCache != null && overflowTierCache.getDelegate() == delegate) {
+            NAME_OVERFLOWTIERCACHE.remove(delegate.getName(), overflowTierCache);
+        }
+    }
+
     public static <K, V> Cache<K, V> newCache(final CacheBuilder<K, V> builder) {
         final CaffeineConfiguration<K, V> cacheConfiguration = new CaffeineConfiguration<K, V>();
-        applyConfiguration(builder, cacheConfiguration);
+        final LoadTimeRecordingCacheLoader<K, V> cacheLoader = newCacheLoader(builder);
+        final RefreshReportingCacheLoader<K, V> refreshReportingCacheLoader = maybeReportRefreshes(builder,
+                cacheLoader);
+        final OverflowTierCacheAdapter<K, V> overflowTier;
+        if (refreshReportingCacheLoader != null) {
+            overflowTier = applyConfiguration(builder, cacheConfiguration, refreshReportingCacheLoader);
+        } else {
+            overflowTier = applyConfiguration(builder, cacheConfiguration, cacheLoader);
+        }
+        final CacheStatisticsUnregisteringListener<K, V> statisticsUnregisteringListener = new CacheStatisticsUnregisteringListener<K, V>();
+        cacheConfiguration.addCacheEntryListenerConfiguration(statisticsUnregisteringListener.newConfiguration());
         final CacheManager jCacheManager = Caching.getCachingProvider().getCacheManager();
-        return jCacheManager.createCache(builder.getName(), cacheConfiguration);
+        final Cache<K, V> createdCache = jCacheManager.createCache(builder.getName(), cacheConfiguration);
+        if (refreshReportingCacheLoader != null) {
+            refreshReportingCacheLoader.setCache(createdCache);
+        }
+        final Cache<K, V> cache;
+        if (overflowTier != null) {
+            overflowTier.setCache(createdCache);
+            final OverflowTierCache<K, V> overflowTierCache = new OverflowTierCache<K, V>(createdCache, overflowTier);
+            NAME_OVERFLOWTIERCACHE.put(builder.getName(), overflowTierCache);
+            cache = overflowTierCache;
+        } else {
+            cache = createdCache;
+            NAME_OVERFLOWTIERCACHE.remove(builder.getName());
+        }
+        final CacheStatistics statistics = new CacheStatistics(cache, cacheLoader);
+        CacheStatisticsRegistry.register(statistics);
+        statisticsUnregisteringListener.setStatistics(statistics);
+        return cache;
     }
 
-    private static <K, V> void applyConfiguration(final CacheBuilder<K, V> builder,
-            final CaffeineConfiguration<K, V> config) {
+    private static <K, V> LoadTimeRecordingCacheLoader<K, V> newCacheLoader(final CacheBuilder<K, V> builder) {
+        if (builder.getCacheLoader() != null) {
+            return new LoadTimeRecordingCacheLoader<K, V>(builder.getCacheLoader());
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns null if refresh-ahead is disabled.
+     */
+    private static <K, V> RefreshReportingCacheLoader<K, V> maybeReportRefreshes(final CacheBuilder<K, V> builder,
+            final CacheLoader<K, V> cacheLoader) {
+        if (builder.isRefreshAhead() && cacheLoader != null) {
+            return new RefreshReportingCacheLoader<K, V>(builder.getName(), cacheLoader);
+        } else {
+            return null;
+        }
+    }
+
+    private static <K, V> OverflowTierCacheAdapter<K, V> applyConfiguration(final CacheBuilder<K, V> builder,
+            final CaffeineConfiguration<K, V> config, final CacheLoader<K, V> cacheLoader) {
         applyJCacheConfiguration(builder, config);
         applyCaffeineConfiguration(builder, config);
-        applyJCacheFactories(builder, config);
+        applyJCacheFactories(builder, config, cacheLoader);
+        return applyOverflowTier(builder, config, cacheLoader);
     }
 
     private static <K, V> void applyJCacheConfiguration(final CacheBuilder<K, V> builder,
@@ -75,6 +164,10 @@ public final class CacheBuilderInternalFactory {
         if (builder.getStatisticsEnabled() != null) {
             config.setStatisticsEnabled(builder.getStatisticsEnabled());
         }
+        if (builder.isRefreshAhead()) {
+            //caffeine only refreshes loading caches
+            config.setReadThrough(true);
+        }
     }
 
     private static <K, V> void applyCaffeineConfiguration(final CacheBuilder<K, V> builder,
@@ -82,6 +175,11 @@ public final class CacheBuilderInternalFactory {
         if (builder.getMaximumSize() != null) {
             config.setMaximumSize(OptionalLong.of(builder.getMaximumSize()));
         }
+        if (builder.getMaximumWeight() != null) {
+            config.setMaximumWeight(
+                    OptionalLong.of((long) builder.getMaximumWeight().getValue(ByteSizeScale.BYTES)));
+            config.setWeigherFactory(Optional.of(newWeigherFactory(builder)));
+        }
         if (builder.getExpireAfterWrite() != null) {
             config.setExpireAfterWrite(OptionalLong.of(builder.getExpireAfterWrite().longValue(FTimeUnit.NANOSECONDS)));
         }
@@ -93,7 +191,14 @@ public final class CacheBuilderInternalFactory {
             config.setRefreshAfterWrite(
                     OptionalLong.of(builder.getRefreshAfterWrite().longValue(FTimeUnit.NANOSECONDS)));
         }
-        config.setCopierFactory(COPIER_FACTORY);
+        if (builder.getCopier() != null) {
+            config.setCopierFactory(new SingletonFactory<Copier>(builder.getCopier()));
+        } else {
+            config.setCopierFactory(COPIER_FACTORY);
+        }
+        if (builder.getTicker() != null) {
+            config.setTickerFactory(new SingletonFactory<Ticker>(builder.getTicker()));
+        }
         final Executor executor = builder.getExecutor();
         if (executor != null) {
             config.setExecutorFactory(new Factory<Executor>() {
@@ -102,13 +207,27 @@ public final class CacheBuilderInternalFactory {
                     return executor;
                 }
             });
+        } else if (builder.isRefreshAhead()) {
+            config.setExecutorFactory(REFRESH_AHEAD_EXECUTOR_FACTORY);
         } else {
             config.setExecutorFactory(DISABLED_EXECUTOR_FACTORY);
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static <K, V> Factory<Weigher<K, V>> newWeigherFactory(final CacheBuilder<K, V> builder) {
+        final Weigher<K, V> weigher;
+        if (builder.getWeigher() != null) {
+            //weigher only consumes keys and values, thus the cast is safe
+            weigher = (Weigher<K, V>) builder.getWeigher();
+        } else {
+            weigher = (Weigher<K, V>) (Weigher<?, ?>) MemoryMeterWeigher.INSTANCE;
+        }
+        return new SingletonFactory<Weigher<K, V>>(weigher);
+    }
+
     private static <K, V> void applyJCacheFactories(final CacheBuilder<K, V> builder,
-            final CaffeineConfiguration<K, V> config) {
+            final CaffeineConfiguration<K, V> config, final CacheLoader<K, V> cacheLoader) {
         if (!builder.getExpiryPolicies().isEmpty()) {
             final ExpiryPolicy expiryPolicy;
             if (builder.getExpiryPolicies().size() == 1) {
@@ -118,8 +237,8 @@ public final class CacheBuilderInternalFactory {
             }
             config.setExpiryPolicyFactory(new SingletonFactory<ExpiryPolicy>(expiryPolicy));
         }
-        if (builder.getCacheLoader() != null) {
-            config.setCacheLoaderFactory(new SingletonFactory<CacheLoader<K, V>>(builder.getCacheLoader()));
+        if (cacheLoader != null) {
+            config.setCacheLoaderFactory(new SingletonFactory<CacheLoader<K, V>>(cacheLoader));
         }
         if (builder.getCacheWriter() != null) {
             config.setCacheWriterFactory(new SingletonFactory<CacheWriter<K, V>>(builder.getCacheWriter()));
@@ -129,4 +248,77 @@ public final class CacheBuilderInternalFactory {
         }
     }
 
+    /**
+     * The adapter is also the loader, writer and listener of the cache, thus the cache closes it (and the store) on
+     * close/destroy.
+     */
+    private static <K, V> OverflowTierCacheAdapter<K, V> applyOverflowTier(final CacheBuilder<K, V> builder,
+            final CaffeineConfiguration<K, V> config, final CacheLoader<K, V> cacheLoader) {
+        if (builder.getOverflowTierSize() == null) {
+            return null;
+        }
+        final File directory;
+        if (builder.getOverflowTierDirectory() != null) {
+            directory = builder.getOverflowTierDirectory();
+        } else {
+            directory = new File(ContextProperties.getCacheDirectory(), CacheBuilder.class.getSimpleName());
+        }
+        final int capacity = Integers.checkedCast(builder.getOverflowTierSize().getValue(ByteSizeScale.BYTES));
+        final Ticker ticker;
+        if (builder.getTicker() != null) {
+            ticker = builder.getTicker();
+        } else {
+            ticker = Ticker.systemTicker();
+        }
+        final OverflowTierStore<K, V> store = new OverflowTierStore<K, V>(
+                new File(directory, Files.normalizePath(builder.getName()) + ".tier"), capacity, ticker);
+        final CacheLoader<K, V> loader;
+        //refresh-ahead enables read-through in the config without setting it in the builder
+        if (Booleans.isTrue(builder.getReadThrough()) || builder.isRefreshAhead()) {
+            loader = cacheLoader;
+        } else {
+            loader = null;
+        }
+        final CacheWriter<K, V> writer;
+        if (Booleans.isTrue(builder.getWriteThrough())) {
+            writer = builder.getCacheWriter();
+        } else {
+            writer = null;
+        }
+        final OverflowTierCacheAdapter<K, V> adapter = new OverflowTierCacheAdapter<K, V>(store,
+                getOverflowTierMaxAgeNanos(builder), getOverflowTierMaxWriteTimes(builder), loader, writer, ticker);
+        //read-through promotes spilled entries, write-through invalidates them
+        config.setReadThrough(true);
+        config.setWriteThrough(true);
+        config.setCacheLoaderFactory(new SingletonFactory<CacheLoader<K, V>>(adapter));
+        config.setCacheWriterFactory(new SingletonFactory<CacheWriter<K, V>>(adapter));
+        config.addCacheEntryListenerConfiguration(adapter.newConfiguration());
+        return adapter;
+    }
+
+    /**
+     * The write times are only needed for entries on the heap, thus a size bounded cache needs at most as many.
+     */
+    private static long getOverflowTierMaxWriteTimes(final CacheBuilder<?, ?> builder) {
+        if (builder.getMaximumSize() != null) {
+            return builder.getMaximumSize();
+        } else {
+            return OverflowTierCacheAdapter.DEFAULT_MAX_WRITE_TIMES;
+        }
+    }
+
+    private static Long getOverflowTierMaxAgeNanos(final CacheBuilder<?, ?> builder) {
+        Long maxAgeNanos = null;
+        if (builder.getExpireAfterWrite() != null) {
+            maxAgeNanos = builder.getExpireAfterWrite().longValue(FTimeUnit.NANOSECONDS);
+        }
+        if (builder.getExpireAfterAccess() != null) {
+            final long expireAfterAccessNanos = builder.getExpireAfterAccess().longValue(FTimeUnit.NANOSECONDS);
+            if (maxAgeNanos == null || expireAfterAccessNanos < maxAgeNanos) {
+                maxAgeNanos = expireAfterAccessNanos;
+            }
+        }
+        return maxAgeNanos;
+    }
+
 }
@@ -0,0 +1,225 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.jcache.Expirable;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
+import de.invesdwin.context.jcache.util.CaffeineCaches;
+
+/**
+ * Iterates the underlying caffeine map directly instead of going through the JCache iterator. Expired entries are
+ * skipped and keys/values are copied when storeByValue is enabled, same as the JCache iterator does. Iteration does not
+ * record statistics and does not update the access time of entries. Removals are delegated to the given callback so
+ * that they pass through the JCache API (listeners and writers).
+ */
+@Immutable
+public final class CaffeineCacheView<K, V> {
+
+    private final ConcurrentMap<K, Expirable<V>> map;
+    private final Copier copier;
+    private final ClassLoader classLoader;
+    private final Ticker ticker;
+
+    private CaffeineCacheView(final ConcurrentMap<K, Expirable<V>> map, final Copier copier,
+            final ClassLoader classLoader, final Ticker ticker) {
+        this.map = map;
+        this.copier = copier;
+        this.classLoader = classLoader;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns null if the provider is not caffeine.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> CaffeineCacheView<K, V> of(final Cache<K, V> cache) {
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = CaffeineCaches.unwrap(cache);
+        if (caffeine == null) {
+            return null;
+        }
+        final CaffeineConfiguration<K, V> config = cache.getConfiguration(CaffeineConfiguration.class);
+        final Copier copier;
+        if (config.isStoreByValue()) {
+            copier = config.getCopierFactory().create();
+        } else {
+            copier = null;
+        }
+        return new CaffeineCacheView<K, V>((ConcurrentMap<K, Expirable<V>>) caffeine.asMap(), copier,
+                cache.getCacheManager().getClassLoader(), config.getTickerFactory().create());
+    }
+
+    /**
+     * Caffeine uses the configured ticker (System.nanoTime() by default, see CacheBuilder.withTicker) for the
+     * expiration timestamps, thus the same clock has to be used here.
+     */
+    private long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+    }
+
+    private K copyKey(final K key) {
+        if (copier == null) {
+            return key;
+        } else {
+            return copier.copy(key, classLoader);
+        }
+    }
+
+    private V copyValue(final V value) {
+        if (copier == null) {
+            return value;
+        } else {
+            return copier.copy(value, classLoader);
+        }
+    }
+
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        final long now = currentTimeMillis();
+        map.forEach((key, expirable) -> {
+            if (!expirable.hasExpired(now)) {
+                action.accept(copyKey(key), copyValue(expirable.get()));
+            }
+        });
+    }
+
+    public <T> Iterator<T> iterator(final BiFunction<K, V, T> mapper, final Consumer<K> remover) {
+        return new ViewIterator<T>(mapper, remover);
+    }
+
+    public <T> Spliterator<T> spliterator(final BiFunction<K, V, T> mapper) {
+        return new ViewSpliterator<T>(map.entrySet().spliterator(), currentTimeMillis(), mapper);
+    }
+
+    @NotThreadSafe
+    private final class ViewIterator<T> implements Iterator<T> {
+
+        private final Iterator<Map.Entry<K, Expirable<V>>> delegate = map.entrySet().iterator();
+        private final long now = currentTimeMillis();
+        private final BiFunction<K, V, T> mapper;
+        private final Consumer<K> remover;
+        private K nextKey;
+        private V nextValue;
+        private K lastKey;
+
+        private ViewIterator(final BiFunction<K, V, T> mapper, final Consumer<K> remover) {
+            this.mapper = mapper;
+            this.remover = remover;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextKey == null && delegate.hasNext()) {
+                final Map.Entry<K, Expirable<V>> entry = delegate.next();
+                final Expirable<V> expirable = entry.getValue();
+                if (!expirable.hasExpired(now)) {
+                    nextKey = entry.getKey();
+                    nextValue = expirable.get();
+                }
+            }
+            return nextKey != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastKey = nextKey;
+            final T next = mapper.apply(copyKey(nextKey), copyValue(nextValue));
+            nextKey = null;
+            nextValue = null;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            remover.accept(lastKey);
+            lastKey = null;
+        }
+
+    }
+
+    @NotThreadSafe
+    private final class ViewSpliterator<T> implements Spliterator<T> {
+
+        private final Spliterator<Map.Entry<K, Expirable<V>>> delegate;
+        private final long now;
+        private final BiFunction<K, V, T> mapper;
+
+        private ViewSpliterator(final Spliterator<Map.Entry<K, Expirable<V>>> delegate, final long now,
+                final BiFunction<K, V, T> mapper) {
+            this.delegate = delegate;
+            this.now = now;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            final boolean[] found = new boolean[1];
+            while (!found[0]) {
+                final boolean advanced = delegate.tryAdvance((entry) -> {
+                    final Expirable<V> expirable = entry.getValue();
+                    if (!expirable.hasExpired(now)) {
+                        action.accept(mapper.apply(copyKey(entry.getKey()), copyValue(expirable.get())));
+                        found[0] = true;
+                    }
+                });
+                if (!advanced) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> action) {
+            delegate.forEachRemaining((entry) -> {
+                final Expirable<V> expirable = entry.getValue();
+                if (!expirable.hasExpired(now)) {
+                    action.accept(mapper.apply(copyKey(entry.getKey()), copyValue(expirable.get())));
+                }
+            });
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final Spliterator<Map.Entry<K, Expirable<V>>> split = delegate.trySplit();
+            if (split == null) {
+                return null;
+            } else {
+                return new ViewSpliterator<T>(split, now, mapper);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            //expired entries are skipped, thus the size is only an estimate; mapped values might not be distinct
+            return (delegate.characteristics() | Spliterator.NONNULL)
+                    & ~(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT);
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+/**
+ * JCache statistics do not distinguish load times from get times, thus they are recorded here.
+ */
+@ThreadSafe
+public class LoadTimeRecordingCacheLoader<K, V> implements CacheLoader<K, V> {
+
+    private final CacheLoader<K, V> delegate;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public LoadTimeRecordingCacheLoader(final CacheLoader<K, V> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public V load(final K key) throws CacheLoaderException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final V value = delegate.load(key);
+            success = true;
+            return value;
+        } finally {
+            record(start, 1, success);
+        }
+    }
+
+    @Override
+    public Map<K, V> loadAll(final Iterable<? extends K> keys) throws CacheLoaderException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        int count = 0;
+        try {
+            final Map<K, V> values = delegate.loadAll(keys);
+            success = true;
+            count = values.size();
+            return values;
+        } finally {
+            record(start, count, success);
+        }
+    }
+
+    private void record(final long start, final int count, final boolean success) {
+        loadNanos.add(System.nanoTime() - start);
+        if (success) {
+            loads.add(count);
+        } else {
+            loadFailures.increment();
+        }
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public float getAverageLoadTimeMicros() {
+        final long count = loads.sum() + loadFailures.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return loadNanos.sum() / 1000F / count;
+    }
+
+}
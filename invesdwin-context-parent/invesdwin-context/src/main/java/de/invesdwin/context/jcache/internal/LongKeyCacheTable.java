@@ -0,0 +1,484 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import de.invesdwin.context.jcache.CacheBuilder;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.time.date.FTimeUnit;
+
+/**
+ * An open addressing hash table (linear probing with backward shift deletion) for primitive long keys that supports the
+ * maximumSize, expireAfterWrite and expireAfterAccess settings of a CacheBuilder. Size based eviction uses the CLOCK
+ * algorithm (second chance) as an approximation of LRU, expired entries are removed lazily when they are accessed or
+ * when the clock hand passes them. Int keys can be stored without loss by widening them to long.
+ *
+ * The table is striped into segments with their own lock (selected by the upper bits of the hash), so that accesses to
+ * different segments do not block each other. Eviction prefers the segment that receives the new entry.
+ */
+@ThreadSafe
+public class LongKeyCacheTable<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long NO_EXPIRY = -1L;
+
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final Ticker ticker;
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * Used when the segment of a new entry is empty while other segments are full.
+     */
+    private final AtomicInteger evictionSegment = new AtomicInteger();
+
+    public LongKeyCacheTable(final CacheBuilder<?, ?> builder) {
+        this(builder, Executors.getCpuThreadPoolCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    public LongKeyCacheTable(final CacheBuilder<?, ?> builder, final int concurrencyLevel) {
+        assertSupported(builder);
+        if (builder.getMaximumSize() != null) {
+            this.maximumSize = builder.getMaximumSize();
+        } else {
+            this.maximumSize = Integer.MAX_VALUE;
+        }
+        if (builder.getExpireAfterWrite() != null) {
+            this.expireAfterWriteNanos = builder.getExpireAfterWrite().longValue(FTimeUnit.NANOSECONDS);
+        } else {
+            this.expireAfterWriteNanos = NO_EXPIRY;
+        }
+        if (builder.getExpireAfterAccess() != null) {
+            this.expireAfterAccessNanos = builder.getExpireAfterAccess().longValue(FTimeUnit.NANOSECONDS);
+        } else {
+            this.expireAfterAccessNanos = NO_EXPIRY;
+        }
+        if (builder.getTicker() != null) {
+            this.ticker = builder.getTicker();
+        } else {
+            this.ticker = Ticker.systemTicker();
+        }
+        final int segmentCount = newSegmentCount(concurrencyLevel, maximumSize);
+        this.segmentMask = segmentCount - 1;
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<V>(this);
+        }
+    }
+
+    /**
+     * The next power of two of the concurrency level, but a segment should be able to hold at least a few entries.
+     */
+    private static int newSegmentCount(final int concurrencyLevel, final int maximumSize) {
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount * 2 * MIN_CAPACITY <= maximumSize) {
+            segmentCount *= 2;
+        }
+        return segmentCount;
+    }
+
+    private static void assertSupported(final CacheBuilder<?, ?> builder) {
+        if (builder.getCacheLoader() != null || builder.getCacheWriter() != null
+                || !builder.getCacheEntryListeners().isEmpty() || !builder.getExpiryPolicies().isEmpty()
+                || builder.getMaximumWeight() != null || builder.getRefreshAfterWrite() != null
+                || builder.getOverflowTierSize() != null) {
+            throw new IllegalStateException(
+                    "primitive key caches only support maximumSize, expireAfterWrite, expireAfterAccess and ticker");
+        }
+    }
+
+    private boolean isExpiring() {
+        return expireAfterWriteNanos != NO_EXPIRY || expireAfterAccessNanos != NO_EXPIRY;
+    }
+
+    private static int hash(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Segment<V> segmentFor(final int hash) {
+        //the lower bits are used for the slots inside of the segment
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    private long now() {
+        if (isExpiring()) {
+            return ticker.read();
+        } else {
+            return 0L;
+        }
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    public V get(final long key) {
+        final int hash = hash(key);
+        return segmentFor(hash).get(key, hash, now());
+    }
+
+    public boolean containsKey(final long key) {
+        final int hash = hash(key);
+        return segmentFor(hash).containsKey(key, hash, now());
+    }
+
+    /**
+     * Returns the previous value or null.
+     */
+    public V put(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("value should not be null");
+        }
+        final int hash = hash(key);
+        final Segment<V> segment = segmentFor(hash);
+        final long now = now();
+        final V previous = segment.put(key, hash, value, now);
+        if (previous == null) {
+            evictOtherSegments(segment, now);
+        }
+        return previous;
+    }
+
+    /**
+     * Only needed when the segment of the new entry had nothing to evict.
+     */
+    private void evictOtherSegments(final Segment<V> except, final long now) {
+        int attempts = segments.length * 2;
+        while (size.get() > maximumSize && attempts-- > 0) {
+            final Segment<V> segment = segments[evictionSegment.getAndIncrement() & segmentMask];
+            if (segment != except) {
+                segment.evictOne(now);
+            }
+        }
+    }
+
+    public V remove(final long key) {
+        final int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, now());
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        for (final Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Removes all expired entries eagerly.
+     */
+    public void cleanUp() {
+        if (!isExpiring()) {
+            return;
+        }
+        final long now = now();
+        for (final Segment<V> segment : segments) {
+            segment.cleanUp(now);
+        }
+    }
+
+    /**
+     * Iterates over all live entries while holding the lock of one segment after the other, thus the consumer should
+     * not access this table.
+     */
+    public void forEach(final ObjLongConsumer<? super V> consumer) {
+        final long now = now();
+        for (final Segment<V> segment : segments) {
+            segment.forEach(consumer, now);
+        }
+    }
+
+    /**
+     * A snapshot of all live values, consistent per segment.
+     */
+    public List<V> values() {
+        final List<V> snapshot = new ArrayList<V>(size());
+        forEach(new ObjLongConsumer<V>() {
+            @Override
+            public void accept(final V value, final long key) {
+                snapshot.add(value);
+            }
+        });
+        return snapshot;
+    }
+
+    @ThreadSafe
+    private static final class Segment<V> {
+
+        private final LongKeyCacheTable<V> parent;
+        @GuardedBy("this")
+        private long[] keys;
+        @GuardedBy("this")
+        private Object[] values;
+        @GuardedBy("this")
+        private boolean[] used;
+        @GuardedBy("this")
+        private boolean[] referenced;
+        /**
+         * Only allocated when expireAfterWrite is configured.
+         */
+        @GuardedBy("this")
+        private long[] writeNanos;
+        /**
+         * Only allocated when expireAfterAccess is configured.
+         */
+        @GuardedBy("this")
+        private long[] accessNanos;
+        @GuardedBy("this")
+        private int mask;
+        @GuardedBy("this")
+        private int size;
+        @GuardedBy("this")
+        private int clockHand;
+
+        private Segment(final LongKeyCacheTable<V> parent) {
+            this.parent = parent;
+            allocate(MIN_CAPACITY);
+        }
+
+        @GuardedBy("this")
+        private void allocate(final int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            used = new boolean[capacity];
+            referenced = new boolean[capacity];
+            if (parent.expireAfterWriteNanos != NO_EXPIRY) {
+                writeNanos = new long[capacity];
+            }
+            if (parent.expireAfterAccessNanos != NO_EXPIRY) {
+                accessNanos = new long[capacity];
+            }
+            mask = capacity - 1;
+            clockHand = 0;
+        }
+
+        @GuardedBy("this")
+        private int indexOf(final long key, final int hash) {
+            int i = hash & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the index of a live entry, expired entries are removed.
+         */
+        @GuardedBy("this")
+        private int liveIndexOf(final long key, final int hash, final long now) {
+            final int i = indexOf(key, hash);
+            if (i >= 0 && isExpired(i, now)) {
+                removeAt(i);
+                return -1;
+            }
+            return i;
+        }
+
+        @GuardedBy("this")
+        private boolean isExpired(final int i, final long now) {
+            return writeNanos != null && now - writeNanos[i] >= parent.expireAfterWriteNanos
+                    || accessNanos != null && now - accessNanos[i] >= parent.expireAfterAccessNanos;
+        }
+
+        /**
+         * Same as caffeine, a read only extends expireAfterAccess while a write resets both expirations.
+         */
+        @GuardedBy("this")
+        private void touch(final int i, final long now, final boolean write) {
+            referenced[i] = true;
+            if (write && writeNanos != null) {
+                writeNanos[i] = now;
+            }
+            if (accessNanos != null) {
+                accessNanos[i] = now;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized V get(final long key, final int hash, final long now) {
+            final int i = liveIndexOf(key, hash, now);
+            if (i < 0) {
+                return null;
+            }
+            touch(i, now, false);
+            return (V) values[i];
+        }
+
+        private synchronized boolean containsKey(final long key, final int hash, final long now) {
+            return liveIndexOf(key, hash, now) >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized V put(final long key, final int hash, final V value, final long now) {
+            final int existing = liveIndexOf(key, hash, now);
+            if (existing >= 0) {
+                final V previous = (V) values[existing];
+                values[existing] = value;
+                touch(existing, now, true);
+                return previous;
+            }
+            if (parent.size.get() >= parent.maximumSize) {
+                evictOne(now);
+            }
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int i = hash & mask;
+            while (used[i]) {
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+            touch(i, now, true);
+            //new entries get a second chance only after they were accessed again
+            referenced[i] = false;
+            size++;
+            parent.size.incrementAndGet();
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized V remove(final long key, final int hash, final long now) {
+            final int i = indexOf(key, hash);
+            if (i < 0) {
+                return null;
+            }
+            final V previous = (V) values[i];
+            final boolean expired = isExpired(i, now);
+            removeAt(i);
+            if (expired) {
+                return null;
+            } else {
+                return previous;
+            }
+        }
+
+        private synchronized void clear() {
+            parent.size.addAndGet(-size);
+            allocate(MIN_CAPACITY);
+            size = 0;
+        }
+
+        private synchronized void cleanUp(final long now) {
+            int i = 0;
+            while (i < keys.length) {
+                if (used[i] && isExpired(i, now)) {
+                    //backward shift might move another entry into this slot, thus check it again
+                    removeAt(i);
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized void forEach(final ObjLongConsumer<? super V> consumer, final long now) {
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i] && !isExpired(i, now)) {
+                    consumer.accept((V) values[i], keys[i]);
+                }
+            }
+        }
+
+        /**
+         * Removes one entry (expired ones first as they are passed) if this segment is not empty.
+         */
+        private synchronized void evictOne(final long now) {
+            while (size > 0) {
+                final int i = clockHand;
+                if (!used[i]) {
+                    clockHand = (i + 1) & mask;
+                } else if (isExpired(i, now)) {
+                    removeAt(i);
+                    return;
+                } else if (referenced[i]) {
+                    referenced[i] = false;
+                    clockHand = (i + 1) & mask;
+                } else {
+                    //the hand stays since backward shift might have moved another entry into this slot
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        @GuardedBy("this")
+        private void resize(final int capacity) {
+            final long[] oldKeys = keys;
+            final Object[] oldValues = values;
+            final boolean[] oldUsed = used;
+            final boolean[] oldReferenced = referenced;
+            final long[] oldWriteNanos = writeNanos;
+            final long[] oldAccessNanos = accessNanos;
+            allocate(capacity);
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldUsed[j]) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (used[i]) {
+                        i = (i + 1) & mask;
+                    }
+                    used[i] = true;
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                    referenced[i] = oldReferenced[j];
+                    if (writeNanos != null) {
+                        writeNanos[i] = oldWriteNanos[j];
+                    }
+                    if (accessNanos != null) {
+                        accessNanos[i] = oldAccessNanos[j];
+                    }
+                }
+            }
+        }
+
+        @GuardedBy("this")
+        private void removeAt(final int index) {
+            int gap = index;
+            int i = (gap + 1) & mask;
+            while (used[i]) {
+                final int home = hash(keys[i]) & mask;
+                //move the entry into the gap when its home slot is not located between the gap and its current slot
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    referenced[gap] = referenced[i];
+                    if (writeNanos != null) {
+                        writeNanos[gap] = writeNanos[i];
+                    }
+                    if (accessNanos != null) {
+                        accessNanos[gap] = accessNanos[i];
+                    }
+                    gap = i;
+                }
+                i = (i + 1) & mask;
+            }
+            used[gap] = false;
+            values[gap] = null;
+            referenced[gap] = false;
+            size--;
+            parent.size.decrementAndGet();
+        }
+
+    }
+
+}
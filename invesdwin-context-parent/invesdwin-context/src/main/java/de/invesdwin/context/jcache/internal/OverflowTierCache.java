@@ -0,0 +1,192 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+/**
+ * Delegates to the actual cache and additionally clears the overflow tier when the cache is cleared. Neither clear()
+ * nor removeAll() know about the values that were already spilled, thus without this those values would be promoted
+ * again on the next access.
+ */
+@ThreadSafe
+public class OverflowTierCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, V> delegate;
+    private final OverflowTierCacheAdapter<K, V> adapter;
+
+    public OverflowTierCache(final Cache<K, V> delegate, final OverflowTierCacheAdapter<K, V> adapter) {
+        this.delegate = delegate;
+        this.adapter = adapter;
+    }
+
+    public Cache<K, V> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+        adapter.clear();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        adapter.clear();
+    }
+
+    @Override
+    public V get(final K key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public Map<K, V> getAll(final Set<? extends K> keys) {
+        return delegate.getAll(keys);
+    }
+
+    @Override
+    public boolean containsKey(final K key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public void loadAll(final Set<? extends K> keys, final boolean replaceExistingValues,
+            final CompletionListener completionListener) {
+        delegate.loadAll(keys, replaceExistingValues, completionListener);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public V getAndPut(final K key, final V value) {
+        return delegate.getAndPut(key, value);
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> map) {
+        delegate.putAll(map);
+    }
+
+    @Override
+    public boolean putIfAbsent(final K key, final V value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        return delegate.remove(key);
+    }
+
+    @Override
+    public boolean remove(final K key, final V oldValue) {
+        return delegate.remove(key, oldValue);
+    }
+
+    @Override
+    public V getAndRemove(final K key) {
+        return delegate.getAndRemove(key);
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        return delegate.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public boolean replace(final K key, final V value) {
+        return delegate.replace(key, value);
+    }
+
+    @Override
+    public V getAndReplace(final K key, final V value) {
+        return delegate.getAndReplace(key, value);
+    }
+
+    @Override
+    public void removeAll(final Set<? extends K> keys) {
+        delegate.removeAll(keys);
+    }
+
+    @Override
+    public <C extends Configuration<K, V>> C getConfiguration(final Class<C> clazz) {
+        return delegate.getConfiguration(clazz);
+    }
+
+    @Override
+    public <T> T invoke(final K key, final EntryProcessor<K, V, T> entryProcessor, final Object... arguments)
+            throws EntryProcessorException {
+        return delegate.invoke(key, entryProcessor, arguments);
+    }
+
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(final Set<? extends K> keys,
+            final EntryProcessor<K, V, T> entryProcessor, final Object... arguments) {
+        return delegate.invokeAll(keys, entryProcessor, arguments);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public CacheManager getCacheManager() {
+        return delegate.getCacheManager();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public <T> T unwrap(final Class<T> clazz) {
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        return delegate.unwrap(clazz);
+    }
+
+    @Override
+    public void registerCacheEntryListener(
+            final CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+        delegate.registerCacheEntryListener(cacheEntryListenerConfiguration);
+    }
+
+    @Override
+    public void deregisterCacheEntryListener(
+            final CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+        delegate.deregisterCacheEntryListener(cacheEntryListenerConfiguration);
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+}
@@ -0,0 +1,287 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.Cache;
+import javax.cache.Cache.Entry;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.FactoryBuilder.SingletonFactory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import de.invesdwin.context.jcache.CacheEntryListenerSupport;
+import de.invesdwin.context.jcache.internal.OverflowTierStore.Spilled;
+
+/**
+ * Spills entries that got removed from the cache without an explicit delete (evictions) into the overflow store and
+ * promotes them back via read-through on the next access. Explicit deletes of keys that are present in the cache go
+ * through the cache writer and are marked so that the following removed (or expired) event does not spill them, the
+ * event also clears the mark. The configured cache loader and writer of the builder are still called according to the
+ * readThrough/writeThrough settings of the builder. Closing the cache closes the store, clearing the cache (see
+ * OverflowTierCache) clears the store.
+ *
+ * When a max age is given, the write time of each entry is tracked so that spilled entries expire relative to their
+ * original write and not relative to the eviction. Promoted entries keep their original write time. The write times are
+ * held on the heap next to the cache (not counted by maximumSize/maximumWeight), thus they are bounded by the maximumSize
+ * of the cache or DEFAULT_MAX_WRITE_TIMES for weight bounded caches. Entries whose write time got dropped from that
+ * bound are spilled with the time of the eviction instead.
+ */
+@ThreadSafe
+public class OverflowTierCacheAdapter<K, V> extends CacheEntryListenerSupport<K, V>
+        implements CacheLoader<K, V>, CacheWriter<K, V>, Closeable {
+
+    public static final long DEFAULT_MAX_WRITE_TIMES = 100_000;
+
+    private final OverflowTierStore<K, V> store;
+    private final Long maxAgeNanos;
+    private final Ticker ticker;
+    private final CacheLoader<K, V> loader;
+    private final CacheWriter<K, V> writer;
+    private final Set<Object> deletedKeys = ConcurrentHashMap.newKeySet();
+    /**
+     * Null when there is no max age, then the write time does not matter.
+     */
+    private final ConcurrentMap<Object, Long> writtenNanosByKey;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Cache<K, V> cache;
+
+    /**
+     * @param loader
+     *            null if readThrough is disabled
+     * @param writer
+     *            null if writeThrough is disabled
+     * @param maxWriteTimes
+     *            the bound of the write times that are tracked when a max age is given
+     * @param ticker
+     *            the ticker of the cache
+     */
+    public OverflowTierCacheAdapter(final OverflowTierStore<K, V> store, final Long maxAgeNanos,
+            final long maxWriteTimes, final CacheLoader<K, V> loader, final CacheWriter<K, V> writer,
+            final Ticker ticker) {
+        this.store = store;
+        this.maxAgeNanos = maxAgeNanos;
+        this.loader = loader;
+        this.writer = writer;
+        this.ticker = ticker;
+        if (maxAgeNanos != null) {
+            this.writtenNanosByKey = Caffeine.newBuilder().maximumSize(maxWriteTimes).<Object, Long> build().asMap();
+        } else {
+            this.writtenNanosByKey = null;
+        }
+    }
+
+    public OverflowTierStore<K, V> getStore() {
+        return store;
+    }
+
+    /**
+     * Needs to be called after the cache was created, so that deletes of absent keys do not leave marks behind.
+     */
+    public void setCache(final Cache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Called when the cache is cleared. Clear does not notify the writer or the listeners, thus the spilled values, the
+     * write times and the delete marks have to be dropped here.
+     */
+    public void clear() {
+        store.clear();
+        deletedKeys.clear();
+        if (writtenNanosByKey != null) {
+            writtenNanosByKey.clear();
+        }
+    }
+
+    private void markWritten(final Object key, final long writtenNanos) {
+        if (writtenNanosByKey != null) {
+            writtenNanosByKey.put(key, writtenNanos);
+        }
+    }
+
+    private long removeWrittenNanos(final Object key) {
+        if (writtenNanosByKey != null) {
+            final Long writtenNanos = writtenNanosByKey.remove(key);
+            if (writtenNanos != null) {
+                return writtenNanos;
+            }
+        }
+        return ticker.read();
+    }
+
+    //---------------------------------- spill -----------------------------------//
+
+    @Override
+    public void onRemoved(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        for (final CacheEntryEvent<? extends K, ? extends V> event : events) {
+            final K key = event.getKey();
+            final long writtenNanos = removeWrittenNanos(key);
+            if (deletedKeys.remove(key)) {
+                continue;
+            }
+            final V value;
+            if (event.isOldValueAvailable()) {
+                value = event.getOldValue();
+            } else {
+                value = event.getValue();
+            }
+            if (value != null) {
+                store.put(key, value, writtenNanos);
+            }
+        }
+    }
+
+    @Override
+    public void onExpired(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        for (final CacheEntryEvent<? extends K, ? extends V> event : events) {
+            deletedKeys.remove(event.getKey());
+            removeWrittenNanos(event.getKey());
+            store.remove(event.getKey());
+        }
+    }
+
+    @Override
+    public CacheEntryListenerConfiguration<K, V> newConfiguration() {
+        //old value required so that evicted values can be spilled
+        return new MutableCacheEntryListenerConfiguration<K, V>(new SingletonFactory<CacheEntryListener<K, V>>(this),
+                null, true, true);
+    }
+
+    //---------------------------------- promote -----------------------------------//
+
+    @Override
+    public V load(final K key) throws CacheLoaderException {
+        final Spilled<V> spilled = store.take(key, maxAgeNanos);
+        if (spilled != null) {
+            markWritten(key, spilled.getWrittenNanos());
+            return spilled.getValue();
+        }
+        if (loader != null) {
+            final long loadNanos = ticker.read();
+            final V value = loader.load(key);
+            if (value != null) {
+                markWritten(key, loadNanos);
+            }
+            return value;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public Map<K, V> loadAll(final Iterable<? extends K> keys) throws CacheLoaderException {
+        final Map<K, V> loaded = new HashMap<K, V>();
+        for (final K key : keys) {
+            final V value = load(key);
+            if (value != null) {
+                loaded.put(key, value);
+            }
+        }
+        return loaded;
+    }
+
+    //---------------------------------- invalidate -----------------------------------//
+
+    @Override
+    public void write(final Entry<? extends K, ? extends V> entry) throws CacheWriterException {
+        deletedKeys.remove(entry.getKey());
+        markWritten(entry.getKey(), ticker.read());
+        store.remove(entry.getKey());
+        if (writer != null) {
+            writer.write(entry);
+        }
+    }
+
+    @Override
+    public void writeAll(final Collection<Entry<? extends K, ? extends V>> entries) throws CacheWriterException {
+        final long writtenNanos = ticker.read();
+        for (final Entry<? extends K, ? extends V> entry : entries) {
+            deletedKeys.remove(entry.getKey());
+            markWritten(entry.getKey(), writtenNanos);
+            store.remove(entry.getKey());
+        }
+        if (writer != null) {
+            writer.writeAll(entries);
+        } else {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void delete(final Object key) throws CacheWriterException {
+        markDeleted(key);
+        store.remove(key);
+        if (writer != null) {
+            writer.delete(key);
+        }
+    }
+
+    @Override
+    public void deleteAll(final Collection<?> keys) throws CacheWriterException {
+        for (final Object key : keys) {
+            markDeleted(key);
+            store.remove(key);
+        }
+        if (writer != null) {
+            writer.deleteAll(keys);
+        } else {
+            keys.clear();
+        }
+    }
+
+    /**
+     * The writer is also called for keys that are not in the cache, those will not get a removed event that clears
+     * the mark. Races with a concurrent eviction are harmless since the eviction clears the mark without spilling.
+     */
+    @SuppressWarnings("unchecked")
+    private void markDeleted(final Object key) {
+        final Cache<K, V> cacheCopy = cache;
+        if (cacheCopy == null || cacheCopy.containsKey((K) key)) {
+            deletedKeys.add(key);
+        }
+    }
+
+    //---------------------------------- close -----------------------------------//
+
+    /**
+     * Called by the cache on close/destroy for the loader, the writer and the listener, thus only the first call does
+     * something.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        clear();
+        store.close();
+        final Cache<K, V> cacheCopy = cache;
+        if (cacheCopy != null) {
+            CacheBuilderInternalFactory.unregisterOverflowTierCache(cacheCopy);
+        }
+        //the cache only knows the adapter, thus the delegates have to be closed here
+        if (loader instanceof Closeable) {
+            ((Closeable) loader).close();
+        }
+        if (writer instanceof Closeable && writer != loader) {
+            ((Closeable) writer).close();
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import de.invesdwin.context.jcache.copy.LazyDeserializingCopier.SerializedValue;
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.lang.Objects;
+
+/**
+ * A memory mapped circular log of serialized values. When the log is full, the oldest spilled entries get overwritten
+ * (FIFO). Only the keys and the offsets are held on heap. A single mapped buffer is used, thus the capacity is limited
+ * to Integer.MAX_VALUE bytes.
+ */
+@ThreadSafe
+public class OverflowTierStore<K, V> implements Closeable {
+
+    private final File file;
+    private final int capacity;
+    private final Ticker ticker;
+    /**
+     * Modified only while holding the lock, but concurrent so that remove() can skip the lock for keys that were never
+     * spilled, which is the common case on the write path of the cache.
+     */
+    private final Map<K, Record<K>> index = new ConcurrentHashMap<K, Record<K>>();
+    /**
+     * Records in append order, might contain records that were already removed from the index.
+     */
+    @GuardedBy("this")
+    private final ArrayDeque<Record<K>> log = new ArrayDeque<Record<K>>();
+    @GuardedBy("this")
+    private MappedByteBuffer buffer;
+    @GuardedBy("this")
+    private int writePosition;
+
+    /**
+     * The ticker should be the one of the cache, so that the age of spilled values is measured on the same clock.
+     */
+    public OverflowTierStore(final File file, final int capacity, final Ticker ticker) {
+        this.file = file;
+        this.capacity = capacity;
+        this.ticker = ticker;
+        try {
+            Files.forceMkdir(file.getParentFile());
+            Files.deleteQuietly(file);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(capacity);
+                try (FileChannel channel = raf.getChannel()) {
+                    this.buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+                }
+            }
+        } catch (final IOException e) {
+            throw Err.process(e);
+        }
+        //index is only held in memory, thus the file is useless after a restart
+        file.deleteOnExit();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * The writtenNanos should be the ticker time at which the value was originally written to the cache, so that
+     * spilling does not extend its lifetime. Returns false if the value could not be spilled because it is larger than
+     * the capacity or the store is closed.
+     */
+    public boolean put(final K key, final V value, final long writtenNanos) {
+        //serialize outside of the lock
+        final byte[] bytes;
+        if (value instanceof SerializedValue) {
+            //storeByValue with LazyDeserializingCopier already holds the bytes of the actual value
+            bytes = ((SerializedValue) value).getBytes();
+        } else {
+            bytes = Objects.serialize((Serializable) value);
+        }
+        if (bytes.length > capacity) {
+            return false;
+        }
+        synchronized (this) {
+            if (buffer == null) {
+                return false;
+            }
+            index.remove(key);
+            if (writePosition + bytes.length > capacity) {
+                //the tail of the buffer is wasted, thus drop the oldest records that are located there
+                while (!log.isEmpty() && log.peekFirst().offset >= writePosition) {
+                    evictFirst();
+                }
+                writePosition = 0;
+            }
+            //overwrite the oldest records
+            final int writeEnd = writePosition + bytes.length;
+            while (!log.isEmpty() && log.peekFirst().offset < writeEnd
+                    && log.peekFirst().offset + log.peekFirst().length > writePosition) {
+                evictFirst();
+            }
+            buffer.position(writePosition);
+            buffer.put(bytes);
+            final Record<K> record = new Record<K>(key, writePosition, bytes.length, writtenNanos);
+            writePosition += bytes.length;
+            index.put(key, record);
+            log.addLast(record);
+            return true;
+        }
+    }
+
+    @GuardedBy("this")
+    private void evictFirst() {
+        final Record<K> oldest = log.removeFirst();
+        if (index.get(oldest.key) == oldest) {
+            index.remove(oldest.key);
+        }
+    }
+
+    /**
+     * Removes the value from the store and returns it, null if it does not exist or was written longer than maxAgeNanos
+     * ago (use null to disable the age check).
+     */
+    public Spilled<V> take(final K key, final Long maxAgeNanos) {
+        if (!index.containsKey(key)) {
+            //cache misses of keys that were never spilled do not need the lock
+            return null;
+        }
+        final byte[] bytes;
+        final long writtenNanos;
+        synchronized (this) {
+            final Record<K> record = index.remove(key);
+            if (record == null || buffer == null) {
+                return null;
+            }
+            if (maxAgeNanos != null && ticker.read() - record.writtenNanos > maxAgeNanos) {
+                return null;
+            }
+            bytes = new byte[record.length];
+            buffer.position(record.offset);
+            buffer.get(bytes);
+            writtenNanos = record.writtenNanos;
+        }
+        //deserialize outside of the lock
+        final V value = Objects.deserialize(bytes);
+        return new Spilled<V>(value, writtenNanos);
+    }
+
+    public void remove(final Object key) {
+        if (!index.containsKey(key)) {
+            return;
+        }
+        synchronized (this) {
+            index.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        log.clear();
+        writePosition = 0;
+    }
+
+    public synchronized boolean isClosed() {
+        return buffer == null;
+    }
+
+    /**
+     * Can be called multiple times. The mapping itself is released when the buffer gets garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        if (buffer == null) {
+            return;
+        }
+        clear();
+        buffer = null;
+        Files.deleteQuietly(file);
+    }
+
+    private static final class Record<K> {
+        private final K key;
+        private final int offset;
+        private final int length;
+        private final long writtenNanos;
+
+        private Record(final K key, final int offset, final int length, final long writtenNanos) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.writtenNanos = writtenNanos;
+        }
+    }
+
+    @Immutable
+    public static final class Spilled<V> {
+        private final V value;
+        private final long writtenNanos;
+
+        private Spilled(final V value, final long writtenNanos) {
+            this.value = value;
+            this.writtenNanos = writtenNanos;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getWrittenNanos() {
+            return writtenNanos;
+        }
+    }
+
+}
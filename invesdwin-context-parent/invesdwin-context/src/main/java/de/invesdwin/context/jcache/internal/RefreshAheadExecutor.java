@@ -0,0 +1,89 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+/**
+ * Shared executor for all caches that use refresh-ahead. Caffeine submits refreshes (and its maintenance work) here so
+ * that the caller gets the stale value immediately instead of waiting for the reload. Caffeine already coalesces
+ * refreshes per entry, thus a hot key only causes one reload at a time.
+ *
+ * The number of pending tasks is bounded. When the bound is reached, tasks run on the calling thread instead of piling
+ * up, which is the same behavior as without refresh-ahead.
+ */
+@ThreadSafe
+public final class RefreshAheadExecutor implements Executor {
+
+    public static final RefreshAheadExecutor INSTANCE = new RefreshAheadExecutor();
+
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder callerRuns = new LongAdder();
+    private volatile WrappedExecutorService delegate;
+
+    private RefreshAheadExecutor() {
+        this.maxPending = Executors.getCpuThreadPoolCount() * 100;
+    }
+
+    /**
+     * The threads are only started when the first refresh-ahead cache needs them.
+     */
+    private WrappedExecutorService getDelegate() {
+        if (delegate == null) {
+            synchronized (this) {
+                if (delegate == null) {
+                    delegate = Executors.newFixedThreadPool(RefreshAheadExecutor.class.getSimpleName(),
+                            Executors.getCpuThreadPoolCount());
+                }
+            }
+        }
+        return delegate;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            callerRuns.increment();
+            command.run();
+            return;
+        }
+        try {
+            getDelegate().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+            });
+        } catch (final Throwable t) {
+            pending.decrementAndGet();
+            throw t;
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * The number of tasks that had to run on the calling thread because the executor was saturated.
+     */
+    public long getCallerRuns() {
+        return callerRuns.sum();
+    }
+
+}
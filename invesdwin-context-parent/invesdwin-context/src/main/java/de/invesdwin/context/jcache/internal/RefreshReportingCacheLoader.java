@@ -0,0 +1,112 @@
+package de.invesdwin.context.jcache.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.Cache;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.invesdwin.context.jcache.refresh.CacheRefreshHookManager;
+import de.invesdwin.context.jcache.util.CaffeineCaches;
+import de.invesdwin.util.time.duration.Duration;
+import de.invesdwin.util.time.date.FTimeUnit;
+
+/**
+ * Reports reloads of entries that are still present in the cache to the CacheRefreshHookManager. Caffeine wraps the
+ * JCache loader in its own loader adapter, thus reload() can not be overridden to mark refreshes. Instead a load of a key
+ * that is still present (and not expired) in the underlying caffeine cache is a refresh, since any other load only
+ * happens for absent keys. Initial loads (also those of listeners or other tasks that run on the RefreshAheadExecutor)
+ * are passed through without reporting. Consecutive failures are counted per key.
+ */
+@ThreadSafe
+public class RefreshReportingCacheLoader<K, V> implements CacheLoader<K, V> {
+
+    /**
+     * Keys that keep failing until they get evicted from the cache would otherwise never be removed.
+     */
+    private static final long MAX_FAILING_KEYS = 10_000;
+
+    private final String cacheName;
+    private final CacheLoader<K, V> delegate;
+    private volatile Map<?, ?> entries;
+    private final ConcurrentMap<K, AtomicInteger> consecutiveFailures = Caffeine.newBuilder()
+            .maximumSize(MAX_FAILING_KEYS)
+            .<K, AtomicInteger> build()
+            .asMap();
+
+    public RefreshReportingCacheLoader(final String cacheName, final CacheLoader<K, V> delegate) {
+        this.cacheName = cacheName;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Needs to be called after the cache was created, until then no load is reported as a refresh.
+     */
+    public void setCache(final Cache<K, V> cache) {
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = CaffeineCaches.unwrap(cache);
+        if (caffeine != null) {
+            this.entries = caffeine.asMap();
+        }
+    }
+
+    private boolean isRefresh(final K key) {
+        final Map<?, ?> entriesCopy = entries;
+        //caffeine hides expired entries, those are loaded again instead of being refreshed
+        return entriesCopy != null && entriesCopy.containsKey(key);
+    }
+
+    @Override
+    public V load(final K key) throws CacheLoaderException {
+        if (!isRefresh(key)) {
+            return delegate.load(key);
+        }
+        final long start = System.nanoTime();
+        final V value;
+        try {
+            value = delegate.load(key);
+        } catch (final Throwable t) {
+            final int failures = getConsecutiveFailures(key).incrementAndGet();
+            CacheRefreshHookManager.refreshFailed(cacheName, key, newLatency(start), failures, t);
+            throw t;
+        }
+        final AtomicInteger previousFailures = consecutiveFailures.remove(key);
+        final int previousFailuresCount;
+        if (previousFailures != null) {
+            previousFailuresCount = previousFailures.get();
+        } else {
+            previousFailuresCount = 0;
+        }
+        CacheRefreshHookManager.refreshSucceeded(cacheName, key, newLatency(start), previousFailuresCount);
+        return value;
+    }
+
+    private AtomicInteger getConsecutiveFailures(final K key) {
+        final AtomicInteger existing = consecutiveFailures.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger raced = consecutiveFailures.putIfAbsent(key, created);
+        if (raced != null) {
+            return raced;
+        } else {
+            return created;
+        }
+    }
+
+    private Duration newLatency(final long start) {
+        return new Duration(System.nanoTime() - start, FTimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Map<K, V> loadAll(final Iterable<? extends K> keys) throws CacheLoaderException {
+        //refreshes are always done per key
+        return delegate.loadAll(keys);
+    }
+
+}
@@ -1,27 +1,28 @@
 package de.invesdwin.context.jcache.internal;
 
-import javax.annotation.concurrent.GuardedBy;
+import java.util.concurrent.atomic.LongAdder;
+
 import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.FactoryBuilder.SingletonFactory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
 import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListener;
 
 import de.invesdwin.context.jcache.CacheEntryListenerSupport;
 
+/**
+ * Uses a striped counter so that concurrent writers don't contend on a single monitor. The listener is registered
+ * synchronously so that the size is exact as soon as the modifying operation returns.
+ */
 @ThreadSafe
 public class SizeCountingCacheEntryListener<K, V> extends CacheEntryListenerSupport<K, V> {
 
-    @GuardedBy("this")
-    private int size;
+    private final LongAdder size = new LongAdder();
 
     @Override
     public void onRemoved(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
-        int count = 0;
-        for (@SuppressWarnings("unused")
-        final CacheEntryEvent<? extends K, ? extends V> event : events) {
-            count++;
-        }
-        synchronized (this) {
-            size = Math.max(0, size - count);
-        }
+        size.add(-count(events));
     }
 
     @Override
@@ -31,18 +32,34 @@ public class SizeCountingCacheEntryListener<K, V> extends CacheEntryListenerSupp
 
     @Override
     public void onCreated(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        size.add(count(events));
+    }
+
+    private int count(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
         int count = 0;
         for (@SuppressWarnings("unused")
         final CacheEntryEvent<? extends K, ? extends V> event : events) {
             count++;
         }
-        synchronized (this) {
-            size = Math.max(0, size + count);
+        return count;
+    }
+
+    public int getSize() {
+        final long sum = size.sum();
+        if (sum <= 0) {
+            return 0;
+        } else if (sum >= Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else {
+            return (int) sum;
         }
     }
 
-    public synchronized int getSize() {
-        return size;
+    @Override
+    public CacheEntryListenerConfiguration<K, V> newConfiguration() {
+        //no filter needed since we count every event; synchronous so that size is correct after each operation
+        return new MutableCacheEntryListenerConfiguration<K, V>(new SingletonFactory<CacheEntryListener<K, V>>(this),
+                null, false, true);
     }
 
 }
@@ -0,0 +1,92 @@
+package de.invesdwin.context.jcache.refresh;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Named;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.collections.fast.concurrent.ASynchronizedFastIterableDelegateSet;
+import de.invesdwin.util.time.duration.Duration;
+
+@ThreadSafe
+@Named
+public final class CacheRefreshHookManager implements ApplicationContextAware, FactoryBean<CacheRefreshHookManager> {
+
+    private static final CacheRefreshHookManager INSTANCE = new CacheRefreshHookManager();
+    /**
+     * Copy on write so that calling the hooks does not require a lock.
+     */
+    private static final ASynchronizedFastIterableDelegateSet<ICacheRefreshHook> REGISTERED_HOOKS = new ASynchronizedFastIterableDelegateSet<ICacheRefreshHook>() {
+        @Override
+        protected Set<ICacheRefreshHook> newDelegate() {
+            return new LinkedHashSet<ICacheRefreshHook>();
+        }
+    };
+
+    private CacheRefreshHookManager() {}
+
+    public static void register(final ICacheRefreshHook hook) {
+        Assertions.assertThat(REGISTERED_HOOKS.add(hook)).as("Hook [%s] has already been registered!", hook).isTrue();
+    }
+
+    public static void unregister(final ICacheRefreshHook hook) {
+        Assertions.assertThat(REGISTERED_HOOKS.remove(hook))
+                .as("Hook [%s] has not been registered yet!", hook)
+                .isTrue();
+    }
+
+    public static void refreshSucceeded(final String cacheName, final Object key, final Duration latency,
+            final int previousFailures) {
+        for (final ICacheRefreshHook hook : REGISTERED_HOOKS) {
+            try {
+                hook.onRefreshSucceeded(cacheName, key, latency, previousFailures);
+            } catch (final Throwable t) {
+                //a failing hook should not abort the refresh
+                Err.process(t);
+            }
+        }
+    }
+
+    public static void refreshFailed(final String cacheName, final Object key, final Duration latency,
+            final int failures, final Throwable cause) {
+        for (final ICacheRefreshHook hook : REGISTERED_HOOKS) {
+            try {
+                hook.onRefreshFailed(cacheName, key, latency, failures, cause);
+            } catch (final Throwable t) {
+                Err.process(t);
+            }
+        }
+    }
+
+    @Override
+    public void setApplicationContext(final ApplicationContext applicationContext) {
+        synchronized (INSTANCE) {
+            for (final ICacheRefreshHook hook : applicationContext.getBeansOfType(ICacheRefreshHook.class).values()) {
+                register(hook);
+            }
+        }
+    }
+
+    @Override
+    public CacheRefreshHookManager getObject() throws Exception {
+        return INSTANCE;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return INSTANCE.getClass();
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+}
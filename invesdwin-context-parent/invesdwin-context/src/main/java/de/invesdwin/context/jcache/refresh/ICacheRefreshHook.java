@@ -0,0 +1,25 @@
+package de.invesdwin.context.jcache.refresh;
+
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Gets notified about asynchronous refreshes of caches that were created with CacheBuilder.withRefreshAhead(...).
+ * Hooks are called from the refresh threads and should return quickly.
+ */
+public interface ICacheRefreshHook {
+
+    /**
+     * @param previousFailures
+     *            the number of consecutive refresh failures of this key before this refresh succeeded
+     */
+    void onRefreshSucceeded(String cacheName, Object key, Duration latency, int previousFailures);
+
+    /**
+     * The stale value stays in the cache and the refresh is tried again on the next access after refreshAfterWrite.
+     *
+     * @param failures
+     *            the number of consecutive refresh failures of this key including this one
+     */
+    void onRefreshFailed(String cacheName, Object key, Duration latency, int failures, Throwable cause);
+
+}
@@ -0,0 +1,234 @@
+package de.invesdwin.context.jcache.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.management.CacheStatisticsMXBean;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import de.invesdwin.context.jcache.internal.LoadTimeRecordingCacheLoader;
+import de.invesdwin.context.jcache.util.CaffeineCaches;
+
+/**
+ * Combines the standard JCache statistics (that the provider registers in JMX when statistics are enabled) with the
+ * size information of the underlying caffeine cache and the load times that are recorded by the CacheBuilder.
+ */
+@ThreadSafe
+public class CacheStatistics implements ICacheStatisticsMXBean {
+
+    private final Cache<?, ?> cache;
+    private final LoadTimeRecordingCacheLoader<?, ?> loader;
+    private volatile CacheStatisticsMXBean jcacheStatistics;
+    private volatile boolean jcacheStatisticsLookedUp;
+
+    public CacheStatistics(final Cache<?, ?> cache, final LoadTimeRecordingCacheLoader<?, ?> loader) {
+        this.cache = cache;
+        this.loader = loader;
+    }
+
+    public Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    public boolean isClosed() {
+        return cache.isClosed();
+    }
+
+    /**
+     * The MBean server is only queried once, and only when statistics are enabled. They might get enabled later via
+     * CacheManager.enableStatistics(...), which is a cheap check on the configuration.
+     */
+    private CacheStatisticsMXBean getJCacheStatistics() {
+        if (!isJCacheStatisticsEnabled()) {
+            return null;
+        }
+        if (!jcacheStatisticsLookedUp) {
+            jcacheStatistics = lookupJCacheStatistics();
+            jcacheStatisticsLookedUp = true;
+        }
+        return jcacheStatistics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isJCacheStatisticsEnabled() {
+        return cache.getConfiguration(CompleteConfiguration.class).isStatisticsEnabled();
+    }
+
+    private CacheStatisticsMXBean lookupJCacheStatistics() {
+        try {
+            final ObjectName pattern = new ObjectName("javax.cache:type=CacheStatistics,CacheManager="
+                    + sanitize(cache.getCacheManager().getURI().toString()) + ",Cache=" + sanitize(cache.getName())
+                    + ",*");
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final Set<ObjectName> names = server.queryNames(pattern, null);
+            if (names.isEmpty()) {
+                //statistics not enabled
+                return null;
+            }
+            return JMX.newMXBeanProxy(server, names.iterator().next(), CacheStatisticsMXBean.class);
+        } catch (final MalformedObjectNameException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same as in the JCache reference implementation.
+     */
+    private static String sanitize(final String string) {
+        return string.replaceAll(",|:|=|\n", ".");
+    }
+
+    @Override
+    public long getSize() {
+        final Long estimatedSize = CaffeineCaches.getEstimatedSize(cache);
+        if (estimatedSize == null) {
+            return -1;
+        } else {
+            return estimatedSize;
+        }
+    }
+
+    @Override
+    public long getWeightedSize() {
+        final Long weightedSize = CaffeineCaches.getWeightedSize(cache);
+        if (weightedSize == null) {
+            return -1;
+        } else {
+            return weightedSize;
+        }
+    }
+
+    @Override
+    public long getGets() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCacheGets();
+    }
+
+    @Override
+    public long getHits() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCacheHits();
+    }
+
+    @Override
+    public long getMisses() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCacheMisses();
+    }
+
+    @Override
+    public float getHitPercentage() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCacheHitPercentage();
+    }
+
+    @Override
+    public long getPuts() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCachePuts();
+    }
+
+    @Override
+    public long getRemovals() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCacheRemovals();
+    }
+
+    @Override
+    public long getEvictions() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getCacheEvictions();
+    }
+
+    @Override
+    public float getAverageGetTimeMicros() {
+        final CacheStatisticsMXBean statistics = getJCacheStatistics();
+        if (statistics == null) {
+            return 0;
+        }
+        return statistics.getAverageGetTime();
+    }
+
+    @Override
+    public long getLoads() {
+        if (loader == null) {
+            return 0;
+        }
+        return loader.getLoads();
+    }
+
+    @Override
+    public long getLoadFailures() {
+        if (loader == null) {
+            return 0;
+        }
+        return loader.getLoadFailures();
+    }
+
+    @Override
+    public float getAverageLoadTimeMicros() {
+        if (loader == null) {
+            return 0;
+        }
+        return loader.getAverageLoadTimeMicros();
+    }
+
+    /**
+     * A compact one line summary for logging.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(getName());
+        sb.append(": size=").append(getSize());
+        final long weightedSize = getWeightedSize();
+        if (weightedSize >= 0) {
+            sb.append(" weight=").append(weightedSize);
+        }
+        if (getJCacheStatistics() != null) {
+            sb.append(" gets=").append(getGets());
+            sb.append(" hits=").append(Math.round(getHitPercentage())).append("%");
+            sb.append(" puts=").append(getPuts());
+            sb.append(" evictions=").append(getEvictions());
+            sb.append(" avgGet=").append(Math.round(getAverageGetTimeMicros())).append("µs");
+        }
+        if (loader != null) {
+            sb.append(" loads=").append(getLoads());
+            sb.append(" loadFailures=").append(getLoadFailures());
+            sb.append(" avgLoad=").append(Math.round(getAverageLoadTimeMicros())).append("µs");
+        }
+        return sb.toString();
+    }
+
+}
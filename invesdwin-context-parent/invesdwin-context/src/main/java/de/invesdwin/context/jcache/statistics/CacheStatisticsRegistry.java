@@ -0,0 +1,177 @@
+package de.invesdwin.context.jcache.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.invesdwin.context.log.Log;
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Tracks all caches that get created via the CacheBuilder. The statistics are exposed via JMX as
+ * "de.invesdwin.context.jcache:type=CacheStatistics,name=[cacheName]" and a compact summary can be logged periodically
+ * for caches that were used since the last summary (opt-in via the LOG_INTERVAL property). Caches are unregistered
+ * when they get closed or destroyed.
+ */
+@ThreadSafe
+public final class CacheStatisticsRegistry {
+
+    private static final Log LOG = new Log(CacheStatisticsRegistry.class);
+    private static final String JMX_DOMAIN = "de.invesdwin.context.jcache";
+    private static final Map<String, CacheStatistics> NAME_STATISTICS = new ConcurrentHashMap<String, CacheStatistics>();
+    @GuardedBy("CacheStatisticsRegistry.class")
+    private static ScheduledExecutorService logExecutor;
+    private static final Map<String, Long> NAME_LAST_LOGGED_ACTIVITY = new ConcurrentHashMap<String, Long>();
+
+    private CacheStatisticsRegistry() {}
+
+    public static void register(final CacheStatistics statistics) {
+        final CacheStatistics existing = NAME_STATISTICS.put(statistics.getName(), statistics);
+        if (existing != null) {
+            unregisterMBean(existing.getName());
+        }
+        registerMBean(statistics);
+    }
+
+    public static void unregister(final String name) {
+        if (NAME_STATISTICS.remove(name) != null) {
+            NAME_LAST_LOGGED_ACTIVITY.remove(name);
+            unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Only unregisters the given instance, a cache with the same name might have been created again in the meantime.
+     */
+    public static void unregister(final CacheStatistics statistics) {
+        if (NAME_STATISTICS.remove(statistics.getName(), statistics)) {
+            NAME_LAST_LOGGED_ACTIVITY.remove(statistics.getName());
+            unregisterMBean(statistics.getName());
+        }
+    }
+
+    public static CacheStatistics get(final String name) {
+        final CacheStatistics statistics = NAME_STATISTICS.get(name);
+        if (statistics != null && statistics.isClosed()) {
+            unregister(name);
+            return null;
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the statistics of all caches that are not closed yet.
+     */
+    public static Collection<CacheStatistics> getAll() {
+        final List<CacheStatistics> all = new ArrayList<CacheStatistics>(NAME_STATISTICS.size());
+        final Iterator<CacheStatistics> iterator = NAME_STATISTICS.values().iterator();
+        while (iterator.hasNext()) {
+            final CacheStatistics statistics = iterator.next();
+            if (statistics.isClosed()) {
+                iterator.remove();
+                NAME_LAST_LOGGED_ACTIVITY.remove(statistics.getName());
+                unregisterMBean(statistics.getName());
+            } else {
+                all.add(statistics);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns a multi line summary of all caches that had some activity since the last summary.
+     */
+    public static String getActivitySummary() {
+        final StringBuilder sb = new StringBuilder();
+        for (final CacheStatistics statistics : getAll()) {
+            final long activity = statistics.getGets() + statistics.getPuts() + statistics.getLoads();
+            final Long lastActivity = NAME_LAST_LOGGED_ACTIVITY.put(statistics.getName(), activity);
+            if (lastActivity == null || lastActivity != activity) {
+                sb.append("\n").append(statistics);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void logSummary() {
+        try {
+            final String summary = getActivitySummary();
+            if (summary.length() > 0) {
+                LOG.info("%s:%s", CacheStatistics.class.getSimpleName(), summary);
+            }
+        } catch (final Throwable t) {
+            Err.process(t);
+        }
+    }
+
+    /**
+     * Starts logging the activity summary in the given interval, replacing a previously started interval.
+     */
+    public static synchronized void startLogging(final Duration interval) {
+        stopLogging();
+        final long intervalMillis = interval.longValue(FTimeUnit.MILLISECONDS);
+        if (intervalMillis <= 0) {
+            return;
+        }
+        logExecutor = Executors.newScheduledThreadPool(CacheStatisticsRegistry.class.getSimpleName());
+        logExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                logSummary();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopLogging() {
+        if (logExecutor != null) {
+            logExecutor.shutdownNow();
+            logExecutor = null;
+        }
+    }
+
+    private static ObjectName newObjectName(final String name) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=" + CacheStatistics.class.getSimpleName() + ",name="
+                + ObjectName.quote(name));
+    }
+
+    private static void registerMBean(final CacheStatistics statistics) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = newObjectName(statistics.getName());
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(statistics, objectName);
+        } catch (final JMException e) {
+            Err.process(e);
+        }
+    }
+
+    private static void unregisterMBean(final String name) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = newObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (final JMException e) {
+            Err.process(e);
+        }
+    }
+
+}
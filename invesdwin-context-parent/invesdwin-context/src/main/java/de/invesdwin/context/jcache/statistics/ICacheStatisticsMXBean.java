@@ -0,0 +1,43 @@
+package de.invesdwin.context.jcache.statistics;
+
+import javax.management.MXBean;
+
+/**
+ * Hit/miss/eviction counters are only available when statistics are enabled in the CacheBuilder, otherwise they are
+ * 0. Load counters are only available for caches that have readThrough enabled.
+ */
+@MXBean
+public interface ICacheStatisticsMXBean {
+
+    String getName();
+
+    long getSize();
+
+    /**
+     * -1 if the cache is not bounded by weight.
+     */
+    long getWeightedSize();
+
+    long getGets();
+
+    long getHits();
+
+    long getMisses();
+
+    float getHitPercentage();
+
+    long getPuts();
+
+    long getRemovals();
+
+    long getEvictions();
+
+    float getAverageGetTimeMicros();
+
+    long getLoads();
+
+    long getLoadFailures();
+
+    float getAverageLoadTimeMicros();
+
+}
@@ -0,0 +1,27 @@
+package de.invesdwin.context.jcache.statistics.internal;
+
+import javax.annotation.concurrent.Immutable;
+import javax.inject.Named;
+
+import de.invesdwin.context.beans.hook.IStartupHook;
+import de.invesdwin.context.jcache.statistics.CacheStatisticsRegistry;
+import de.invesdwin.context.system.properties.SystemProperties;
+
+/**
+ * The interval is read after the application started since the default cache is already created during the static
+ * initialization of the ContextProperties.
+ */
+@Named
+@Immutable
+public class CacheStatisticsLoggingStartupHook implements IStartupHook {
+
+    @Override
+    public void startup() throws Exception {
+        final SystemProperties systemProperties = new SystemProperties(CacheStatisticsRegistry.class);
+        final String key = "LOG_INTERVAL";
+        if (systemProperties.containsValue(key)) {
+            CacheStatisticsRegistry.startLogging(systemProperties.getDuration(key));
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package de.invesdwin.context.jcache.statistics.internal;
+
+import java.io.Closeable;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.FactoryBuilder.SingletonFactory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryListener;
+
+import de.invesdwin.context.jcache.statistics.CacheStatistics;
+import de.invesdwin.context.jcache.statistics.CacheStatisticsRegistry;
+
+/**
+ * JCache has no close callback, but it closes the registered listeners when the cache gets closed or destroyed. This
+ * listener does not implement any of the event interfaces, thus it never receives an event and only unregisters the
+ * statistics of the cache so that the registry does not keep closed caches alive.
+ */
+@ThreadSafe
+public class CacheStatisticsUnregisteringListener<K, V> implements CacheEntryListener<K, V>, Closeable {
+
+    private volatile CacheStatistics statistics;
+
+    /**
+     * Needs to be called after the cache was created.
+     */
+    public void setStatistics(final CacheStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void close() {
+        final CacheStatistics statisticsCopy = statistics;
+        if (statisticsCopy != null) {
+            statistics = null;
+            CacheStatisticsRegistry.unregister(statisticsCopy);
+        }
+    }
+
+    public CacheEntryListenerConfiguration<K, V> newConfiguration() {
+        return new MutableCacheEntryListenerConfiguration<K, V>(new SingletonFactory<CacheEntryListener<K, V>>(this),
+                null, false, false);
+    }
+
+}
@@ -0,0 +1,62 @@
+package de.invesdwin.context.jcache.util;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import javax.annotation.concurrent.Immutable;
+import javax.cache.Cache;
+
+import com.github.benmanes.caffeine.cache.Policy.Eviction;
+
+/**
+ * Provides access to information of the underlying caffeine cache that is not available via the JCache API.
+ */
+@Immutable
+public final class CaffeineCaches {
+
+    private CaffeineCaches() {}
+
+    /**
+     * The caffeine cache wraps values internally, thus the generics are unknown here. Returns null if the provider is
+     * not caffeine.
+     */
+    public static com.github.benmanes.caffeine.cache.Cache<?, ?> unwrap(final Cache<?, ?> cache) {
+        try {
+            return cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns null if the provider is not caffeine.
+     */
+    public static Long getEstimatedSize(final Cache<?, ?> cache) {
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = unwrap(cache);
+        if (caffeine == null) {
+            return null;
+        }
+        return caffeine.estimatedSize();
+    }
+
+    /**
+     * Returns the current total weight of all entries, null if the cache is not bounded by weight.
+     */
+    public static Long getWeightedSize(final Cache<?, ?> cache) {
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = unwrap(cache);
+        if (caffeine == null) {
+            return null;
+        }
+        final Optional<? extends Eviction<?, ?>> eviction = caffeine.policy().eviction();
+        if (!eviction.isPresent()) {
+            return null;
+        }
+        final OptionalLong weightedSize = eviction.get().weightedSize();
+        if (weightedSize.isPresent()) {
+            return weightedSize.getAsLong();
+        } else {
+            return null;
+        }
+    }
+
+}
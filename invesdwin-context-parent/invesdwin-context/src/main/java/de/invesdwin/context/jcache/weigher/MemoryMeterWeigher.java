@@ -0,0 +1,48 @@
+package de.invesdwin.context.jcache.weigher;
+
+import java.lang.instrument.Instrumentation;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.github.jamm.MemoryMeter;
+import org.github.jamm.MemoryMeter.Guess;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import de.invesdwin.instrument.DynamicInstrumentationReflections;
+
+/**
+ * Default weigher that estimates the retained heap size of key and value in bytes. This traverses the object graph on
+ * each write, thus use a cheaper custom weigher when the size can be derived from the value directly (e.g. array
+ * lengths).
+ */
+@Immutable
+public final class MemoryMeterWeigher implements Weigher<Object, Object> {
+
+    public static final MemoryMeterWeigher INSTANCE = new MemoryMeterWeigher();
+
+    private static final MemoryMeter METER;
+
+    static {
+        if (!MemoryMeter.hasInstrumentation()) {
+            final Instrumentation instrumentation = DynamicInstrumentationReflections.getInstrumentation();
+            if (instrumentation != null) {
+                MemoryMeter.premain(null, instrumentation);
+            }
+        }
+        METER = new MemoryMeter().withGuessing(Guess.FALLBACK_UNSAFE).ignoreKnownSingletons();
+    }
+
+    private MemoryMeterWeigher() {}
+
+    @Override
+    public int weigh(final Object key, final Object value) {
+        final long weight = METER.measureDeep(key) + METER.measureDeep(value);
+        if (weight >= Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else {
+            return (int) weight;
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package de.invesdwin.context.log;
 
+import java.util.function.Supplier;
+
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Marker;
@@ -20,6 +22,9 @@ import de.invesdwin.util.assertions.Assertions;
  * This class directly contains factory methods in its constructor so that there is no need to import two classes
  * everywhere.
  * 
+ * The level is checked before the message gets formatted, thus disabled log statements with up to two arguments do not
+ * allocate anything. For more expensive messages the Supplier overloads can be used.
+ * 
  * @author subes
  * 
  */
@@ -50,152 +55,272 @@ public final class Log extends org.slf4j.ext.XLogger {
 
     @Override
     public void trace(final String format, final Object... args) {
-        super.trace(format(format, args), args);
+        if (isTraceEnabled()) {
+            super.trace(format(format, args), args);
+        }
     }
 
     @Override
     public void trace(final Marker marker, final String format, final Object... args) {
-        super.trace(marker, format(format, args), args);
+        if (isTraceEnabled(marker)) {
+            super.trace(marker, format(format, args), args);
+        }
     }
 
     @Override
     public void debug(final String format, final Object... args) {
-        super.debug(format(format, args), args);
+        if (isDebugEnabled()) {
+            super.debug(format(format, args), args);
+        }
     }
 
     @Override
     public void debug(final Marker marker, final String format, final Object... args) {
-        super.debug(marker, format(format, args), args);
+        if (isDebugEnabled(marker)) {
+            super.debug(marker, format(format, args), args);
+        }
     }
 
     @Override
     public void info(final String format, final Object... args) {
-        super.info(format(format, args), args);
+        if (isInfoEnabled()) {
+            super.info(format(format, args), args);
+        }
     }
 
     @Override
     public void info(final Marker marker, final String format, final Object... args) {
-        super.info(marker, format(format, args), args);
+        if (isInfoEnabled(marker)) {
+            super.info(marker, format(format, args), args);
+        }
     }
 
     @Override
     public void warn(final String format, final Object... args) {
-        super.warn(format(format, args), args);
+        if (isWarnEnabled()) {
+            super.warn(format(format, args), args);
+        }
     }
 
     @Override
     public void warn(final Marker marker, final String format, final Object... args) {
-        super.warn(marker, format(format, args), args);
+        if (isWarnEnabled(marker)) {
+            super.warn(marker, format(format, args), args);
+        }
     }
 
     @Override
     public void error(final String format, final Object... args) {
-        super.error(format(format, args), args);
+        if (isErrorEnabled()) {
+            super.error(format(format, args), args);
+        }
     }
 
     @Override
     public void error(final Marker marker, final String format, final Object... args) {
-        super.error(marker, format(format, args), args);
+        if (isErrorEnabled(marker)) {
+            super.error(marker, format(format, args), args);
+        }
     }
 
     @Override
     public void debug(final Marker marker, final String format, final Object arg) {
-        super.debug(marker, format(format, arg), arg);
+        if (isDebugEnabled(marker)) {
+            super.debug(marker, format(format, arg), arg);
+        }
     }
 
     @Override
     public void debug(final Marker marker, final String format, final Object arg1, final Object arg2) {
-        super.debug(marker, format(format, arg1, arg2), arg1, arg2);
+        if (isDebugEnabled(marker)) {
+            super.debug(marker, format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void debug(final String format, final Object arg) {
-        super.debug(format(format, arg), arg);
+        if (isDebugEnabled()) {
+            super.debug(format(format, arg), arg);
+        }
     }
 
     @Override
     public void debug(final String format, final Object arg1, final Object arg2) {
-        super.debug(format(format, arg1, arg2), arg1, arg2);
+        if (isDebugEnabled()) {
+            super.debug(format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void error(final Marker marker, final String format, final Object arg) {
-        super.error(marker, format(format, arg), arg);
+        if (isErrorEnabled(marker)) {
+            super.error(marker, format(format, arg), arg);
+        }
     }
 
     @Override
     public void error(final Marker marker, final String format, final Object arg1, final Object arg2) {
-        super.error(marker, format(format, arg1, arg2), arg1, arg2);
+        if (isErrorEnabled(marker)) {
+            super.error(marker, format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void error(final String format, final Object arg) {
-        super.error(format(format, arg), arg);
+        if (isErrorEnabled()) {
+            super.error(format(format, arg), arg);
+        }
     }
 
     @Override
     public void error(final String format, final Object arg1, final Object arg2) {
-        super.error(format(format, arg1, arg2), arg1, arg2);
+        if (isErrorEnabled()) {
+            super.error(format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void info(final Marker marker, final String format, final Object arg) {
-        super.info(marker, format(format, arg), arg);
+        if (isInfoEnabled(marker)) {
+            super.info(marker, format(format, arg), arg);
+        }
     }
 
     @Override
     public void info(final Marker marker, final String format, final Object arg1, final Object arg2) {
-        super.info(marker, format(format, arg1, arg2), arg1, arg2);
+        if (isInfoEnabled(marker)) {
+            super.info(marker, format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void info(final String format, final Object arg) {
-        super.info(format(format, arg), arg);
+        if (isInfoEnabled()) {
+            super.info(format(format, arg), arg);
+        }
     }
 
     @Override
     public void info(final String format, final Object arg1, final Object arg2) {
-        super.info(format(format, arg1, arg2), arg1, arg2);
+        if (isInfoEnabled()) {
+            super.info(format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void trace(final Marker marker, final String format, final Object arg) {
-        super.trace(marker, format(format, arg), arg);
+        if (isTraceEnabled(marker)) {
+            super.trace(marker, format(format, arg), arg);
+        }
     }
 
     @Override
     public void trace(final Marker marker, final String format, final Object arg1, final Object arg2) {
-        super.trace(marker, format(format, arg1, arg2), arg1, arg2);
+        if (isTraceEnabled(marker)) {
+            super.trace(marker, format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void trace(final String format, final Object arg) {
-        super.trace(format(format, arg), arg);
+        if (isTraceEnabled()) {
+            super.trace(format(format, arg), arg);
+        }
     }
 
     @Override
     public void trace(final String format, final Object arg1, final Object arg2) {
-        super.trace(format(format, arg1, arg2), arg1, arg2);
+        if (isTraceEnabled()) {
+            super.trace(format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void warn(final Marker marker, final String format, final Object arg) {
-        super.warn(marker, format(format, arg), arg);
+        if (isWarnEnabled(marker)) {
+            super.warn(marker, format(format, arg), arg);
+        }
     }
 
     @Override
     public void warn(final Marker marker, final String format, final Object arg1, final Object arg2) {
-        super.warn(marker, format(format, arg1, arg2), arg1, arg2);
+        if (isWarnEnabled(marker)) {
+            super.warn(marker, format(format, arg1, arg2), arg1, arg2);
+        }
     }
 
     @Override
     public void warn(final String format, final Object arg) {
-        super.warn(format(format, arg), arg);
+        if (isWarnEnabled()) {
+            super.warn(format(format, arg), arg);
+        }
     }
 
     @Override
     public void warn(final String format, final Object arg1, final Object arg2) {
-        super.warn(format(format, arg1, arg2), arg1, arg2);
+        if (isWarnEnabled()) {
+            super.warn(format(format, arg1, arg2), arg1, arg2);
+        }
+    }
+
+    public void trace(final Supplier<String> message) {
+        if (isTraceEnabled()) {
+            super.trace(message.get());
+        }
+    }
+
+    public void trace(final Supplier<String> message, final Throwable t) {
+        if (isTraceEnabled()) {
+            super.trace(message.get(), t);
+        }
+    }
+
+    public void debug(final Supplier<String> message) {
+        if (isDebugEnabled()) {
+            super.debug(message.get());
+        }
+    }
+
+    public void debug(final Supplier<String> message, final Throwable t) {
+        if (isDebugEnabled()) {
+            super.debug(message.get(), t);
+        }
+    }
+
+    public void info(final Supplier<String> message) {
+        if (isInfoEnabled()) {
+            super.info(message.get());
+        }
+    }
+
+    public void info(final Supplier<String> message, final Throwable t) {
+        if (isInfoEnabled()) {
+            super.info(message.get(), t);
+        }
+    }
+
+    public void warn(final Supplier<String> message) {
+        if (isWarnEnabled()) {
+            super.warn(message.get());
+        }
+    }
+
+    public void warn(final Supplier<String> message, final Throwable t) {
+        if (isWarnEnabled()) {
+            super.warn(message.get(), t);
+        }
+    }
+
+    public void error(final Supplier<String> message) {
+        if (isErrorEnabled()) {
+            super.error(message.get());
+        }
+    }
+
+    public void error(final Supplier<String> message, final Throwable t) {
+        if (isErrorEnabled()) {
+            super.error(message.get(), t);
+        }
     }
 
     private static String format(final String messagePattern, final Object arg) {
@@ -1,18 +1,24 @@
 package de.invesdwin.context.log.error;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import de.invesdwin.context.PlatformInitializerProperties;
 import de.invesdwin.context.log.Log;
 import de.invesdwin.context.log.error.hook.ErrHookManager;
+import de.invesdwin.util.concurrent.Executors;
 import de.invesdwin.util.error.Throwables;
 import de.invesdwin.util.lang.Strings;
-import de.invesdwin.util.time.Instant;
+import de.invesdwin.util.time.date.FTimeUnit;
 import de.invesdwin.util.time.duration.Duration;
 
 /**
@@ -29,10 +35,12 @@ public final class Err {
 
     private static final Log LOG = new Log("de.invesdwin.ERROR");
     private static final Log LOG_DETAIL = new Log("de.invesdwin.ERROR_DETAIL");
-    @GuardedBy("this.class")
-    private static final List<IntervalException> INTERVAL_EXCEPTIONS = new ArrayList<>();
+    private static final ConcurrentMap<IntervalKey, IntervalException> INTERVAL_EXCEPTIONS = new ConcurrentHashMap<>();
+    private static final AtomicBoolean INTERVAL_SWEEPER_STARTED = new AtomicBoolean();
+    private static final AtomicBoolean INTERVAL_SWEEPING = new AtomicBoolean();
 
     private static final int MAX_INTERVAL_EXCEPTIONS = 1000;
+    private static final long SWEEP_INTERVAL_MILLIS = 1000L;
 
     static {
         final UncaughtExceptionHandler handler = new ErrUncaughtExceptionHandler();
@@ -53,22 +61,26 @@ public final class Err {
     }
 
     static LoggedRuntimeException process(final Throwable e, final boolean uncaughtException) {
-        try {
-            if (e == null) {
-                return null;
-            }
-            if (e instanceof LoggedRuntimeException) {
-                return (LoggedRuntimeException) e;
-            }
+        if (e == null) {
+            return null;
+        }
+        if (e instanceof LoggedRuntimeException) {
+            return (LoggedRuntimeException) e;
+        }
+        return log(LoggedRuntimeException.newInstance(e), uncaughtException);
+    }
 
-            final LoggedRuntimeException le = LoggedRuntimeException.newInstance(e);
-            LOG.error(ThrowableConverter.loggedRuntimeExceptionToString(le, false));
-            LOG_DETAIL.error(ThrowableConverter.loggedRuntimeExceptionToString(le, true));
+    private static LoggedRuntimeException log(final LoggedRuntimeException le, final boolean uncaughtException) {
+        try {
+            //only render the stacktraces when the loggers are enabled
+            LOG.error(() -> ThrowableConverter.loggedRuntimeExceptionToString(le, false));
+            LOG_DETAIL.error(() -> ThrowableConverter.loggedRuntimeExceptionToString(le, true));
             ErrHookManager.loggedException(le, uncaughtException);
 
             return le;
         } catch (final Throwable errorDuringLogging) {
             //Errors during logging should not be eaten! Thus we log it separately.
+            final Throwable e = le.getCause();
             LOG.catching(errorDuringLogging);
             LOG_DETAIL.catching(errorDuringLogging);
             LOG.catching(e);
@@ -137,48 +149,185 @@ public final class Err {
 
     /**
      * Only logs the exception in the given interval if it has the same meaning, otherwise returns the previous logged
-     * exception and ignores the new one.
+     * exception and ignores the new one. The number of ignored occurrences gets logged when the interval has ended,
+     * either by the next occurrence or by a background sweep at most a second later.
+     * 
+     * Exceptions are looked up by their class and message (see isSameMeaning) in a concurrent map, thus an error storm
+     * does not serialize the failing threads.
      */
-    public static synchronized LoggedRuntimeException processInterval(final Exception exception,
-            final Duration interval) {
-        for (int i = 0; i < INTERVAL_EXCEPTIONS.size(); i++) {
-            final IntervalException candidate = INTERVAL_EXCEPTIONS.get(i);
-            if (candidate.isTimeout()) {
-                INTERVAL_EXCEPTIONS.remove(i);
-                i--;
+    public static LoggedRuntimeException processInterval(final Exception exception, final Duration interval) {
+        final Throwable unwrapped = Throwables.ignoreType(exception, LoggedRuntimeException.class);
+        if (unwrapped == null) {
+            return process(exception);
+        }
+        final IntervalKey key = new IntervalKey(unwrapped);
+        while (true) {
+            final long nowNanos = System.nanoTime();
+            final IntervalException existing = INTERVAL_EXCEPTIONS.get(key);
+            if (existing != null && !existing.isTimeout(nowNanos)) {
+                if (existing.suppressed()) {
+                    return existing.getException();
+                }
+                //the entry was concurrently replaced or removed and its count was logged, thus retry
+                continue;
+            }
+            final boolean alreadyLogged = exception instanceof LoggedRuntimeException;
+            final LoggedRuntimeException le;
+            if (alreadyLogged) {
+                le = (LoggedRuntimeException) exception;
+            } else {
+                le = LoggedRuntimeException.newInstance(exception);
+            }
+            final IntervalException candidate = new IntervalException(le, interval, nowNanos);
+            final boolean claimed;
+            if (existing == null) {
+                claimed = INTERVAL_EXCEPTIONS.putIfAbsent(key, candidate) == null;
             } else {
-                if (isSameMeaning(candidate.getException(), exception)) {
-                    return candidate.getException();
+                claimed = INTERVAL_EXCEPTIONS.replace(key, existing, candidate);
+            }
+            if (claimed) {
+                if (existing != null) {
+                    existing.logSuppressed();
+                }
+                if (INTERVAL_EXCEPTIONS.size() > MAX_INTERVAL_EXCEPTIONS) {
+                    sweepIntervalExceptions(nowNanos);
+                }
+                maybeStartIntervalSweeper();
+                if (alreadyLogged) {
+                    return le;
+                } else {
+                    return log(le, false);
+                }
+            }
+            //another thread was faster, thus retry with its entry
+        }
+    }
+
+    /**
+     * Without a later occurrence the suppressed count of the last interval of an error storm would never be logged,
+     * thus expired entries are swept in the background once the first interval exception was logged.
+     */
+    private static void maybeStartIntervalSweeper() {
+        if (INTERVAL_SWEEPER_STARTED.get() || !INTERVAL_SWEEPER_STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        final ScheduledExecutorService executor = Executors
+                .newScheduledThreadPool(Err.class.getSimpleName() + "_interval");
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweepIntervalExceptions(System.nanoTime());
+                } catch (final Throwable t) {
+                    process(t);
+                }
+            }
+        }, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Removes expired entries (logging their suppressed counts) and forgets entries beyond the maximum size. Only one
+     * thread sweeps at a time, the others just continue.
+     */
+    private static void sweepIntervalExceptions(final long nowNanos) {
+        if (!INTERVAL_SWEEPING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (final Map.Entry<IntervalKey, IntervalException> e : INTERVAL_EXCEPTIONS.entrySet()) {
+                final IntervalException value = e.getValue();
+                if (value.isTimeout(nowNanos) && INTERVAL_EXCEPTIONS.remove(e.getKey(), value)) {
+                    value.logSuppressed();
                 }
             }
+            //still too many distinct exceptions within their interval, thus forget some of them
+            final Iterator<Map.Entry<IntervalKey, IntervalException>> it = INTERVAL_EXCEPTIONS.entrySet().iterator();
+            while (INTERVAL_EXCEPTIONS.size() > MAX_INTERVAL_EXCEPTIONS && it.hasNext()) {
+                final Map.Entry<IntervalKey, IntervalException> e = it.next();
+                if (INTERVAL_EXCEPTIONS.remove(e.getKey(), e.getValue())) {
+                    e.getValue().logSuppressed();
+                }
+            }
+        } finally {
+            INTERVAL_SWEEPING.set(false);
         }
-        final LoggedRuntimeException logged = process(exception);
-        INTERVAL_EXCEPTIONS.add(new IntervalException(logged, interval));
-        while (INTERVAL_EXCEPTIONS.size() > MAX_INTERVAL_EXCEPTIONS) {
-            INTERVAL_EXCEPTIONS.remove(0);
+    }
+
+    /**
+     * The fingerprint of an exception by its class and message, see isSameMeaning().
+     */
+    private static final class IntervalKey {
+        private final Class<?> type;
+        private final String message;
+        private final int hashCode;
+
+        private IntervalKey(final Throwable unwrapped) {
+            this.type = unwrapped.getClass();
+            this.message = unwrapped.getMessage();
+            this.hashCode = 31 * type.hashCode() + (message == null ? 0 : message.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof IntervalKey)) {
+                return false;
+            }
+            final IntervalKey other = (IntervalKey) obj;
+            return type == other.type && Strings.equals(message, other.message);
         }
-        return logged;
     }
 
     private static final class IntervalException {
         private final LoggedRuntimeException exception;
         private final Duration interval;
-        private final Instant instant;
+        private final long timeoutNanos;
+        /**
+         * Logging the count closes the entry by setting the sign bit, increments afterwards keep it negative. Thus a
+         * racing increment is either included in the logged count or is told to retry with the current entry.
+         */
+        private final AtomicLong suppressed = new AtomicLong();
 
-        private IntervalException(final LoggedRuntimeException exception, final Duration interval) {
+        private IntervalException(final LoggedRuntimeException exception, final Duration interval,
+                final long startNanos) {
             this.exception = exception;
             this.interval = interval;
-            this.instant = new Instant();
+            this.timeoutNanos = startNanos + interval.longValue(FTimeUnit.NANOSECONDS);
         }
 
-        public boolean isTimeout() {
-            return instant.isGreaterThan(interval);
+        public boolean isTimeout(final long nowNanos) {
+            return nowNanos - timeoutNanos > 0;
         }
 
         public LoggedRuntimeException getException() {
             return exception;
         }
 
+        /**
+         * Returns false if the entry was already closed.
+         */
+        public boolean suppressed() {
+            return suppressed.getAndIncrement() >= 0;
+        }
+
+        /**
+         * Only the first call logs the count.
+         */
+        public void logSuppressed() {
+            final long count = suppressed.getAndSet(Long.MIN_VALUE);
+            if (count > 0) {
+                LOG.warn("%s was suppressed %s times during the interval of %s", exception.getIdString(), count,
+                        interval);
+            }
+        }
+
     }
 
 }
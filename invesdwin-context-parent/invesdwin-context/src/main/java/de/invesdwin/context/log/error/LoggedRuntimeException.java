@@ -1,6 +1,5 @@
 package de.invesdwin.context.log.error;
 
-import java.text.DecimalFormat;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.concurrent.ThreadSafe;
@@ -12,13 +11,27 @@ public final class LoggedRuntimeException extends RuntimeException {
 
     private static final AtomicInteger ID = new AtomicInteger();
 
+    private static final int ID_DIGITS = 8;
+
     private final int id;
+    /**
+     * Created lazily because the message is only needed when the exception gets printed.
+     */
+    private volatile String message;
 
     private LoggedRuntimeException(final int id, final Throwable t) {
-        super(createLoggedMessage(id, t), t);
+        super(null, t);
         this.id = id;
     }
 
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = createLoggedMessage(id, getCause());
+        }
+        return message;
+    }
+
     public int getId() {
         return id;
     }
@@ -59,9 +72,19 @@ public final class LoggedRuntimeException extends RuntimeException {
         return s;
     }
 
+    /**
+     * Same as DecimalFormat("00000000") without creating a new formatter for each call.
+     */
     private static StringBuilder idToString(final int id) {
         final StringBuilder s = new StringBuilder("#");
-        s.append(new DecimalFormat("00000000").format(id));
+        if (id < 0) {
+            s.append("-");
+        }
+        final String digits = String.valueOf(Math.abs((long) id));
+        for (int i = digits.length(); i < ID_DIGITS; i++) {
+            s.append('0');
+        }
+        s.append(digits);
         return s;
     }
 
@@ -3,6 +3,8 @@ package de.invesdwin.context.log.error;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.concurrent.Immutable;
 
@@ -14,6 +16,12 @@ final class ThrowableConverter {
 
     private static final String STACKTRACE_LINE_MARKED = "\n      * ";
     private static final String STACKTRACE_LINE = "\n        ";
+    private static final int MAX_BASE_PACKAGE_CLASSES = 10000;
+    /**
+     * The classification only depends on the class name, thus it does not need to be checked against all base packages
+     * for every frame again.
+     */
+    private static final Map<String, Boolean> BASE_PACKAGE_CLASSES = new ConcurrentHashMap<String, Boolean>();
 
     private ThrowableConverter() {}
 
@@ -102,12 +110,18 @@ final class ThrowableConverter {
     }
 
     private static boolean isBasePackageTrace(final StackTraceElement e) {
-        String str = e.toString();
-        // workaround for app//de.invesdwin... on newer JDKs
-        if (str.contains("/")) {
-            str = Strings.substringAfterLast(str, "/");
+        final String className = e.getClassName();
+        final Boolean cached = BASE_PACKAGE_CLASSES.get(className);
+        if (cached != null) {
+            return cached;
         }
-        return Strings.startsWithAny(str, ContextProperties.getBasePackagesArray());
+        final boolean basePackage = Strings.startsWithAny(className, ContextProperties.getBasePackagesArray());
+        if (BASE_PACKAGE_CLASSES.size() >= MAX_BASE_PACKAGE_CLASSES) {
+            //keep the memory bounded for generated classes
+            BASE_PACKAGE_CLASSES.clear();
+        }
+        BASE_PACKAGE_CLASSES.put(className, basePackage);
+        return basePackage;
     }
 
 }
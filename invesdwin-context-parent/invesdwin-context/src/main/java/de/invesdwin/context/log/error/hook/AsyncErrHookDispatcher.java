@@ -0,0 +1,114 @@
+package de.invesdwin.context.log.error.hook;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.concurrent.BoundedRingBuffer;
+import de.invesdwin.context.log.Log;
+import de.invesdwin.context.log.error.LoggedRuntimeException;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+/**
+ * Calls the IAsyncErrHook instances from a single thread. The error raising threads only offer to a bounded lock-free
+ * queue and never wait for it.
+ */
+@ThreadSafe
+final class AsyncErrHookDispatcher {
+
+    static final int QUEUE_SIZE = 1024;
+    private static final long SLEEP_NANOS = 100_000_000L;
+    private static final Log LOG = new Log(AsyncErrHookDispatcher.class);
+
+    private final Iterable<IErrHook> hooks;
+    private final LongAdder droppedCount = new LongAdder();
+    @GuardedBy("this")
+    private WrappedExecutorService executor;
+    private volatile BoundedRingBuffer<LoggedException> buffer;
+    private volatile Thread dispatcherThread;
+    private volatile boolean dispatcherSleeping;
+
+    AsyncErrHookDispatcher(final Iterable<IErrHook> hooks) {
+        this.hooks = hooks;
+    }
+
+    public void dispatch(final LoggedRuntimeException e, final boolean uncaughtException) {
+        final BoundedRingBuffer<LoggedException> bufferCopy = getBuffer();
+        if (!bufferCopy.offer(new LoggedException(e, uncaughtException))) {
+            droppedCount.increment();
+            return;
+        }
+        if (dispatcherSleeping) {
+            LockSupport.unpark(dispatcherThread);
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    private BoundedRingBuffer<LoggedException> getBuffer() {
+        if (buffer == null) {
+            synchronized (this) {
+                if (buffer == null) {
+                    final BoundedRingBuffer<LoggedException> newBuffer = new BoundedRingBuffer<LoggedException>(
+                            QUEUE_SIZE);
+                    executor = Executors.newFixedThreadPool(ErrHookManager.class.getSimpleName() + "_async", 1);
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            dispatcherThread = Thread.currentThread();
+                            dispatchLoop(newBuffer);
+                        }
+                    });
+                    buffer = newBuffer;
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private void dispatchLoop(final BoundedRingBuffer<LoggedException> bufferCopy) {
+        while (!Thread.currentThread().isInterrupted()) {
+            final LoggedException element = bufferCopy.poll();
+            if (element == null) {
+                sleep(bufferCopy);
+                continue;
+            }
+            for (final IErrHook hook : hooks) {
+                try {
+                    hook.loggedException(element.exception, element.uncaughtException);
+                } catch (final Throwable t) {
+                    //don't use Err.process here, a failing hook would be called again with its own exception
+                    LOG.catching(t);
+                }
+            }
+        }
+    }
+
+    private void sleep(final BoundedRingBuffer<LoggedException> bufferCopy) {
+        dispatcherSleeping = true;
+        try {
+            //check again to not miss an exception that was offered before the flag was set
+            if (bufferCopy.isEmpty()) {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        } finally {
+            dispatcherSleeping = false;
+        }
+    }
+
+    private static final class LoggedException {
+        private final LoggedRuntimeException exception;
+        private final boolean uncaughtException;
+
+        private LoggedException(final LoggedRuntimeException exception, final boolean uncaughtException) {
+            this.exception = exception;
+            this.uncaughtException = uncaughtException;
+        }
+    }
+
+}
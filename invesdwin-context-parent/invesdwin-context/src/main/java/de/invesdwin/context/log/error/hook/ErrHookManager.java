@@ -1,9 +1,8 @@
 package de.invesdwin.context.log.error.hook;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Named;
 
@@ -13,39 +12,64 @@ import org.springframework.context.ApplicationContextAware;
 
 import de.invesdwin.context.log.error.LoggedRuntimeException;
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.collections.fast.concurrent.ASynchronizedFastIterableDelegateSet;
 
+/**
+ * The hooks are stored copy on write, thus calling them does not require a lock. Hooks implementing IAsyncErrHook are
+ * called from a separate thread so that they can not stall the thread that raised the error.
+ */
 @ThreadSafe
 @Named
 public final class ErrHookManager implements ApplicationContextAware, FactoryBean<ErrHookManager> {
 
     private static final ErrHookManager INSTANCE = new ErrHookManager();
-    @GuardedBy("INSTANCE")
-    private static final Set<IErrHook> REGISTRIERTE_HOOKS = new HashSet<IErrHook>();
+    private static final ASynchronizedFastIterableDelegateSet<IErrHook> REGISTERED_HOOKS = newHookSet();
+    private static final ASynchronizedFastIterableDelegateSet<IErrHook> REGISTERED_ASYNC_HOOKS = newHookSet();
+    private static final AsyncErrHookDispatcher ASYNC_DISPATCHER = new AsyncErrHookDispatcher(REGISTERED_ASYNC_HOOKS);
 
     private ErrHookManager() {}
 
-    public static void register(final IErrHook hook) {
-        synchronized (INSTANCE) {
-            Assertions.assertThat(REGISTRIERTE_HOOKS.add(hook))
-                    .as("Hook [%s] has already been registered!", hook)
-                    .isTrue();
+    private static ASynchronizedFastIterableDelegateSet<IErrHook> newHookSet() {
+        return new ASynchronizedFastIterableDelegateSet<IErrHook>() {
+            @Override
+            protected Set<IErrHook> newDelegate() {
+                return new LinkedHashSet<IErrHook>();
+            }
+        };
+    }
+
+    private static ASynchronizedFastIterableDelegateSet<IErrHook> getHookSet(final IErrHook hook) {
+        if (hook instanceof IAsyncErrHook) {
+            return REGISTERED_ASYNC_HOOKS;
+        } else {
+            return REGISTERED_HOOKS;
         }
     }
 
+    public static void register(final IErrHook hook) {
+        Assertions.assertThat(getHookSet(hook).add(hook)).as("Hook [%s] has already been registered!", hook).isTrue();
+    }
+
     public static void unregister(final IErrHook hook) {
-        synchronized (INSTANCE) {
-            Assertions.assertThat(REGISTRIERTE_HOOKS.remove(hook))
-                    .as("Hook [%s] has not been registered yet!", hook)
-                    .isTrue();
-        }
+        Assertions.assertThat(getHookSet(hook).remove(hook))
+                .as("Hook [%s] has not been registered yet!", hook)
+                .isTrue();
     }
 
     public static void loggedException(final LoggedRuntimeException e, final boolean uncaughtException) {
-        synchronized (INSTANCE) {
-            for (final IErrHook hook : REGISTRIERTE_HOOKS) {
-                hook.loggedException(e, uncaughtException);
-            }
+        for (final IErrHook hook : REGISTERED_HOOKS) {
+            hook.loggedException(e, uncaughtException);
         }
+        if (!REGISTERED_ASYNC_HOOKS.isEmpty()) {
+            ASYNC_DISPATCHER.dispatch(e, uncaughtException);
+        }
+    }
+
+    /**
+     * The number of exceptions that were not passed to the IAsyncErrHook instances because the queue was full.
+     */
+    public static long getDroppedAsyncCount() {
+        return ASYNC_DISPATCHER.getDroppedCount();
     }
 
     @Override
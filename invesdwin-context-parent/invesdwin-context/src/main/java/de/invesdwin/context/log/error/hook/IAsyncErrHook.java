@@ -0,0 +1,10 @@
+package de.invesdwin.context.log.error.hook;
+
+/**
+ * Hooks that implement this interface are called by a separate dispatcher thread of the ErrHookManager. Thus slow
+ * hooks (e.g. mail or http notifications) do not stall the thread that raised the error. When the bounded queue of
+ * the dispatcher is full, the exception is not passed to these hooks.
+ */
+public interface IAsyncErrHook extends IErrHook {
+
+}
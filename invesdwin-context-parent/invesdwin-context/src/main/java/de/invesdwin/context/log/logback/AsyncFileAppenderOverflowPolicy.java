@@ -0,0 +1,19 @@
+package de.invesdwin.context.log.logback;
+
+/**
+ * Decides what happens when the buffer of a ConfiguredAsyncFileAppender is full.
+ */
+public enum AsyncFileAppenderOverflowPolicy {
+    /**
+     * The logging thread waits until the writer thread made room, no events get lost.
+     */
+    BLOCK,
+    /**
+     * The event gets dropped, the logging thread never waits.
+     */
+    DROP,
+    /**
+     * TRACE, DEBUG and INFO events get dropped while WARN and ERROR events block.
+     */
+    DROP_BELOW_WARN;
+}
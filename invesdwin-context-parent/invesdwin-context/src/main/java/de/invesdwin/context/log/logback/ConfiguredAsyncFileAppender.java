@@ -0,0 +1,442 @@
+package de.invesdwin.context.log.logback;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.FileSize;
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.concurrent.BoundedRingBuffer;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+/**
+ * An asynchronous alternative to ConfiguredFileAppender with the same file naming, size trigger and gzip archives. The
+ * logging threads only put events into a bounded lock-free ring buffer, a single writer thread encodes them and writes
+ * them in batches through a large direct buffer. On rollover the writer only renames the file, shifting and compressing
+ * the archives happens on a separate background thread. Renamed files that were not compressed because of a crash are
+ * picked up on the next start.
+ *
+ * Use it in logback.xml with e.g.:
+ *
+ * &lt;appender name="common" class="de.invesdwin.context.log.logback.ConfiguredAsyncFileAppender"&gt;
+ * &lt;overflowPolicy&gt;DROP_BELOW_WARN&lt;/overflowPolicy&gt; &lt;/appender&gt;
+ */
+@ThreadSafe
+public class ConfiguredAsyncFileAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final long SLEEP_NANOS = 10_000_000L;
+    private static final long BLOCK_PARK_NANOS = 100_000L;
+    private static final String ROLLING_SUFFIX = ".rolling.";
+
+    private int bufferSize = 8192;
+    private int writeBufferSize = 256 * 1024;
+    private FileSize maxFileSize = FileSize.valueOf("20MB");
+    private int maxIndex = 9;
+    private AsyncFileAppenderOverflowPolicy overflowPolicy = AsyncFileAppenderOverflowPolicy.BLOCK;
+    private boolean includeCallerData = true;
+    private LogFormat format = LogFormat.PATTERN;
+
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicLong rollingSequence = new AtomicLong();
+    private volatile boolean stopping;
+    private volatile boolean writerSleeping;
+    private volatile Thread writerThread;
+    private String logFile;
+    private Encoder<ILoggingEvent> encoder;
+    private boolean callerDataRequired;
+    private BoundedRingBuffer<ILoggingEvent> buffer;
+    private WrappedExecutorService writerExecutor;
+    private WrappedExecutorService compressExecutor;
+    /**
+     * Only accessed by the writer thread.
+     */
+    private FileChannel channel;
+    private ByteBuffer writeBuffer;
+    private long fileSize;
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * The number of events that can be queued before the overflow policy applies.
+     */
+    public void setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(final int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public String getMaxFileSize() {
+        return maxFileSize.toString();
+    }
+
+    public void setMaxFileSize(final String maxFileSize) {
+        this.maxFileSize = FileSize.valueOf(maxFileSize);
+    }
+
+    public int getMaxIndex() {
+        return maxIndex;
+    }
+
+    public void setMaxIndex(final int maxIndex) {
+        this.maxIndex = maxIndex;
+    }
+
+    public AsyncFileAppenderOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(final AsyncFileAppenderOverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public boolean isIncludeCallerData() {
+        return includeCallerData;
+    }
+
+    /**
+     * The default pattern prints the calling method, which has to be determined on the logging thread. Disabling this
+     * makes logging cheaper but prints "?" instead.
+     */
+    public void setIncludeCallerData(final boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    public LogFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * LogFormat.JSON writes compact json lines into a .jsonl file and skips the caller data.
+     */
+    public void setFormat(final LogFormat format) {
+        this.format = format;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public String getFile() {
+        return logFile;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        logFile = ContextProperties.getLogDirectory() + "/" + getName() + format.getFileExtension();
+        encoder = newEncoder();
+        callerDataRequired = includeCallerData && format.isCallerDataRequired();
+        try {
+            openFile();
+        } catch (final IOException e) {
+            addError("Unable to open log file: " + logFile, e);
+            return;
+        }
+        writeBuffer = ByteBuffer.allocateDirect(writeBufferSize);
+        buffer = new BoundedRingBuffer<ILoggingEvent>(bufferSize);
+        stopping = false;
+        compressExecutor = Executors.newFixedThreadPool(getClass().getSimpleName() + "_" + getName() + "_compress",
+                1);
+        compressLeftoverRollingFiles();
+        writerExecutor = Executors.newFixedThreadPool(getClass().getSimpleName() + "_" + getName(), 1);
+        writerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writerThread = Thread.currentThread();
+                writeLoop();
+            }
+        });
+        super.start();
+    }
+
+    /**
+     * Can be overridden to e.g. decorate the encoder of the configured format.
+     */
+    protected Encoder<ILoggingEvent> newEncoder() {
+        return format.newEncoder(getContext());
+    }
+
+    /**
+     * A crash between the rename and the compression of a rollover leaves renamed files behind. Those are compressed
+     * oldest first before any new rollover happens and the sequence continues after them so they are not overwritten.
+     */
+    private void compressLeftoverRollingFiles() {
+        final File file = new File(logFile);
+        final File parent = file.getAbsoluteFile().getParentFile();
+        final String prefix = file.getName() + ROLLING_SUFFIX;
+        final File[] candidates = parent.listFiles();
+        if (candidates == null) {
+            return;
+        }
+        final SortedMap<Long, File> leftovers = new TreeMap<Long, File>();
+        for (final File candidate : candidates) {
+            final String name = candidate.getName();
+            if (name.startsWith(prefix) && candidate.isFile()) {
+                try {
+                    leftovers.put(Long.parseLong(name.substring(prefix.length())), candidate);
+                } catch (final NumberFormatException e) {
+                    //not one of ours
+                    continue;
+                }
+            }
+        }
+        if (leftovers.isEmpty()) {
+            return;
+        }
+        rollingSequence.set(Math.max(rollingSequence.get(), leftovers.lastKey()));
+        for (final File leftover : leftovers.values()) {
+            compressExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compress(leftover);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        stopping = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerExecutor.shutdown();
+            writerExecutor.awaitTermination();
+            compressExecutor.shutdown();
+            compressExecutor.awaitTermination();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final long dropped = droppedCount.sum();
+        if (dropped > 0) {
+            addWarn("Dropped " + dropped + " log events because the buffer was full");
+        }
+    }
+
+    @Override
+    protected void append(final ILoggingEvent event) {
+        if (stopping) {
+            return;
+        }
+        event.prepareForDeferredProcessing();
+        if (callerDataRequired) {
+            event.getCallerData();
+        }
+        if (!buffer.offer(event)) {
+            switch (overflowPolicy) {
+            case DROP:
+                droppedCount.increment();
+                return;
+            case DROP_BELOW_WARN:
+                if (!event.getLevel().isGreaterOrEqual(Level.WARN)) {
+                    droppedCount.increment();
+                    return;
+                }
+                offerBlocking(event);
+                break;
+            case BLOCK:
+                offerBlocking(event);
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unknown " + AsyncFileAppenderOverflowPolicy.class.getSimpleName() + ": " + overflowPolicy);
+            }
+        }
+        if (writerSleeping) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void offerBlocking(final ILoggingEvent event) {
+        while (!buffer.offer(event)) {
+            if (stopping) {
+                droppedCount.increment();
+                return;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    //---------------------------------- writer thread -----------------------------------//
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                final ILoggingEvent event = buffer.poll();
+                if (event != null) {
+                    write(encoder.encode(event));
+                    continue;
+                }
+                //the queue is drained, thus write the batch
+                flush();
+                if (stopping && buffer.isEmpty()) {
+                    return;
+                }
+                sleep();
+            }
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void sleep() {
+        writerSleeping = true;
+        try {
+            //check again to not miss an event that was offered before the flag was set
+            if (buffer.isEmpty() && !stopping) {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        } finally {
+            writerSleeping = false;
+        }
+    }
+
+    private void write(final byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return;
+        }
+        if (bytes.length > writeBuffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > writeBuffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes));
+        } else {
+            writeBuffer.put(bytes);
+        }
+    }
+
+    private void flush() {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(final ByteBuffer bytes) {
+        if (channel == null) {
+            //the file could not be reopened after a failed rollover
+            return;
+        }
+        try {
+            while (bytes.hasRemaining()) {
+                fileSize += channel.write(bytes);
+            }
+        } catch (final IOException e) {
+            addError("Unable to write log file: " + logFile, e);
+            bytes.position(bytes.limit());
+        }
+        if (fileSize >= maxFileSize.getSize()) {
+            rollover();
+        }
+    }
+
+    private void openFile() throws IOException {
+        final File file = new File(logFile);
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory: " + parent);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void closeFile() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                addError("Unable to close log file: " + logFile, e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Only renames the file on the writer thread, the archives are shifted and compressed in the background.
+     */
+    private void rollover() {
+        closeFile();
+        final File rolling = new File(logFile + ROLLING_SUFFIX + rollingSequence.incrementAndGet());
+        if (!new File(logFile).renameTo(rolling)) {
+            addError("Unable to rename log file for rollover: " + logFile);
+        } else {
+            compressExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compress(rolling);
+                }
+            });
+        }
+        try {
+            openFile();
+        } catch (final IOException e) {
+            addError("Unable to open log file: " + logFile, e);
+        }
+    }
+
+    private void compress(final File rolling) {
+        try {
+            final File oldest = new File(logFile + "." + maxIndex + ".gz");
+            if (oldest.exists() && !oldest.delete()) {
+                addError("Unable to delete oldest archive: " + oldest);
+            }
+            for (int i = maxIndex - 1; i >= 1; i--) {
+                final File archive = new File(logFile + "." + i + ".gz");
+                if (archive.exists() && !archive.renameTo(new File(logFile + "." + (i + 1) + ".gz"))) {
+                    addError("Unable to shift archive: " + archive);
+                }
+            }
+            final File target = new File(logFile + ".1.gz");
+            try (InputStream in = new FileInputStream(rolling);
+                    OutputStream out = new GZIPOutputStream(new FileOutputStream(target), writeBufferSize)) {
+                final byte[] bytes = new byte[writeBufferSize];
+                int read;
+                while ((read = in.read(bytes)) > 0) {
+                    out.write(bytes, 0, read);
+                }
+            }
+            if (!rolling.delete()) {
+                addError("Unable to delete rolled log file: " + rolling);
+            }
+        } catch (final Throwable t) {
+            addError("Unable to compress log file: " + rolling, t);
+        }
+    }
+
+}
@@ -2,18 +2,18 @@ package de.invesdwin.context.log.logback;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.rolling.FixedWindowRollingPolicy;
 import ch.qos.logback.core.rolling.RollingFileAppender;
 import ch.qos.logback.core.rolling.SizeBasedTriggeringPolicy;
 import ch.qos.logback.core.util.FileSize;
 import de.invesdwin.context.ContextProperties;
-import de.invesdwin.context.log.logback.internal.LogbackProperties;
 
 @NotThreadSafe
 public class ConfiguredFileAppender extends RollingFileAppender<ILoggingEvent> {
 
+    private LogFormat format = LogFormat.PATTERN;
+
     //  <property name="file.prefix" value="log/" />
     //  <property name="file.postfix" value=".log" />
     //  <property name="file.postfix.archive" value="${file.postfix}.%i.gz" />
@@ -21,11 +21,22 @@ public class ConfiguredFileAppender extends RollingFileAppender<ILoggingEvent> {
     //  <property name="file.maxhistory" value="3" />
     //  <property name="file.maxsize" value="5MB" />
 
+    public LogFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * LogFormat.JSON writes compact json lines into a .jsonl file instead.
+     */
+    public void setFormat(final LogFormat format) {
+        this.format = format;
+    }
+
     @Override
     public void start() {
         //  <appender name="file_invesdwin" class="ch.qos.logback.core.rolling.RollingFileAppender">
         //      <File>${file.prefix}invesdwin${file.postfix}</File>
-        final String logFile = ContextProperties.getLogDirectory() + "/" + getName() + ".log";
+        final String logFile = ContextProperties.getLogDirectory() + "/" + getName() + format.getFileExtension();
 
         setFile(logFile);
 
@@ -55,11 +66,7 @@ public class ConfiguredFileAppender extends RollingFileAppender<ILoggingEvent> {
         //      <encoder>
         //          <Pattern>${layout.pattern}</Pattern>
         //      </encoder>
-        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
-        encoder.setPattern(LogbackProperties.ENCODER_PATTERN);
-        encoder.setContext(getContext());
-        encoder.start();
-        setEncoder(encoder);
+        setEncoder(format.newEncoder(getContext()));
 
         //  </appender>
         super.start();
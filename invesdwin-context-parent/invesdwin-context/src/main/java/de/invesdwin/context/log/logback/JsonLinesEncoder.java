@@ -0,0 +1,96 @@
+package de.invesdwin.context.log.logback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+/**
+ * Writes one flat JSON object per event and line. In contrast to the pattern encoder the caller data (method name) is
+ * not used, thus it does not need to be computed from a stacktrace on the logging thread.
+ */
+@ThreadSafe
+public class JsonLinesEncoder extends EncoderBase<ILoggingEvent> {
+
+    public static final String KEY_TIME = "time";
+    public static final String KEY_THREAD = "thread";
+    public static final String KEY_TRANSACTIONS = "transactions";
+    public static final String KEY_LEVEL = "level";
+    public static final String KEY_LOGGER = "logger";
+    public static final String KEY_MESSAGE = "message";
+    public static final String KEY_THROWABLE = "throwable";
+
+    private static final String MDC_TRANSACTIONS = "transactions";
+    private static final int INITIAL_CAPACITY = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(final ILoggingEvent event) {
+        final StringBuilder sb = new StringBuilder(INITIAL_CAPACITY);
+        sb.append("{\"").append(KEY_TIME).append("\":").append(event.getTimeStamp());
+        appendField(sb, KEY_THREAD, event.getThreadName());
+        final Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null) {
+            appendField(sb, KEY_TRANSACTIONS, mdc.get(MDC_TRANSACTIONS));
+        }
+        appendField(sb, KEY_LEVEL, event.getLevel().toString());
+        appendField(sb, KEY_LOGGER, event.getLoggerName());
+        appendField(sb, KEY_MESSAGE, event.getFormattedMessage());
+        final IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (throwableProxy != null) {
+            appendField(sb, KEY_THROWABLE, ThrowableProxyUtil.asString(throwableProxy));
+        }
+        sb.append("}\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    private static void appendField(final StringBuilder sb, final String key, final String value) {
+        if (value == null) {
+            return;
+        }
+        sb.append(",\"").append(key).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+}
@@ -0,0 +1,197 @@
+package de.invesdwin.context.log.logback;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Converts log files of the JsonLinesEncoder back into text that resembles LogbackProperties.ENCODER_PATTERN (without
+ * the method name). Archives ending with .gz are decompressed on the fly.
+ *
+ * Usage: java de.invesdwin.context.log.logback.JsonLinesLogReader common.jsonl [common.jsonl.1.gz ...]
+ */
+@NotThreadSafe
+public class JsonLinesLogReader {
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private final Date date = new Date();
+
+    public void convert(final File file, final PrintStream out) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            if (file.getName().endsWith(".gz")) {
+                in = new GZIPInputStream(in);
+            }
+            convert(in, out);
+        } finally {
+            in.close();
+        }
+    }
+
+    public void convert(final InputStream in, final PrintStream out) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                out.print(toText(line));
+            }
+        }
+    }
+
+    public String toText(final String line) {
+        final Map<String, String> fields = parse(line);
+        final StringBuilder sb = new StringBuilder();
+        final String time = fields.get(JsonLinesEncoder.KEY_TIME);
+        if (time != null) {
+            date.setTime(Long.parseLong(time));
+            sb.append(dateFormat.format(date));
+        }
+        sb.append(" [");
+        final String transactions = fields.get(JsonLinesEncoder.KEY_TRANSACTIONS);
+        if (transactions != null) {
+            sb.append(transactions).append("|");
+        }
+        sb.append(nullToEmpty(fields.get(JsonLinesEncoder.KEY_THREAD)));
+        sb.append("] ");
+        sb.append(String.format("%-5s", nullToEmpty(fields.get(JsonLinesEncoder.KEY_LEVEL))));
+        sb.append(" ");
+        sb.append(nullToEmpty(fields.get(JsonLinesEncoder.KEY_LOGGER)));
+        sb.append(" - ");
+        sb.append(nullToEmpty(fields.get(JsonLinesEncoder.KEY_MESSAGE)));
+        sb.append("\n");
+        final String throwable = fields.get(JsonLinesEncoder.KEY_THROWABLE);
+        if (throwable != null) {
+            sb.append(throwable);
+        }
+        return sb.toString();
+    }
+
+    private static String nullToEmpty(final String str) {
+        if (str == null) {
+            return "";
+        } else {
+            return str;
+        }
+    }
+
+    /**
+     * Only supports the flat objects with string and number values that JsonLinesEncoder writes.
+     */
+    static Map<String, String> parse(final String line) {
+        final Map<String, String> fields = new HashMap<String, String>();
+        int i = skipWhitespace(line, 0);
+        expect(line, i, '{');
+        i = skipWhitespace(line, i + 1);
+        if (line.charAt(i) == '}') {
+            return fields;
+        }
+        final StringBuilder sb = new StringBuilder();
+        while (true) {
+            i = parseString(line, i, sb);
+            final String key = sb.toString();
+            i = skipWhitespace(line, i);
+            expect(line, i, ':');
+            i = skipWhitespace(line, i + 1);
+            if (line.charAt(i) == '"') {
+                i = parseString(line, i, sb);
+            } else {
+                sb.setLength(0);
+                while (i < line.length() && line.charAt(i) != ',' && line.charAt(i) != '}'
+                        && !Character.isWhitespace(line.charAt(i))) {
+                    sb.append(line.charAt(i));
+                    i++;
+                }
+            }
+            fields.put(key, sb.toString());
+            i = skipWhitespace(line, i);
+            if (line.charAt(i) == '}') {
+                return fields;
+            }
+            expect(line, i, ',');
+            i = skipWhitespace(line, i + 1);
+        }
+    }
+
+    private static int parseString(final String line, final int start, final StringBuilder sb) {
+        expect(line, start, '"');
+        sb.setLength(0);
+        int i = start + 1;
+        while (true) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            } else if (c == '\\') {
+                final char escaped = line.charAt(i + 1);
+                switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(line.substring(i + 2, i + 6), 16));
+                    i += 4;
+                    break;
+                default:
+                    sb.append(escaped);
+                }
+                i += 2;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+    }
+
+    private static int skipWhitespace(final String line, final int start) {
+        int i = start;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void expect(final String line, final int index, final char expected) {
+        if (index >= line.length() || line.charAt(index) != expected) {
+            throw new IllegalArgumentException(
+                    "Expected '" + expected + "' at index " + index + " of json line: " + line);
+        }
+    }
+
+    //CHECKSTYLE:OFF console output is intended for this tool
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: " + JsonLinesLogReader.class.getName() + " <file.jsonl[.gz]>...");
+            System.exit(1);
+        }
+        final JsonLinesLogReader reader = new JsonLinesLogReader();
+        for (final String arg : args) {
+            reader.convert(new File(arg), System.out);
+        }
+        System.out.flush();
+    }
+    //CHECKSTYLE:ON
+
+}
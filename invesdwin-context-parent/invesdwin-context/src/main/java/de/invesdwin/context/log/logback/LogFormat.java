@@ -0,0 +1,57 @@
+package de.invesdwin.context.log.logback;
+
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Context;
+import ch.qos.logback.core.encoder.Encoder;
+import de.invesdwin.context.log.logback.internal.LogbackProperties;
+
+/**
+ * The file format of the configured file appenders.
+ */
+public enum LogFormat {
+    /**
+     * Human readable text with LogbackProperties.ENCODER_PATTERN, requires the caller data for the method name.
+     */
+    PATTERN(".log") {
+        @Override
+        protected Encoder<ILoggingEvent> newUnstartedEncoder() {
+            final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+            encoder.setPattern(LogbackProperties.ENCODER_PATTERN);
+            return encoder;
+        }
+    },
+    /**
+     * One compact JSON object per line without caller data, use JsonLinesLogReader to convert it back to text.
+     */
+    JSON(".jsonl") {
+        @Override
+        protected Encoder<ILoggingEvent> newUnstartedEncoder() {
+            return new JsonLinesEncoder();
+        }
+    };
+
+    private final String fileExtension;
+
+    LogFormat(final String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public boolean isCallerDataRequired() {
+        return this == PATTERN;
+    }
+
+    protected abstract Encoder<ILoggingEvent> newUnstartedEncoder();
+
+    public Encoder<ILoggingEvent> newEncoder(final Context context) {
+        final Encoder<ILoggingEvent> encoder = newUnstartedEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        return encoder;
+    }
+
+}
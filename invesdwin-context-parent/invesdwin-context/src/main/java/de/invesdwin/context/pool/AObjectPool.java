@@ -2,15 +2,21 @@ package de.invesdwin.context.pool;
 
 import java.util.Collection;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.apache.commons.pool2.ObjectPool;
 
 import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.concurrent.Threads;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
 
 /**
  * Implements the lifecycle of pooled objects
@@ -20,8 +26,21 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
 
     protected IPoolableObjectFactory<E> factory;
     private final AtomicInteger activeCount = new AtomicInteger();
-    @GuardedBy("this")
-    private boolean closed;
+    /**
+     * Volatile so that the borrow/add path does not need to acquire the monitor that close() uses.
+     */
+    private volatile boolean closed;
+    /**
+     * Borrowers that wait for a returned object in FIFO order.
+     */
+    private final ConcurrentLinkedQueue<Waiter<E>> waiters = new ConcurrentLinkedQueue<Waiter<E>>();
+    private final AtomicInteger waiterCount = new AtomicInteger();
+    private final LongAdder waitedBorrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder exhaustedCount = new LongAdder();
+    private volatile boolean testOnBorrow = true;
+    private volatile boolean testOnReturn = true;
 
     public AObjectPool(final IPoolableObjectFactory<E> factory) {
         this.factory = factory;
@@ -39,13 +58,11 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
             }
             obj = internalBorrowObject();
             if (obj != null) {
-                factory.activateObject(obj);
-                if (factory.validateObject(obj)) {
+                if (activateAndValidate(obj)) {
                     break;
-                } else {
-                    factory.destroyObject(obj);
                 }
             } else {
+                exhaustedCount.increment();
                 //CHECKSTYLE:OFF we explicitly want the stacktrace here
                 throw new NoSuchElementException("internalBorrow() returned null");
                 //CHECKSTYLE:ON
@@ -55,6 +72,144 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
         return obj;
     }
 
+    /**
+     * Waits up to the timeout for an object when internalBorrowObject() returns null (e.g. because a maximum number of
+     * objects is reached). Returned objects are handed directly to the waiting borrowers in FIFO order and new borrowers
+     * queue up behind already waiting ones. Throws a NoSuchElementException when the timeout is exceeded.
+     */
+    public final E borrowObject(final Duration timeout) throws InterruptedException {
+        throwIfClosed();
+        Waiter<E> waiter = null;
+        long waitStart = 0;
+        long deadline = 0;
+        try {
+            while (true) {
+                Threads.throwIfInterrupted();
+                throwIfClosed();
+                E obj = null;
+                boolean handedOff = false;
+                if (waiter != null) {
+                    obj = waiter.takeHandedOff();
+                    handedOff = obj != null;
+                }
+                if (obj == null && (waiter == null && waiters.isEmpty() || waiter != null && waiters.peek() == waiter)) {
+                    obj = internalBorrowObject();
+                }
+                if (obj != null) {
+                    if (activateAndValidate(obj)) {
+                        activeCount.incrementAndGet();
+                        if (waitStart != 0) {
+                            recordWait(System.nanoTime() - waitStart);
+                        }
+                        return obj;
+                    }
+                    if (handedOff) {
+                        //we were removed from the queue by the hand off, thus queue up again
+                        leave(waiter);
+                        waiter = null;
+                    }
+                    continue;
+                }
+                if (waiter == null) {
+                    waiter = new Waiter<E>(Thread.currentThread());
+                    if (waitStart == 0) {
+                        waitStart = System.nanoTime();
+                        deadline = waitStart + timeout.longValue(FTimeUnit.NANOSECONDS);
+                    }
+                    waiters.add(waiter);
+                    waiterCount.incrementAndGet();
+                    //check again before parking so that a concurrent return is not missed
+                    continue;
+                }
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    exhaustedCount.increment();
+                    recordWait(System.nanoTime() - waitStart);
+                    //CHECKSTYLE:OFF we explicitly want the stacktrace here
+                    throw new NoSuchElementException("Timeout of " + timeout + " exceeded while waiting for an object");
+                    //CHECKSTYLE:ON
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            if (waiter != null) {
+                leave(waiter);
+            }
+        }
+    }
+
+    private void leave(final Waiter<E> waiter) {
+        waiters.remove(waiter);
+        waiterCount.decrementAndGet();
+        if (!waiter.cancel()) {
+            //an object got handed to us after we stopped waiting
+            final E handedOff = waiter.takeHandedOff();
+            if (handedOff != null) {
+                returnIdleObject(handedOff);
+            }
+        }
+        //we might have been the head that got signaled about free capacity
+        signalFirstWaiter();
+    }
+
+    private void recordWait(final long nanos) {
+        waitedBorrows.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * When activate or validate throws, the object gets destroyed before rethrowing so that its slot is released.
+     * Otherwise each failure would permanently reduce the capacity of a pool that has a maximum number of objects.
+     */
+    private boolean activateAndValidate(final E obj) {
+        final boolean valid;
+        try {
+            factory.activateObject(obj);
+            valid = !testOnBorrow || factory.validateObject(obj);
+        } catch (final Throwable t) {
+            try {
+                destroyObject(obj);
+            } catch (final Throwable destroyFailure) {
+                t.addSuppressed(destroyFailure);
+            }
+            throw t;
+        }
+        if (!valid) {
+            destroyObject(obj);
+        }
+        return valid;
+    }
+
+    /**
+     * Hands the passivated object to the first waiting borrower or puts it into the idle storage.
+     */
+    private void returnIdleObject(final E obj) {
+        if (!handOffToWaiter(obj)) {
+            internalReturnObject(obj);
+        }
+    }
+
+    /**
+     * Hands the passivated idle object to the first waiting borrower. Returns false if no one is waiting.
+     */
+    protected final boolean handOffToWaiter(final E obj) {
+        Waiter<E> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.handOff(obj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void signalFirstWaiter() {
+        final Waiter<E> first = waiters.peek();
+        if (first != null) {
+            LockSupport.unpark(first.thread);
+        }
+    }
+
     @Override
     public final void addObject() {
         throwIfClosed();
@@ -68,18 +223,31 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
 
     protected void removeObject(final E obj) {
         internalRemoveObject(obj);
-        factory.destroyObject(obj);
+        destroyObject(obj);
+    }
+
+    /**
+     * Destroys the object and notifies the subclass via internalDestroyObject.
+     */
+    protected final void destroyObject(final E obj) {
+        try {
+            factory.destroyObject(obj);
+        } finally {
+            internalDestroyObject(obj);
+            //capacity got released
+            signalFirstWaiter();
+        }
     }
 
     @Override
     public final void returnObject(final E obj) {
         if (obj != null) {
             activeCount.decrementAndGet();
-            if (factory.validateObject(obj)) {
+            if (!testOnReturn || factory.validateObject(obj)) {
                 factory.passivateObject(obj);
-                internalReturnObject(obj);
+                returnIdleObject(obj);
             } else {
-                factory.destroyObject(obj);
+                destroyObject(obj);
             }
         }
     }
@@ -88,7 +256,7 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
     public final void invalidateObject(final E obj) {
         if (obj != null) {
             activeCount.decrementAndGet();
-            factory.destroyObject(obj);
+            destroyObject(obj);
             internalInvalidateObject(obj);
         }
     }
@@ -96,7 +264,7 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
     @Override
     public final void clear() {
         for (final E obj : internalClear()) {
-            factory.destroyObject(obj);
+            destroyObject(obj);
         }
     }
 
@@ -125,6 +293,11 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
 
     protected abstract void internalInvalidateObject(E obj);
 
+    /**
+     * Gets called after the factory destroyed an object, e.g. to release capacity of bounded pools.
+     */
+    protected void internalDestroyObject(final E obj) {}
+
     @Override
     public abstract int getNumIdle();
 
@@ -140,6 +313,39 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
         return activeCount.get();
     }
 
+    /**
+     * The number of borrowers that are currently waiting for an object.
+     */
+    public final int getNumWaiters() {
+        return waiterCount.get();
+    }
+
+    /**
+     * The number of borrows that had to wait for an object (including those that timed out).
+     */
+    public final long getWaitedBorrows() {
+        return waitedBorrows.sum();
+    }
+
+    public final Duration getAverageWaitTime() {
+        final long count = waitedBorrows.sum();
+        if (count == 0) {
+            return new Duration(0, FTimeUnit.NANOSECONDS);
+        }
+        return new Duration(waitNanos.sum() / count, FTimeUnit.NANOSECONDS);
+    }
+
+    public final Duration getMaxWaitTime() {
+        return new Duration(maxWaitNanos.get(), FTimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The number of borrows that failed because the pool was exhausted (or the timeout was exceeded).
+     */
+    public final long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
     @Override
     public synchronized void close() {
         if (!closed) {
@@ -149,10 +355,14 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
                 throw new RuntimeException(e);
             }
             closed = true;
+            //waiters will notice that the pool is closed
+            for (final Waiter<E> waiter : waiters) {
+                LockSupport.unpark(waiter.thread);
+            }
         }
     }
 
-    public final synchronized boolean isClosed() {
+    public final boolean isClosed() {
         return closed;
     }
 
@@ -164,4 +374,62 @@ public abstract class AObjectPool<E> implements ObjectPool<E> {
         this.factory = factory;
     }
 
+    public final boolean isTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    /**
+     * Validation on borrow can be disabled when it is expensive and idle objects get validated in the background
+     * instead (see BoundedObjectPool.setTestWhileIdle).
+     */
+    public final void setTestOnBorrow(final boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public final boolean isTestOnReturn() {
+        return testOnReturn;
+    }
+
+    public final void setTestOnReturn(final boolean testOnReturn) {
+        this.testOnReturn = testOnReturn;
+    }
+
+    private static final class Waiter<E> {
+        private static final Object CANCELLED = new Object();
+        private static final Object TAKEN = new Object();
+
+        private final Thread thread;
+        /**
+         * Null while waiting, then either the handed off object or one of the markers.
+         */
+        private final AtomicReference<Object> state = new AtomicReference<Object>();
+
+        private Waiter(final Thread thread) {
+            this.thread = thread;
+        }
+
+        private boolean handOff(final E obj) {
+            if (state.compareAndSet(null, obj)) {
+                LockSupport.unpark(thread);
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private E takeHandedOff() {
+            final Object value = state.get();
+            if (value == null || value == CANCELLED || value == TAKEN) {
+                return null;
+            }
+            state.set(TAKEN);
+            return (E) value;
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(null, CANCELLED);
+        }
+    }
+
 }
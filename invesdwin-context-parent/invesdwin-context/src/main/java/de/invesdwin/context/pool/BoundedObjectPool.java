@@ -0,0 +1,505 @@
+package de.invesdwin.context.pool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.invesdwin.context.concurrent.BoundedRingBuffer;
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * A high throughput pool that does not acquire a monitor on borrow and return. Idle objects are first cached in a
+ * small array of slots that is striped by thread (similar to the cells of a LongAdder), thus a thread that returns an
+ * object usually gets the same object again without contending with other threads. When the slot of a thread is taken,
+ * the object goes into a shared lock-free ring buffer.
+ *
+ * maxIdle bounds the shared ring buffer, the striped slots hold at most one additional idle object each. Since the
+ * ring buffer is preallocated, maxIdle is capped at MAX_IDLE (e.g. when UNBOUNDED is given). maxTotal bounds the
+ * number of idle and active objects, borrowObject() throws a NoSuchElementException when it is reached while
+ * borrowObject(Duration) waits for an object to be returned.
+ *
+ * A maintenance task can be scheduled via setMaintenanceInterval that validates idle objects (testWhileIdle), destroys
+ * idle objects above minIdle that were idle longer than maxIdleTime, destroys idle objects older than maxAge and
+ * creates idle objects up to minIdle. Together with setTestOnBorrow(false) this moves expensive validations off the
+ * borrow path.
+ */
+@ThreadSafe
+public class BoundedObjectPool<E> extends AObjectPool<E> {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    public static final int MAX_IDLE = 1 << 16;
+    private static final int STRIPES = Integer.highestOneBit(Executors.getCpuThreadPoolCount() * 2 - 1) << 1;
+    private static final long NO_LIMIT = -1L;
+
+    private final int maxIdle;
+    private final int maxTotal;
+    private final AtomicReferenceArray<E> stripedSlots;
+    private final int stripeMask;
+    private final BoundedRingBuffer<E> idleObjects;
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private volatile int minIdle;
+    private volatile long maxIdleTimeNanos = NO_LIMIT;
+    private volatile long maxAgeNanos = NO_LIMIT;
+    private volatile boolean testWhileIdle;
+    /**
+     * Only created when maxIdleTime or maxAge is configured, weak identity keys so that objects that never get returned
+     * do not leak.
+     */
+    private volatile ConcurrentMap<E, PooledTimes> times;
+    @GuardedBy("this")
+    private ScheduledFuture<?> maintenanceFuture;
+
+    public BoundedObjectPool(final IPoolableObjectFactory<E> factory, final int maxIdle) {
+        this(factory, maxIdle, UNBOUNDED);
+    }
+
+    public BoundedObjectPool(final IPoolableObjectFactory<E> factory, final int maxIdle, final int maxTotal) {
+        super(factory);
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle should not be negative: " + maxIdle);
+        }
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("maxTotal should be positive: " + maxTotal);
+        }
+        this.maxIdle = Math.min(maxIdle, MAX_IDLE);
+        this.maxTotal = maxTotal;
+        if (maxIdle > 0) {
+            this.stripedSlots = new AtomicReferenceArray<E>(STRIPES);
+            this.idleObjects = new BoundedRingBuffer<E>(this.maxIdle);
+        } else {
+            this.stripedSlots = new AtomicReferenceArray<E>(1);
+            this.idleObjects = null;
+        }
+        this.stripeMask = stripedSlots.length() - 1;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * The maintenance task creates idle objects up to this count and does not evict idle objects below it.
+     */
+    public void setMinIdle(final int minIdle) {
+        if (minIdle < 0 || minIdle > maxIdle) {
+            throw new IllegalArgumentException("minIdle should be between 0 and maxIdle [" + maxIdle + "]: " + minIdle);
+        }
+        this.minIdle = minIdle;
+    }
+
+    public Duration getMaxIdleTime() {
+        return toDuration(maxIdleTimeNanos);
+    }
+
+    /**
+     * The maintenance task destroys idle objects above minIdle that were idle for longer than this, null disables it.
+     */
+    public void setMaxIdleTime(final Duration maxIdleTime) {
+        this.maxIdleTimeNanos = toNanos(maxIdleTime);
+    }
+
+    public Duration getMaxAge() {
+        return toDuration(maxAgeNanos);
+    }
+
+    /**
+     * The maintenance task destroys idle objects that were created longer ago than this (regardless of minIdle), null
+     * disables it. Objects that already existed before this got enabled are aged from the time they are first seen.
+     */
+    public void setMaxAge(final Duration maxAge) {
+        this.maxAgeNanos = toNanos(maxAge);
+    }
+
+    public boolean isTestWhileIdle() {
+        return testWhileIdle;
+    }
+
+    /**
+     * The maintenance task activates, validates and passivates idle objects, invalid ones get destroyed.
+     */
+    public void setTestWhileIdle(final boolean testWhileIdle) {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    private long toNanos(final Duration duration) {
+        if (duration == null) {
+            return NO_LIMIT;
+        }
+        synchronized (this) {
+            if (times == null) {
+                times = Caffeine.newBuilder().weakKeys().<E, PooledTimes> build().asMap();
+            }
+        }
+        return duration.longValue(FTimeUnit.NANOSECONDS);
+    }
+
+    private static Duration toDuration(final long nanos) {
+        if (nanos == NO_LIMIT) {
+            return null;
+        } else {
+            return new Duration(nanos, FTimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Runs the maintenance periodically on a shared background thread, null disables it. close() also stops it.
+     */
+    public synchronized void setMaintenanceInterval(final Duration interval) {
+        if (maintenanceFuture != null) {
+            maintenanceFuture.cancel(false);
+            maintenanceFuture = null;
+        }
+        if (interval == null) {
+            return;
+        }
+        throwIfClosed();
+        final long intervalMillis = interval.longValue(FTimeUnit.MILLISECONDS);
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval should be positive: " + interval);
+        }
+        maintenanceFuture = MaintenanceExecutorHolder.INSTANCE.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    maintain();
+                } catch (final Throwable t) {
+                    Err.process(t);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the maintenance once. Idle objects are taken out of the pool one at a time while they are checked, thus a
+     * concurrent borrow might create an additional object or (when maxTotal is reached) not find an idle one.
+     */
+    public void maintain() {
+        if (idleObjects == null || isClosed()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        for (int i = 0; i < stripedSlots.length(); i++) {
+            final E obj = stripedSlots.getAndSet(i, null);
+            if (obj != null && keepIdle(obj, now)) {
+                reofferIdle(obj, i);
+            }
+        }
+        //check each object that is currently idle at most once
+        final int count = idleObjects.size();
+        for (int i = 0; i < count; i++) {
+            final E obj = idleObjects.poll();
+            if (obj == null) {
+                break;
+            }
+            if (keepIdle(obj, now)) {
+                reofferIdle(obj, -1);
+            }
+        }
+        prewarm();
+    }
+
+    /**
+     * Destroys the object and returns false if it should be evicted.
+     */
+    private boolean keepIdle(final E obj, final long now) {
+        boolean keep = false;
+        try {
+            keep = isWithinLimits(obj, now) && (!testWhileIdle || validateIdle(obj));
+        } finally {
+            if (!keep) {
+                destroyObject(obj);
+            }
+        }
+        return keep;
+    }
+
+    private boolean isWithinLimits(final E obj, final long now) {
+        final ConcurrentMap<E, PooledTimes> timesCopy = times;
+        if (timesCopy == null) {
+            return true;
+        }
+        final PooledTimes pooledTimes = timesCopy.computeIfAbsent(obj, (k) -> new PooledTimes(now));
+        final long maxAgeNanosCopy = maxAgeNanos;
+        if (maxAgeNanosCopy != NO_LIMIT && now - pooledTimes.createdNanos >= maxAgeNanosCopy) {
+            return false;
+        }
+        final long maxIdleTimeNanosCopy = maxIdleTimeNanos;
+        //the checked object is not counted as idle at the moment
+        return maxIdleTimeNanosCopy == NO_LIMIT || now - pooledTimes.idleSinceNanos < maxIdleTimeNanosCopy
+                || getNumIdle() < minIdle;
+    }
+
+    private boolean validateIdle(final E obj) {
+        factory.activateObject(obj);
+        if (factory.validateObject(obj)) {
+            factory.passivateObject(obj);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Puts a checked object back without changing its idle time.
+     *
+     * @param slot
+     *            the striped slot the object came from or -1 for the shared idle objects
+     */
+    private void reofferIdle(final E obj, final int slot) {
+        if (handOffToWaiter(obj)) {
+            return;
+        }
+        if (!isClosed()) {
+            if (slot >= 0 && stripedSlots.compareAndSet(slot, null, obj)) {
+                return;
+            }
+            if (storeIdle(obj)) {
+                return;
+            }
+        }
+        destroyObject(obj);
+    }
+
+    private void prewarm() {
+        while (!isClosed() && getNumIdle() < minIdle && reserveTotal()) {
+            final E obj = makeObject();
+            if (!factory.validateObject(obj)) {
+                destroyObject(obj);
+                //don't spin on a broken factory, the next run will try again
+                return;
+            }
+            factory.passivateObject(obj);
+            final int idleBefore = getNumIdle();
+            reofferIdle(obj, -1);
+            if (getNumIdle() <= idleBefore) {
+                //handed to a waiter, destroyed or concurrently borrowed
+                return;
+            }
+        }
+    }
+
+    private int stripeIndex() {
+        return (int) Thread.currentThread().getId() & stripeMask;
+    }
+
+    @Override
+    protected E internalBorrowObject() {
+        if (idleObjects != null) {
+            final int index = stripeIndex();
+            if (stripedSlots.get(index) != null) {
+                final E local = stripedSlots.getAndSet(index, null);
+                if (local != null) {
+                    return local;
+                }
+            }
+            final E shared = idleObjects.poll();
+            if (shared != null) {
+                return shared;
+            }
+        }
+        if (!reserveTotal()) {
+            return null;
+        }
+        return makeObject();
+    }
+
+    private boolean reserveTotal() {
+        while (true) {
+            final int total = totalCount.get();
+            if (total >= maxTotal) {
+                return false;
+            }
+            if (totalCount.compareAndSet(total, total + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private E makeObject() {
+        boolean success = false;
+        try {
+            final E obj = factory.makeObject();
+            final ConcurrentMap<E, PooledTimes> timesCopy = times;
+            if (timesCopy != null) {
+                timesCopy.put(obj, new PooledTimes(System.nanoTime()));
+            }
+            success = true;
+            return obj;
+        } finally {
+            if (!success) {
+                totalCount.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    protected E internalAddObject() {
+        if (idleObjects == null) {
+            throw new IllegalStateException("maxIdle is 0, thus no objects can be added");
+        }
+        if (!reserveTotal()) {
+            throw new IllegalStateException("maxTotal [" + maxTotal + "] reached");
+        }
+        final E obj = makeObject();
+        if (!idleObjects.offer(obj)) {
+            destroyObject(obj);
+            throw new IllegalStateException("maxIdle [" + maxIdle + "] reached");
+        }
+        return obj;
+    }
+
+    /**
+     * Only gets called when the validation of an added object failed, thus it is fine to rotate the idle objects here.
+     */
+    @Override
+    protected void internalRemoveObject(final E obj) {
+        if (idleObjects == null) {
+            return;
+        }
+        final List<E> retained = new ArrayList<E>();
+        E idle;
+        while ((idle = idleObjects.poll()) != null) {
+            if (idle != obj) {
+                retained.add(idle);
+            }
+        }
+        for (int i = 0; i < retained.size(); i++) {
+            final E retain = retained.get(i);
+            if (!idleObjects.offer(retain)) {
+                destroyObject(retain);
+            }
+        }
+    }
+
+    @Override
+    protected void internalReturnObject(final E obj) {
+        if (idleObjects != null && !isClosed()) {
+            markIdle(obj);
+            if (storeIdle(obj)) {
+                return;
+            }
+        }
+        destroyObject(obj);
+    }
+
+    private void markIdle(final E obj) {
+        final ConcurrentMap<E, PooledTimes> timesCopy = times;
+        if (timesCopy != null) {
+            final long now = System.nanoTime();
+            final PooledTimes pooledTimes = timesCopy.get(obj);
+            if (pooledTimes != null) {
+                pooledTimes.idleSinceNanos = now;
+            } else {
+                timesCopy.put(obj, new PooledTimes(now));
+            }
+        }
+    }
+
+    private boolean storeIdle(final E obj) {
+        final int index = stripeIndex();
+        if (stripedSlots.get(index) == null && stripedSlots.compareAndSet(index, null, obj)) {
+            return true;
+        }
+        return idleObjects.size() < maxIdle && idleObjects.offer(obj);
+    }
+
+    @Override
+    protected void internalInvalidateObject(final E obj) {
+        //capacity is released in internalDestroyObject
+    }
+
+    @Override
+    protected void internalDestroyObject(final E obj) {
+        totalCount.decrementAndGet();
+        final ConcurrentMap<E, PooledTimes> timesCopy = times;
+        if (timesCopy != null) {
+            timesCopy.remove(obj);
+        }
+    }
+
+    @Override
+    public int getNumIdle() {
+        if (idleObjects == null) {
+            return 0;
+        }
+        int idle = idleObjects.size();
+        for (int i = 0; i < stripedSlots.length(); i++) {
+            if (stripedSlots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * The number of idle and active objects that were created and not yet destroyed.
+     */
+    public int getNumTotal() {
+        return totalCount.get();
+    }
+
+    @Override
+    public Collection<E> internalClear() {
+        final List<E> cleared = new ArrayList<E>();
+        if (idleObjects == null) {
+            return cleared;
+        }
+        for (int i = 0; i < stripedSlots.length(); i++) {
+            final E local = stripedSlots.getAndSet(i, null);
+            if (local != null) {
+                cleared.add(local);
+            }
+        }
+        E shared;
+        while ((shared = idleObjects.poll()) != null) {
+            cleared.add(shared);
+        }
+        return cleared;
+    }
+
+    @Override
+    public synchronized void close() {
+        setMaintenanceInterval(null);
+        super.close();
+    }
+
+    private static final class PooledTimes {
+        private final long createdNanos;
+        private volatile long idleSinceNanos;
+
+        private PooledTimes(final long nanos) {
+            this.createdNanos = nanos;
+            this.idleSinceNanos = nanos;
+        }
+    }
+
+    private static final class MaintenanceExecutorHolder {
+        private static final ScheduledExecutorService INSTANCE = Executors
+                .newScheduledThreadPool(BoundedObjectPool.class.getSimpleName() + "_maintenance");
+
+        private MaintenanceExecutorHolder() {}
+    }
+
+}
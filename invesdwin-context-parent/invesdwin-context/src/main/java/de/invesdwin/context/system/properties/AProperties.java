@@ -8,6 +8,7 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -21,7 +22,9 @@ import org.springframework.util.SocketUtils;
 
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.log.Log;
+import de.invesdwin.context.log.error.Err;
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.lang.Objects;
 import de.invesdwin.util.lang.Strings;
 import de.invesdwin.util.lang.uri.Addresses;
 import de.invesdwin.util.lang.uri.URIs;
@@ -32,15 +35,32 @@ import de.invesdwin.util.time.date.FDates;
 import de.invesdwin.util.time.date.FTimeUnit;
 import de.invesdwin.util.time.duration.Duration;
 
+/**
+ * By default all access is synchronized on the underlying configuration. With setSnapshotReads(true) getters instead
+ * read from an immutable snapshot of the properties that is published via a volatile reference and rebuilt lazily after
+ * writes, thus reads do not acquire any locks.
+ */
 @ThreadSafe
 public abstract class AProperties implements IProperties {
 
     public static final char LIST_DELIMITER = ',';
+    private static final IPropertiesChangeListener[] EMPTY_LISTENERS = new IPropertiesChangeListener[0];
 
     private final Log log = new Log(this);
 
     @GuardedBy("this")
     private AbstractConfiguration delegate;
+    /**
+     * Allows reloadDelegate() to detect writes that happened while it created the new configuration.
+     */
+    @GuardedBy("this")
+    private long writeCount;
+    private volatile boolean snapshotReads;
+    private volatile PropertiesSnapshot snapshot;
+    /**
+     * Copy on write since listeners are rarely changed.
+     */
+    private volatile IPropertiesChangeListener[] changeListeners = EMPTY_LISTENERS;
 
     protected abstract AbstractConfiguration createDelegate();
 
@@ -51,30 +71,195 @@ public abstract class AProperties implements IProperties {
         return delegate;
     }
 
-    private void setProperty(final String key, final String value) {
+    public boolean isSnapshotReads() {
+        return snapshotReads;
+    }
+
+    /**
+     * Enables lock free reads from an immutable snapshot. Writes through this instance invalidate the snapshot. Changes
+     * that bypass this instance (e.g. by modifying the underlying configuration directly) only become visible after
+     * invalidateSnapshot() was called.
+     */
+    public void setSnapshotReads(final boolean snapshotReads) {
+        this.snapshotReads = snapshotReads;
+        invalidateSnapshot();
+    }
+
+    /**
+     * Causes the snapshot to be rebuilt on the next read.
+     */
+    public void invalidateSnapshot() {
+        snapshot = null;
+    }
+
+    /**
+     * Can be overridden to invalidate snapshots of all instances that share the same underlying configuration.
+     */
+    protected long getSnapshotModCount() {
+        return 0L;
+    }
+
+    PropertiesSnapshot getSnapshot() {
+        final PropertiesSnapshot current = snapshot;
+        if (current != null && current.getModCount() == getSnapshotModCount()) {
+            return current;
+        }
+        synchronized (this) {
+            final PropertiesSnapshot existing = snapshot;
+            final long modCount = getSnapshotModCount();
+            if (existing != null && existing.getModCount() == modCount) {
+                return existing;
+            }
+            final PropertiesSnapshot newSnapshot = PropertiesSnapshot.newInstance(getDelegate(), this,
+                    getPropertyPrefix(), modCount);
+            snapshot = newSnapshot;
+            return newSnapshot;
+        }
+    }
+
+    /**
+     * Creates the underlying configuration again without holding the lock, swaps it (together with the snapshot) and
+     * notifies the change listeners about the keys that differ.
+     *
+     * Writes that happen concurrently are not lost: writes and the swap both hold the lock of this instance. When a
+     * write went to the old configuration while the new one was being created, the new one is created again while
+     * holding the lock, so it contains the write as long as the old configuration persisted it (e.g. FileProperties
+     * saves automatically). Writers only wait for the parsing in that rare case.
+     */
+    protected void reloadDelegate() {
+        final long writeCountBefore;
+        synchronized (this) {
+            writeCountBefore = writeCount;
+        }
+        AbstractConfiguration newDelegate = createDelegate();
+        final Set<String> changedKeys;
+        synchronized (this) {
+            if (writeCount != writeCountBefore) {
+                newDelegate = createDelegate();
+            }
+            final AbstractConfiguration oldDelegate = delegate;
+            delegate = newDelegate;
+            changedKeys = getChangedKeys(oldDelegate, newDelegate);
+            if (snapshotReads) {
+                snapshot = PropertiesSnapshot.newInstance(newDelegate, this, getPropertyPrefix(),
+                        getSnapshotModCount());
+            } else {
+                snapshot = null;
+            }
+        }
+        if (!changedKeys.isEmpty()) {
+            final IPropertiesChangeListener[] changeListenersCopy = changeListeners;
+            for (int i = 0; i < changeListenersCopy.length; i++) {
+                try {
+                    changeListenersCopy[i].onPropertiesChanged(this, changedKeys);
+                } catch (final Throwable t) {
+                    Err.process(t);
+                }
+            }
+        }
+    }
+
+    private Set<String> getChangedKeys(final AbstractConfiguration oldDelegate,
+            final AbstractConfiguration newDelegate) {
+        final Set<String> changedKeys = new LinkedHashSet<String>();
+        if (oldDelegate != null) {
+            final Iterator<String> oldKeys = oldDelegate.getKeys();
+            while (oldKeys.hasNext()) {
+                final String keyPath = oldKeys.next();
+                if (!Objects.equals(oldDelegate.getProperty(keyPath), newDelegate.getProperty(keyPath))) {
+                    maybeAddChangedKey(changedKeys, keyPath);
+                }
+            }
+        }
+        final Iterator<String> newKeys = newDelegate.getKeys();
+        while (newKeys.hasNext()) {
+            final String keyPath = newKeys.next();
+            if (oldDelegate == null || !oldDelegate.containsKey(keyPath)) {
+                maybeAddChangedKey(changedKeys, keyPath);
+            }
+        }
+        return changedKeys;
+    }
+
+    private void maybeAddChangedKey(final Set<String> changedKeys, final String keyPath) {
+        final String prefix = getPropertyPrefix();
+        if (prefix == null) {
+            changedKeys.add(keyPath);
+        } else if (keyPath.startsWith(prefix)) {
+            changedKeys.add(keyPath.substring(prefix.length()));
+        }
+    }
+
+    public synchronized void addChangeListener(final IPropertiesChangeListener listener) {
+        final int length = changeListeners.length;
+        final IPropertiesChangeListener[] newChangeListeners = new IPropertiesChangeListener[length + 1];
+        System.arraycopy(changeListeners, 0, newChangeListeners, 0, length);
+        newChangeListeners[length] = listener;
+        changeListeners = newChangeListeners;
+    }
+
+    public synchronized boolean removeChangeListener(final IPropertiesChangeListener listener) {
+        final int length = changeListeners.length;
+        for (int i = 0; i < length; i++) {
+            if (changeListeners[i] == listener) {
+                final IPropertiesChangeListener[] newChangeListeners = new IPropertiesChangeListener[length - 1];
+                System.arraycopy(changeListeners, 0, newChangeListeners, 0, i);
+                System.arraycopy(changeListeners, i + 1, newChangeListeners, i, length - 1 - i);
+                changeListeners = newChangeListeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void setProperty(final String key, final String value) {
         getDelegate().setProperty(prefix(key), value);
+        writeCount++;
+        invalidateSnapshot();
+    }
+
+    private <T> T getValue(final String key, final Class<T> type) {
+        if (snapshotReads) {
+            final PropertiesSnapshot current = getSnapshot();
+            final T value = current.getValue(key, type);
+            if (value == null && current.isThrowExceptionOnMissing()) {
+                throw newMissingException(prefix(key));
+            }
+            return value;
+        }
+        synchronized (this) {
+            final String keyPath = prefix(key);
+            return maybeThrowIfMissing(keyPath, getDelegate().get(type, keyPath, null));
+        }
     }
 
     @Override
-    public synchronized boolean containsKey(final String key) {
-        final String keyPath = prefix(key);
-        return getDelegate().containsKey(keyPath);
+    public boolean containsKey(final String key) {
+        if (snapshotReads) {
+            return getSnapshot().containsKey(key);
+        }
+        synchronized (this) {
+            final String keyPath = prefix(key);
+            return getDelegate().containsKey(keyPath);
+        }
     }
 
     @Override
-    public synchronized boolean containsValue(final String key) {
-        if (containsKey(key)) {
-            final Object property = getDelegate().getProperty(prefix(key));
-            return !Strings.isBlank(Strings.asString(property));
+    public boolean containsValue(final String key) {
+        final Object property;
+        if (snapshotReads) {
+            property = getSnapshot().getRaw(key);
         } else {
-            return false;
+            synchronized (this) {
+                property = getDelegate().getProperty(prefix(key));
+            }
         }
+        return property != null && !Strings.isBlank(Strings.asString(property));
     }
 
     @Override
-    public synchronized Boolean getBoolean(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getBoolean(keyPath, null));
+    public Boolean getBoolean(final String key) {
+        return getValue(key, Boolean.class);
     }
 
     @Override
@@ -83,9 +268,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Byte getByte(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getByte(keyPath, null));
+    public Byte getByte(final String key) {
+        return getValue(key, Byte.class);
     }
 
     @Override
@@ -94,9 +278,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Double getDouble(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getDouble(keyPath, null));
+    public Double getDouble(final String key) {
+        return getValue(key, Double.class);
     }
 
     @Override
@@ -105,9 +288,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Float getFloat(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getFloat(keyPath, null));
+    public Float getFloat(final String key) {
+        return getValue(key, Float.class);
     }
 
     @Override
@@ -116,9 +298,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Integer getInteger(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getInteger(keyPath, null));
+    public Integer getInteger(final String key) {
+        return getValue(key, Integer.class);
     }
 
     @Override
@@ -128,9 +309,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Long getLong(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getLong(keyPath, null));
+    public Long getLong(final String key) {
+        return getValue(key, Long.class);
     }
 
     @Override
@@ -139,9 +319,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Short getShort(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getShort(keyPath, null));
+    public Short getShort(final String key) {
+        return getValue(key, Short.class);
     }
 
     @Override
@@ -150,9 +329,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized BigDecimal getBigDecimal(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getBigDecimal(keyPath));
+    public BigDecimal getBigDecimal(final String key) {
+        return getValue(key, BigDecimal.class);
     }
 
     @Override
@@ -161,9 +339,8 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized BigInteger getBigInteger(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getBigInteger(keyPath));
+    public BigInteger getBigInteger(final String key) {
+        return getValue(key, BigInteger.class);
     }
 
     @Override
@@ -172,7 +349,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Decimal getDecimal(final String key) {
+    public Decimal getDecimal(final String key) {
         return Decimal.valueOf(getDouble(key));
     }
 
@@ -182,16 +359,14 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized String getString(final String key) {
-        final String keyPath = prefix(key);
-        return maybeThrowIfMissing(keyPath, getDelegate().getString(keyPath));
+    public String getString(final String key) {
+        return getValue(key, String.class);
     }
 
     @Override
-    public synchronized String getStringWithSecurityWarning(final String key, final String defaultValueWarning) {
-        final String keyPath = prefix(key);
-        final String actualValue = maybeThrowIfMissing(keyPath, getDelegate().getString(keyPath));
-        maybeLogSecurityWarning(keyPath, actualValue, defaultValueWarning);
+    public String getStringWithSecurityWarning(final String key, final String defaultValueWarning) {
+        final String actualValue = getString(key);
+        maybeLogSecurityWarning(key, actualValue, defaultValueWarning);
         return actualValue;
     }
 
@@ -206,7 +381,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized <T extends Enum<T>> T getEnum(final Class<T> enumType, final String key) {
+    public <T extends Enum<T>> T getEnum(final Class<T> enumType, final String key) {
         final String value = getString(key);
         if (value == null) {
             return null;
@@ -230,30 +405,28 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized String[] getStringArray(final String key) {
-        final String keyPath = prefix(key);
+    public String[] getStringArray(final String key) {
         //provoke exception if something is not set
-        if (getString(keyPath) == null) {
+        final String str = getString(key);
+        if (str == null) {
             return null;
         }
-        final String str = getDelegate().getString(prefix(keyPath));
         return Strings.splitPreserveAllTokens(str, LIST_DELIMITER);
     }
 
     @Override
-    public synchronized List<String> getList(final String key) {
+    public List<String> getList(final String key) {
         return Strings.asList(getStringArray(key));
     }
 
     @Override
     public synchronized void setList(final String key, final List<String> value) {
-        final String keyPath = prefix(key);
         final String valueStr = Strings.asString(value, LIST_DELIMITER);
-        getDelegate().setProperty(keyPath, valueStr);
+        setProperty(key, valueStr);
     }
 
     @Override
-    public synchronized Set<String> getSet(final String key) {
+    public Set<String> getSet(final String key) {
         final List<String> list = getList(key);
         if (list == null) {
             return null;
@@ -280,7 +453,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized FDate getDate(final String key) {
+    public FDate getDate(final String key) {
         final String value = getString(key);
         return FDate.valueOf(value, FDate.FORMAT_ISO_DATE_TIME_MS);
     }
@@ -296,7 +469,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized Duration getDuration(final String key) {
+    public Duration getDuration(final String key) {
         final String value = getString(key);
         if (value == null) {
             return null;
@@ -311,7 +484,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized URL getURL(final String key, final boolean validatePort) {
+    public URL getURL(final String key, final boolean validatePort) {
         try {
             return getURI(key, validatePort).toURL();
         } catch (final Throwable t) {
@@ -326,7 +499,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized URI getURI(final String key, final boolean validatePort) {
+    public URI getURI(final String key, final boolean validatePort) {
         final String str = getString(key);
         try {
             URI uri = URIs.asUri(str);
@@ -378,12 +551,12 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized InetAddress getInetAddress(final String key) {
+    public InetAddress getInetAddress(final String key) {
         return Addresses.asAddress(getString(key));
     }
 
     @Override
-    public synchronized InetSocketAddress getInetSocketAddress(final String key, final boolean validatePort) {
+    public InetSocketAddress getInetSocketAddress(final String key, final boolean validatePort) {
         final String value = getString(key);
         final String[] split = Strings.splitPreserveAllTokens(value, ":");
         Throwable cause = null;
@@ -411,7 +584,7 @@ public abstract class AProperties implements IProperties {
     }
 
     @Override
-    public synchronized File getFile(final String key) {
+    public File getFile(final String key) {
         final String str = getString(key);
         if (str == null) {
             return null;
@@ -464,12 +637,16 @@ public abstract class AProperties implements IProperties {
 
     private <T> T maybeThrowIfMissing(final String key, final T value) {
         if (getDelegate().isThrowExceptionOnMissing() && value == null) {
-            //CHECKSTYLE:OFF we explicitly want the stacktrace here
-            throw new NoSuchElementException('\'' + key + "' doesn't map to an existing object");
-            //CHECKSTYLE:ON
+            throw newMissingException(key);
         } else {
             return value;
         }
     }
 
+    private static NoSuchElementException newMissingException(final String key) {
+        //CHECKSTYLE:OFF we explicitly want the stacktrace here
+        return new NoSuchElementException('\'' + key + "' doesn't map to an existing object");
+        //CHECKSTYLE:ON
+    }
+
 }
@@ -1,5 +1,6 @@
 package de.invesdwin.context.system.properties;
 
+import java.io.Closeable;
 import java.io.File;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -8,43 +9,65 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URL;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 
 import de.invesdwin.util.assertions.Assertions;
-import de.invesdwin.util.lang.Objects;
-import de.invesdwin.util.lang.Optionals;
 import de.invesdwin.util.math.decimal.Decimal;
 import de.invesdwin.util.time.date.FDate;
 import de.invesdwin.util.time.duration.Duration;
 
+/**
+ * Caches the values of the delegate by key without acquiring a monitor. Cache hits are a lock free lookup without any
+ * allocation, misses are loaded once per key while concurrent readers of the same key wait for the result. Use
+ * newChangeListening(...) so that changed keys get evicted when an AProperties delegate reloads (e.g. a watched
+ * FileProperties), the listener is unregistered again on close().
+ */
 @ThreadSafe
-public final class CachingDelegateProperties implements IProperties {
+public final class CachingDelegateProperties implements IProperties, IPropertiesChangeListener, Closeable {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
 
     private final IProperties delegate;
 
-    @GuardedBy("this")
-    private final Map<String, Optional<?>> cache;
+    private final Cache<String, Optional<?>> cache;
 
     public CachingDelegateProperties(final IProperties delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachingDelegateProperties(final IProperties delegate, final int maximumSize) {
         Assertions.assertThat(delegate).isNotInstanceOf(getClass());
-        this.cache = newCache();
+        this.cache = newCache(maximumSize);
         this.delegate = delegate;
     }
 
+    public static CachingDelegateProperties newChangeListening(final AProperties delegate) {
+        return newChangeListening(delegate, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Registers the instance as a change listener of the delegate after it is fully constructed. Call close() when the
+     * instance is not needed anymore, otherwise the delegate references it forever.
+     */
+    public static CachingDelegateProperties newChangeListening(final AProperties delegate, final int maximumSize) {
+        final CachingDelegateProperties properties = new CachingDelegateProperties(delegate, maximumSize);
+        delegate.addChangeListener(properties);
+        return properties;
+    }
+
     public IProperties getDelegate() {
         return delegate;
     }
 
-    public synchronized Object removeFromCache(final String key) {
-        final Optional<?> value = cache.remove(key);
+    public Object removeFromCache(final String key) {
+        final Optional<?> value = cache.asMap().remove(key);
         if (value == null) {
             return null;
         } else {
@@ -52,8 +75,8 @@ public final class CachingDelegateProperties implements IProperties {
         }
     }
 
-    public synchronized Object putIntoCache(final String key, final Object value) {
-        final Optional<?> oldValue = cache.put(key, Optional.ofNullable(value));
+    public Object putIntoCache(final String key, final Object value) {
+        final Optional<?> oldValue = cache.asMap().put(key, Optional.ofNullable(value));
         if (oldValue == null) {
             return null;
         } else {
@@ -61,13 +84,36 @@ public final class CachingDelegateProperties implements IProperties {
         }
     }
 
-    protected Map<String, Optional<?>> newCache() {
-        return Caffeine.newBuilder().maximumSize(1000).<String, Optional<?>> build().asMap();
+    @Override
+    public void onPropertiesChanged(final AProperties properties, final Set<String> changedKeys) {
+        cache.invalidateAll(changedKeys);
+    }
+
+    /**
+     * Removes all cached values so that they get loaded from the delegate again.
+     */
+    public void clearCache() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Unregisters the change listener from the delegate (if registered) and clears the cache.
+     */
+    @Override
+    public void close() {
+        if (delegate instanceof AProperties) {
+            ((AProperties) delegate).removeChangeListener(this);
+        }
+        clearCache();
+    }
+
+    private static Cache<String, Optional<?>> newCache(final int maximumSize) {
+        return Caffeine.newBuilder().maximumSize(maximumSize).<String, Optional<?>> build();
     }
 
     @Override
-    public synchronized boolean containsKey(final String key) {
-        if (cache.containsKey(key)) {
+    public boolean containsKey(final String key) {
+        if (cache.getIfPresent(key) != null) {
             return true;
         } else {
             return delegate.containsKey(key);
@@ -75,8 +121,8 @@ public final class CachingDelegateProperties implements IProperties {
     }
 
     @Override
-    public synchronized boolean containsValue(final String key) {
-        if (cache.get(key) != null) {
+    public boolean containsValue(final String key) {
+        if (cache.getIfPresent(key) != null) {
             return true;
         } else {
             return delegate.containsValue(key);
@@ -85,17 +131,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Boolean getBoolean(final String key) {
-        return getOrLoad(key, new Callable<Boolean>() {
-            @Override
-            public Boolean call() {
-                return delegate.getBoolean(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getBoolean);
     }
 
     @Override
     public void setBoolean(final String key, final Boolean value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setBoolean(key, value);
@@ -104,42 +145,65 @@ public final class CachingDelegateProperties implements IProperties {
     }
 
     @SuppressWarnings("unchecked")
-    public synchronized <T> T getOrLoad(final String key, final Callable<T> getter) {
-        final Optional<T> existingValue = (Optional<T>) cache.get(key);
+    public <T> T getOrLoad(final String key, final Callable<T> getter) {
+        final Optional<?> existingValue = cache.getIfPresent(key);
         if (existingValue != null) {
-            return existingValue.orElse(null);
-        } else {
+            return (T) existingValue.orElse(null);
+        }
+        return (T) cache.get(key, (k) -> {
             try {
-                final T newValue = getter.call();
-                Assertions.assertThat(cache.put(key, Optional.ofNullable(newValue))).isNull();
-                return newValue;
+                return Optional.ofNullable(getter.call());
             } catch (final Exception e) {
                 throw new RuntimeException(e);
             }
+        }).orElse(null);
+    }
+
+    /**
+     * The loader does not capture any state, thus no allocation happens on a cache hit.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getOrLoad(final String key, final ILoader<T> loader) {
+        final Optional<?> existingValue = cache.getIfPresent(key);
+        if (existingValue != null) {
+            return (T) existingValue.orElse(null);
         }
+        return (T) cache.get(key, (k) -> Optional.ofNullable(loader.load(delegate, k))).orElse(null);
     }
 
-    private synchronized <T> void set(final String key, final T value, final Runnable setter) {
-        final Optional<T> next = Optional.ofNullable(value);
-        final Optional<?> prev = cache.put(key, next);
-        if (!Objects.equals(Optionals.orNull(prev), Optionals.orNull(next))) {
-            setter.run();
+    @SuppressWarnings("unchecked")
+    private <T, A> T getOrLoad(final String key, final A argument, final IArgumentLoader<T, A> loader) {
+        final Optional<?> existingValue = cache.getIfPresent(key);
+        if (existingValue != null) {
+            return (T) existingValue.orElse(null);
         }
+        return (T) cache.get(key, (k) -> Optional.ofNullable(loader.load(delegate, k, argument))).orElse(null);
+    }
+
+    /**
+     * The setter of the delegate is called outside of any cache lock (it might e.g. trigger an auto save of
+     * FileProperties) and the key is invalidated afterwards. A concurrent load of the same key holds the lock of that
+     * key, thus the invalidation waits for it and the cache can not keep a value that is older than the delegate. The
+     * setter is always called, comparing against the cached value could skip a write that comes after a concurrent one.
+     */
+    private void set(final String key, final Runnable setter) {
+        setter.run();
+        cache.invalidate(key);
+    }
+
+    long getEstimatedCacheSize() {
+        cache.cleanUp();
+        return cache.estimatedSize();
     }
 
     @Override
     public Byte getByte(final String key) {
-        return getOrLoad(key, new Callable<Byte>() {
-            @Override
-            public Byte call() {
-                return delegate.getByte(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getByte);
     }
 
     @Override
     public void setByte(final String key, final Byte value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setByte(key, value);
@@ -149,17 +213,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Double getDouble(final String key) {
-        return getOrLoad(key, new Callable<Double>() {
-            @Override
-            public Double call() {
-                return delegate.getDouble(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getDouble);
     }
 
     @Override
     public void setDouble(final String key, final Double value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setDouble(key, value);
@@ -169,17 +228,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Float getFloat(final String key) {
-        return getOrLoad(key, new Callable<Float>() {
-            @Override
-            public Float call() {
-                return delegate.getFloat(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getFloat);
     }
 
     @Override
     public void setFloat(final String key, final Float value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setFloat(key, value);
@@ -189,17 +243,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Integer getInteger(final String key) {
-        return getOrLoad(key, new Callable<Integer>() {
-            @Override
-            public Integer call() {
-                return delegate.getInteger(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getInteger);
     }
 
     @Override
     public void setInteger(final String key, final Integer value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setInteger(key, value);
@@ -209,17 +258,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Long getLong(final String key) {
-        return getOrLoad(key, new Callable<Long>() {
-            @Override
-            public Long call() {
-                return delegate.getLong(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getLong);
     }
 
     @Override
     public void setLong(final String key, final Long value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setLong(key, value);
@@ -229,17 +273,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Short getShort(final String key) {
-        return getOrLoad(key, new Callable<Short>() {
-            @Override
-            public Short call() {
-                return delegate.getShort(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getShort);
     }
 
     @Override
     public void setShort(final String key, final Short value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setShort(key, value);
@@ -249,17 +288,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public BigDecimal getBigDecimal(final String key) {
-        return getOrLoad(key, new Callable<BigDecimal>() {
-            @Override
-            public BigDecimal call() {
-                return delegate.getBigDecimal(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getBigDecimal);
     }
 
     @Override
     public void setBigDecimal(final String key, final BigDecimal value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setBigDecimal(key, value);
@@ -269,17 +303,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public BigInteger getBigInteger(final String key) {
-        return getOrLoad(key, new Callable<BigInteger>() {
-            @Override
-            public BigInteger call() {
-                return delegate.getBigInteger(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getBigInteger);
     }
 
     @Override
     public void setBigInteger(final String key, final BigInteger value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setBigInteger(key, value);
@@ -289,17 +318,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Decimal getDecimal(final String key) {
-        return getOrLoad(key, new Callable<Decimal>() {
-            @Override
-            public Decimal call() {
-                return delegate.getDecimal(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getDecimal);
     }
 
     @Override
     public void setDecimal(final String key, final Decimal value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setDecimal(key, value);
@@ -309,37 +333,22 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public String getString(final String key) {
-        return getOrLoad(key, new Callable<String>() {
-            @Override
-            public String call() {
-                return delegate.getString(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getString);
     }
 
     @Override
     public String getStringWithSecurityWarning(final String key, final String defaultPasswordWarning) {
-        return getOrLoad(key, new Callable<String>() {
-            @Override
-            public String call() {
-                return delegate.getStringWithSecurityWarning(key, defaultPasswordWarning);
-            }
-        });
+        return getOrLoad(key, defaultPasswordWarning, IProperties::getStringWithSecurityWarning);
     }
 
     @Override
     public <T extends Enum<T>> T getEnum(final Class<T> enumType, final String key) {
-        return getOrLoad(key, new Callable<T>() {
-            @Override
-            public T call() {
-                return delegate.getEnum(enumType, key);
-            }
-        });
+        return getOrLoad(key, enumType, (d, k, t) -> d.getEnum(t, k));
     }
 
     @Override
     public void setEnum(final String key, final Enum<?> value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setEnum(key, value);
@@ -349,7 +358,7 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public void setString(final String key, final String value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setString(key, value);
@@ -359,27 +368,17 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public String[] getStringArray(final String key) {
-        return getOrLoad(key, new Callable<String[]>() {
-            @Override
-            public String[] call() {
-                return delegate.getStringArray(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getStringArray);
     }
 
     @Override
     public List<String> getList(final String key) {
-        return getOrLoad(key, new Callable<List<String>>() {
-            @Override
-            public List<String> call() {
-                return delegate.getList(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getList);
     }
 
     @Override
     public void setList(final String key, final List<String> value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setList(key, value);
@@ -389,17 +388,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Set<String> getSet(final String key) {
-        return getOrLoad(key, new Callable<Set<String>>() {
-            @Override
-            public Set<String> call() {
-                return delegate.getSet(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getSet);
     }
 
     @Override
     public void setSet(final String key, final Set<String> value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setSet(key, value);
@@ -409,17 +403,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public FDate getDate(final String key) {
-        return getOrLoad(key, new Callable<FDate>() {
-            @Override
-            public FDate call() {
-                return delegate.getDate(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getDate);
     }
 
     @Override
     public void setDate(final String key, final FDate value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setDate(key, value);
@@ -429,17 +418,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public Duration getDuration(final String key) {
-        return getOrLoad(key, new Callable<Duration>() {
-            @Override
-            public Duration call() {
-                return delegate.getDuration(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getDuration);
     }
 
     @Override
     public void setDuration(final String key, final Duration value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setDuration(key, value);
@@ -449,17 +433,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public URL getURL(final String key, final boolean validatePort) {
-        return getOrLoad(key, new Callable<URL>() {
-            @Override
-            public URL call() {
-                return delegate.getURL(key, validatePort);
-            }
-        });
+        return getOrLoad(key, validatePort, IProperties::getURL);
     }
 
     @Override
     public void setURL(final String key, final URL value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setURL(key, value);
@@ -469,17 +448,12 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public URI getURI(final String key, final boolean validatePort) {
-        return getOrLoad(key, new Callable<URI>() {
-            @Override
-            public URI call() {
-                return delegate.getURI(key, validatePort);
-            }
-        });
+        return getOrLoad(key, validatePort, IProperties::getURI);
     }
 
     @Override
     public void setURI(final String key, final URI value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setURI(key, value);
@@ -489,47 +463,27 @@ public final class CachingDelegateProperties implements IProperties {
 
     @Override
     public InetAddress getInetAddress(final String key) {
-        return getOrLoad(key, new Callable<InetAddress>() {
-            @Override
-            public InetAddress call() {
-                return delegate.getInetAddress(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getInetAddress);
     }
 
     @Override
     public Integer getPort(final String key, final boolean validatePort) {
-        return getOrLoad(key, new Callable<Integer>() {
-            @Override
-            public Integer call() {
-                return delegate.getPort(key, validatePort);
-            }
-        });
+        return getOrLoad(key, validatePort, IProperties::getPort);
     }
 
     @Override
     public InetSocketAddress getInetSocketAddress(final String key, final boolean validatePort) {
-        return getOrLoad(key, new Callable<InetSocketAddress>() {
-            @Override
-            public InetSocketAddress call() {
-                return delegate.getInetSocketAddress(key, validatePort);
-            }
-        });
+        return getOrLoad(key, validatePort, IProperties::getInetSocketAddress);
     }
 
     @Override
     public File getFile(final String key) {
-        return getOrLoad(key, new Callable<File>() {
-            @Override
-            public File call() {
-                return delegate.getFile(key);
-            }
-        });
+        return getOrLoad(key, IProperties::getFile);
     }
 
     @Override
     public void setFile(final String key, final File value) {
-        set(key, value, new Runnable() {
+        set(key, new Runnable() {
             @Override
             public void run() {
                 delegate.setFile(key, value);
@@ -548,4 +502,14 @@ public final class CachingDelegateProperties implements IProperties {
         return delegate.getErrorMessage(key, value, expectedType, message);
     }
 
+    @FunctionalInterface
+    private interface ILoader<T> {
+        T load(IProperties delegate, String key);
+    }
+
+    @FunctionalInterface
+    private interface IArgumentLoader<T, A> {
+        T load(IProperties delegate, String key, A argument);
+    }
+
 }
@@ -2,6 +2,7 @@ package de.invesdwin.context.system.properties;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -17,11 +18,17 @@ import de.invesdwin.util.lang.Files;
 public class FileProperties extends AProperties {
 
     private final File file;
+    private volatile boolean watched;
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
 
     public FileProperties(final File file) {
         this.file = file;
     }
 
+    public File getFile() {
+        return file;
+    }
+
     @Override
     protected AbstractConfiguration createDelegate() {
         final FileBasedConfigurationBuilder<PropertiesConfiguration> builder = new FileBasedConfigurationBuilder<>(
@@ -39,4 +46,41 @@ public class FileProperties extends AProperties {
         }
     }
 
+    public boolean isWatched() {
+        return watched;
+    }
+
+    /**
+     * When watched, external modifications of the file are detected via a WatchService. The file then gets parsed again
+     * in the background, the snapshot is swapped and change listeners are notified (e.g. CachingDelegateProperties).
+     * This also enables snapshot reads so that reads do not need to access the file system. Set this to false again to
+     * stop watching, otherwise the instance is referenced by the watcher forever.
+     */
+    public synchronized void setWatched(final boolean watched) {
+        if (this.watched == watched) {
+            return;
+        }
+        if (watched) {
+            setSnapshotReads(true);
+            FilePropertiesWatcher.INSTANCE.register(this);
+        } else {
+            FilePropertiesWatcher.INSTANCE.unregister(this);
+        }
+        this.watched = watched;
+    }
+
+    /**
+     * Returns false if a reload is already pending.
+     */
+    boolean markReloadScheduled() {
+        return reloadScheduled.compareAndSet(false, true);
+    }
+
+    void reload() {
+        reloadScheduled.set(false);
+        if (watched) {
+            reloadDelegate();
+        }
+    }
+
 }
@@ -0,0 +1,174 @@
+package de.invesdwin.context.system.properties;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+/**
+ * Watches the directories of FileProperties instances with a single WatchService. Modifications are debounced so that a
+ * burst of events (e.g. an editor that truncates and then writes the file) only causes one reload.
+ */
+@ThreadSafe
+final class FilePropertiesWatcher {
+
+    public static final FilePropertiesWatcher INSTANCE = new FilePropertiesWatcher();
+
+    private static final long RELOAD_DELAY_MILLIS = 100;
+
+    @GuardedBy("this")
+    private WatchService watchService;
+    @GuardedBy("this")
+    private WrappedExecutorService watchExecutor;
+    @GuardedBy("this")
+    private ScheduledExecutorService reloadExecutor;
+    @GuardedBy("this")
+    private final Map<Path, WatchKey> directoryWatchKeys = new HashMap<Path, WatchKey>();
+    @GuardedBy("this")
+    private final Map<Path, Set<FileProperties>> fileProperties = new HashMap<Path, Set<FileProperties>>();
+
+    private FilePropertiesWatcher() {}
+
+    private static Path toPath(final FileProperties properties) {
+        return properties.getFile().toPath().toAbsolutePath().normalize();
+    }
+
+    public synchronized void register(final FileProperties properties) {
+        final Path file = toPath(properties);
+        final Path directory = file.getParent();
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                reloadExecutor = Executors
+                        .newScheduledThreadPool(FilePropertiesWatcher.class.getSimpleName() + "_reload");
+                watchExecutor = Executors.newFixedThreadPool(FilePropertiesWatcher.class.getSimpleName(), 1);
+                final WatchService watchServiceCopy = watchService;
+                watchExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        watch(watchServiceCopy);
+                    }
+                });
+            }
+            if (!directoryWatchKeys.containsKey(directory)) {
+                //editors might replace the file instead of modifying it
+                final WatchKey watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                directoryWatchKeys.put(directory, watchKey);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        Set<FileProperties> watchedProperties = fileProperties.get(file);
+        if (watchedProperties == null) {
+            watchedProperties = new LinkedHashSet<FileProperties>();
+            fileProperties.put(file, watchedProperties);
+        }
+        watchedProperties.add(properties);
+    }
+
+    public synchronized void unregister(final FileProperties properties) {
+        final Path file = toPath(properties);
+        final Set<FileProperties> watchedProperties = fileProperties.get(file);
+        if (watchedProperties == null || !watchedProperties.remove(properties)) {
+            return;
+        }
+        if (watchedProperties.isEmpty()) {
+            fileProperties.remove(file);
+        }
+        final Path directory = file.getParent();
+        for (final Path watchedFile : fileProperties.keySet()) {
+            if (watchedFile.getParent().equals(directory)) {
+                return;
+            }
+        }
+        final WatchKey watchKey = directoryWatchKeys.remove(directory);
+        if (watchKey != null) {
+            watchKey.cancel();
+        }
+        if (directoryWatchKeys.isEmpty()) {
+            stop();
+        }
+    }
+
+    @GuardedBy("this")
+    private void stop() {
+        try {
+            watchService.close();
+        } catch (final IOException e) {
+            Err.process(e);
+        }
+        watchService = null;
+        watchExecutor.shutdownNow();
+        watchExecutor = null;
+        reloadExecutor.shutdown();
+        reloadExecutor = null;
+    }
+
+    private void watch(final WatchService watchService) {
+        while (true) {
+            final WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (final InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            final Path directory = (Path) watchKey.watchable();
+            for (final WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    scheduleReloads(directory, null);
+                } else {
+                    scheduleReloads(directory, directory.resolve((Path) event.context()));
+                }
+            }
+            watchKey.reset();
+        }
+    }
+
+    /**
+     * @param file
+     *            null to reload all files of the directory
+     */
+    private synchronized void scheduleReloads(final Path directory, final Path file) {
+        if (reloadExecutor == null) {
+            return;
+        }
+        for (final Map.Entry<Path, Set<FileProperties>> entry : fileProperties.entrySet()) {
+            final Path watchedFile = entry.getKey();
+            if (file == null && watchedFile.getParent().equals(directory) || watchedFile.equals(file)) {
+                for (final FileProperties properties : entry.getValue()) {
+                    if (properties.markReloadScheduled()) {
+                        reloadExecutor.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    properties.reload();
+                                } catch (final Throwable t) {
+                                    Err.process(t);
+                                }
+                            }
+                        }, RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package de.invesdwin.context.system.properties;
+
+import java.util.Set;
+
+public interface IPropertiesChangeListener {
+
+    /**
+     * Gets called after the underlying configuration got reloaded (e.g. because the file was modified externally).
+     * 
+     * @param changedKeys
+     *            the added, modified and removed keys without the property prefix
+     */
+    void onPropertiesChanged(AProperties properties, Set<String> changedKeys);
+
+}
@@ -0,0 +1,11 @@
+package de.invesdwin.context.system.properties;
+
+/**
+ * Usually a method reference to one of the getters of IProperties, e.g. IProperties::getDuration.
+ */
+@FunctionalInterface
+public interface IPropertyGetter<T> {
+
+    T get(IProperties properties, String key);
+
+}
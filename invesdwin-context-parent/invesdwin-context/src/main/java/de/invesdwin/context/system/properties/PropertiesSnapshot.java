@@ -0,0 +1,179 @@
+package de.invesdwin.context.system.properties;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+
+/**
+ * An immutable copy of the raw values of a configuration below a given prefix. Entries are stored without the prefix so
+ * that lookups do not need to concatenate strings. Typed values are converted on the first access per type and then
+ * memorized in the entry, thus a lookup in the hot path is a single hash probe.
+ */
+@ThreadSafe
+final class PropertiesSnapshot {
+
+    private static final int MAX_RETRIES = 10;
+
+    private final AbstractConfiguration delegate;
+    private final Object conversionLock;
+    private final String prefix;
+    private final Map<String, Entry> entries;
+    private final long modCount;
+
+    private PropertiesSnapshot(final AbstractConfiguration delegate, final Object conversionLock, final String prefix,
+            final Map<String, Entry> entries, final long modCount) {
+        this.delegate = delegate;
+        this.conversionLock = conversionLock;
+        this.prefix = prefix;
+        this.entries = entries;
+        this.modCount = modCount;
+    }
+
+    /**
+     * Should be called while holding the conversionLock so that no writes happen concurrently.
+     */
+    static PropertiesSnapshot newInstance(final AbstractConfiguration delegate, final Object conversionLock,
+            final String prefix, final long modCount) {
+        final String prefixNotNull;
+        if (prefix == null) {
+            prefixNotNull = "";
+        } else {
+            prefixNotNull = prefix;
+        }
+        int retry = 0;
+        while (true) {
+            try {
+                final Map<String, Entry> entries = new HashMap<String, Entry>();
+                final Iterator<String> keys = delegate.getKeys();
+                while (keys.hasNext()) {
+                    final String keyPath = keys.next();
+                    if (keyPath.startsWith(prefixNotNull)) {
+                        final Object raw = delegate.getProperty(keyPath);
+                        if (raw != null) {
+                            entries.put(keyPath.substring(prefixNotNull.length()), new Entry(raw));
+                        }
+                    }
+                }
+                return new PropertiesSnapshot(delegate, conversionLock, prefixNotNull, entries, modCount);
+            } catch (final ConcurrentModificationException e) {
+                //system properties might be modified by other code without going through the lock
+                retry++;
+                if (retry >= MAX_RETRIES) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public long getModCount() {
+        return modCount;
+    }
+
+    public boolean isThrowExceptionOnMissing() {
+        return delegate.isThrowExceptionOnMissing();
+    }
+
+    /**
+     * Accepts the key with or without the prefix.
+     */
+    private Entry getEntry(final String key) {
+        final Entry entry = entries.get(key);
+        if (entry == null && prefix.length() > 0 && key.startsWith(prefix)) {
+            return entries.get(key.substring(prefix.length()));
+        }
+        return entry;
+    }
+
+    public boolean containsKey(final String key) {
+        return getEntry(key) != null;
+    }
+
+    public Object getRaw(final String key) {
+        final Entry entry = getEntry(key);
+        if (entry == null) {
+            return null;
+        } else {
+            return entry.raw;
+        }
+    }
+
+    public <T> T getValue(final String key, final Class<T> type) {
+        final Entry entry = getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        final T existing = entry.getConverted(type);
+        if (existing != null) {
+            return existing;
+        }
+        final T converted;
+        synchronized (conversionLock) {
+            //interpolation might look up other values of the configuration
+            converted = delegate.getConversionHandler().to(entry.raw, type, delegate.getInterpolator());
+        }
+        if (converted != null) {
+            entry.putConverted(type, converted);
+        }
+        return converted;
+    }
+
+    @ThreadSafe
+    private static final class Entry {
+
+        private static final Converted[] EMPTY = new Converted[0];
+
+        private final Object raw;
+        /**
+         * Copy on write, usually a property is only read as one type.
+         */
+        private volatile Converted[] converted = EMPTY;
+
+        private Entry(final Object raw) {
+            this.raw = raw;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T getConverted(final Class<T> type) {
+            final Converted[] convertedCopy = converted;
+            for (int i = 0; i < convertedCopy.length; i++) {
+                final Converted c = convertedCopy[i];
+                if (c.type == type) {
+                    return (T) c.value;
+                }
+            }
+            return null;
+        }
+
+        private synchronized void putConverted(final Class<?> type, final Object value) {
+            final Converted[] convertedCopy = converted;
+            for (int i = 0; i < convertedCopy.length; i++) {
+                if (convertedCopy[i].type == type) {
+                    return;
+                }
+            }
+            final Converted[] newConverted = new Converted[convertedCopy.length + 1];
+            System.arraycopy(convertedCopy, 0, newConverted, 0, convertedCopy.length);
+            newConverted[convertedCopy.length] = new Converted(type, value);
+            converted = newConverted;
+        }
+
+    }
+
+    private static final class Converted {
+
+        private final Class<?> type;
+        private final Object value;
+
+        private Converted(final Class<?> type, final Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+    }
+
+}
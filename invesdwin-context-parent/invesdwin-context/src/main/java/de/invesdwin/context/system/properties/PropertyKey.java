@@ -0,0 +1,97 @@
+package de.invesdwin.context.system.properties;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A typed handle for a property that is declared once (typically as a constant). When the properties have snapshot
+ * reads enabled, the parsed value is cached until the properties change. Thus reads only compare the current snapshot
+ * of the properties with the one the value was resolved against instead of prefixing the key, looking it up and
+ * converting the value again. Without snapshot reads every read is delegated to the properties. The value is resolved
+ * when the key is created, so missing or malformed properties already fail during startup.
+ */
+@ThreadSafe
+public final class PropertyKey<T> {
+
+    private final AProperties properties;
+    private final String key;
+    private final IPropertyGetter<T> getter;
+    private final T defaultValue;
+    private volatile Resolved<T> resolved;
+
+    private PropertyKey(final AProperties properties, final String key, final IPropertyGetter<T> getter,
+            final T defaultValue) {
+        this.properties = properties;
+        this.key = key;
+        this.getter = getter;
+        this.defaultValue = defaultValue;
+        get();
+    }
+
+    /**
+     * Throws an exception if the property is missing.
+     */
+    public static <T> PropertyKey<T> of(final AProperties properties, final String key,
+            final IPropertyGetter<T> getter) {
+        return new PropertyKey<T>(properties, key, getter, null);
+    }
+
+    /**
+     * Uses the default value if the property is missing or blank.
+     */
+    public static <T> PropertyKey<T> of(final AProperties properties, final String key,
+            final IPropertyGetter<T> getter, final T defaultValue) {
+        return new PropertyKey<T>(properties, key, getter, defaultValue);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    public T get() {
+        if (!properties.isSnapshotReads()) {
+            //building a snapshot just for the identity check would defeat the purpose
+            return resolve();
+        }
+        final Resolved<T> resolvedCopy = resolved;
+        final PropertiesSnapshot snapshot = properties.getSnapshot();
+        if (resolvedCopy != null && resolvedCopy.snapshot == snapshot) {
+            return resolvedCopy.value;
+        }
+        //a concurrent change is detected on the next read since the older snapshot is remembered
+        final T value = resolve();
+        resolved = new Resolved<T>(snapshot, value);
+        return value;
+    }
+
+    private T resolve() {
+        if (defaultValue != null && !properties.containsValue(key)) {
+            return defaultValue;
+        } else {
+            return getter.get(properties, key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    @Immutable
+    private static final class Resolved<T> {
+
+        private final PropertiesSnapshot snapshot;
+        private final T value;
+
+        private Resolved(final PropertiesSnapshot snapshot, final T value) {
+            this.snapshot = snapshot;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -28,6 +29,11 @@ import de.invesdwin.util.assertions.Assertions;
 @NotThreadSafe
 public class SystemProperties extends AProperties {
 
+    /**
+     * Shared between all instances since they all operate on the same system properties.
+     */
+    private static final AtomicLong SNAPSHOT_MOD_COUNT = new AtomicLong();
+
     private final String prefix;
 
     static {
@@ -72,6 +78,25 @@ public class SystemProperties extends AProperties {
         return prefix;
     }
 
+    @Override
+    public void invalidateSnapshot() {
+        super.invalidateSnapshot();
+        invalidateSnapshots();
+    }
+
+    @Override
+    protected long getSnapshotModCount() {
+        return SNAPSHOT_MOD_COUNT.get();
+    }
+
+    /**
+     * Should be called after system properties were modified without using this class (e.g. via System.setProperty) so
+     * that instances with snapshot reads see the change.
+     */
+    public static void invalidateSnapshots() {
+        SNAPSHOT_MOD_COUNT.incrementAndGet();
+    }
+
     /**
      * Should only be used by infrastructure classes.
      */
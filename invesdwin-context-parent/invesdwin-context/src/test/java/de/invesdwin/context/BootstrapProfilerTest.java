@@ -0,0 +1,83 @@
+package de.invesdwin.context;
+
+import java.io.File;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+@NotThreadSafe
+public class BootstrapProfilerTest extends ATest {
+
+    @Test
+    public void testTimeline() {
+        Assertions.checkTrue(BootstrapProfiler.isEnabled());
+        final BootstrapProfiler.Phase outer = BootstrapProfiler.start("testTimeline outer");
+        final BootstrapProfiler.Phase inner = BootstrapProfiler.start("testTimeline inner");
+        inner.end();
+        outer.end();
+        BootstrapProfiler.Record outerRecord = null;
+        BootstrapProfiler.Record innerRecord = null;
+        for (final BootstrapProfiler.Record record : BootstrapProfiler.getRecords()) {
+            if ("testTimeline outer".equals(record.getName())) {
+                outerRecord = record;
+            } else if ("testTimeline inner".equals(record.getName())) {
+                innerRecord = record;
+            }
+        }
+        Assertions.checkNotNull(outerRecord);
+        Assertions.checkNotNull(innerRecord);
+        Assertions.assertThat(innerRecord.getDepth()).isEqualTo(outerRecord.getDepth() + 1);
+        Assertions.assertThat(innerRecord.getWallNanos()).isLessThanOrEqualTo(outerRecord.getWallNanos());
+
+        BootstrapProfiler.writeTimeline();
+        final File json = new File(ContextProperties.getLogDirectory(), BootstrapProfiler.FILE_NAME + ".json");
+        Assertions.checkTrue(json.exists());
+    }
+
+    @Test
+    public void testFailingPhaseKeepsDepth() {
+        final BootstrapProfiler.Phase failing = BootstrapProfiler.start("testFailingPhaseKeepsDepth failing");
+        try {
+            try {
+                throw new IllegalStateException("failing phase");
+            } finally {
+                failing.end();
+            }
+        } catch (final IllegalStateException e) {
+            //expected
+        }
+        BootstrapProfiler.start("testFailingPhaseKeepsDepth after").end();
+        Assertions.assertThat(getRecord("testFailingPhaseKeepsDepth after").getDepth())
+                .isEqualTo(getRecord("testFailingPhaseKeepsDepth failing").getDepth());
+    }
+
+    @Test
+    public void testBootstrapStartedDiscardsPreviousPhases() {
+        //the first call only marks the bootstrap as started if this did not happen already
+        BootstrapProfiler.bootstrapStarted();
+        final BootstrapProfiler.Phase straggler = BootstrapProfiler.start("testBootstrapStarted straggler");
+        BootstrapProfiler.start("testBootstrapStarted previous").end();
+        Assertions.checkNotNull(getRecord("testBootstrapStarted previous"));
+
+        BootstrapProfiler.bootstrapStarted();
+        straggler.end();
+        BootstrapProfiler.start("testBootstrapStarted current").end();
+        Assertions.checkNull(getRecord("testBootstrapStarted previous"));
+        Assertions.checkNull(getRecord("testBootstrapStarted straggler"));
+        Assertions.checkNotNull(getRecord("testBootstrapStarted current"));
+    }
+
+    private static BootstrapProfiler.Record getRecord(final String name) {
+        for (final BootstrapProfiler.Record record : BootstrapProfiler.getRecords()) {
+            if (name.equals(record.getName())) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+}
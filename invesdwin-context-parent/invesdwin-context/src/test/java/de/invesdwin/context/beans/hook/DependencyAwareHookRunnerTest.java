@@ -0,0 +1,155 @@
+package de.invesdwin.context.beans.hook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+@NotThreadSafe
+public class DependencyAwareHookRunnerTest extends ATest {
+
+    private static final DependencyAwareHookRunner.IHookInvoker<IPreStartupHook> INVOKER = new DependencyAwareHookRunner.IHookInvoker<IPreStartupHook>() {
+        @Override
+        public void invoke(final IPreStartupHook hook) throws Exception {
+            hook.preStartup();
+        }
+    };
+    private static final Predicate<IPreStartupHook> PARALLEL = new Predicate<IPreStartupHook>() {
+        @Override
+        public boolean test(final IPreStartupHook hook) {
+            return hook instanceof IParallelPreStartupHook;
+        }
+    };
+
+    private final List<String> called = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void testDependencies() throws InterruptedException {
+        final List<IPreStartupHook> hooks = Arrays.asList(new ThirdHook(), new SecondHook(), new FirstHook(),
+                new IndependentHook());
+        final WrappedExecutorService executor = Executors
+                .newFixedThreadPool(DependencyAwareHookRunnerTest.class.getSimpleName(), 2);
+        new DependencyAwareHookRunner<IPreStartupHook>("test", hooks, INVOKER).run(executor, PARALLEL,
+                new Predicate<IPreStartupHook>() {
+                    @Override
+                    public boolean test(final IPreStartupHook hook) {
+                        return true;
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        executor.shutdown();
+                    }
+                }, null);
+        Assertions.assertThat(called).hasSize(4);
+        Assertions.assertThat(called.indexOf("first")).isLessThan(called.indexOf("second"));
+        Assertions.assertThat(called.indexOf("second")).isLessThan(called.indexOf("third"));
+        Assertions.checkTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void testNotAwaited() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch allFinished = new CountDownLatch(1);
+        final IParallelPreStartupHook straggler = new IParallelPreStartupHook() {
+            @Override
+            public void preStartup() throws Exception {
+                release.await();
+                called.add("straggler");
+            }
+        };
+        final List<IPreStartupHook> hooks = Arrays.asList(straggler, new ThirdHook(), new SecondHook(),
+                new FirstHook());
+        final WrappedExecutorService executor = Executors
+                .newFixedThreadPool(DependencyAwareHookRunnerTest.class.getSimpleName(), 2);
+        new DependencyAwareHookRunner<IPreStartupHook>("test", hooks, INVOKER).run(executor, PARALLEL,
+                new Predicate<IPreStartupHook>() {
+                    @Override
+                    public boolean test(final IPreStartupHook hook) {
+                        return hook != straggler;
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        executor.shutdown();
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        allFinished.countDown();
+                    }
+                });
+        Assertions.assertThat(called).containsExactly("first", "second", "third");
+        //all hooks were submitted, thus the executor is shut down while the straggler is still running
+        Assertions.checkTrue(executor.isShutdown());
+        Assertions.assertThat(allFinished.getCount()).isEqualTo(1);
+        release.countDown();
+        Assertions.checkTrue(allFinished.await(10, TimeUnit.SECONDS));
+        Assertions.assertThat(called).containsExactly("first", "second", "third", "straggler");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCycle() {
+        new DependencyAwareHookRunner<IPreStartupHook>("test", Arrays.asList(new CycleOneHook(), new CycleTwoHook()),
+                INVOKER);
+    }
+
+    private class FirstHook implements IParallelPreStartupHook {
+        @Override
+        public void preStartup() throws Exception {
+            Thread.sleep(50);
+            called.add("first");
+        }
+    }
+
+    @HookDependsOn(FirstHook.class)
+    private class SecondHook implements IParallelPreStartupHook {
+        @Override
+        public void preStartup() throws Exception {
+            called.add("second");
+        }
+    }
+
+    /**
+     * Gets called on the current thread.
+     */
+    @HookDependsOn(SecondHook.class)
+    private class ThirdHook implements IPreStartupHook {
+        @Override
+        public void preStartup() throws Exception {
+            called.add("third");
+        }
+    }
+
+    private class IndependentHook implements IParallelPreStartupHook {
+        @Override
+        public void preStartup() throws Exception {
+            called.add("independent");
+        }
+    }
+
+    @HookDependsOn(CycleTwoHook.class)
+    private class CycleOneHook implements IPreStartupHook {
+        @Override
+        public void preStartup() throws Exception {}
+    }
+
+    @HookDependsOn(CycleOneHook.class)
+    private class CycleTwoHook implements IPreStartupHook {
+        @Override
+        public void preStartup() throws Exception {}
+    }
+
+}
@@ -1,5 +1,13 @@
 package de.invesdwin.context.jcache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.cache.Cache;
 
@@ -7,6 +15,10 @@ import org.junit.Test;
 
 import de.invesdwin.context.test.ATest;
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
 
 // CHECKSTYLE:OFF abstract
 @NotThreadSafe
@@ -31,4 +43,161 @@ public class ACacheMapTest extends ATest {
         Assertions.assertThat(map.size()).isEqualTo(1);
     }
 
+    @Test
+    public void testSizeWithUpdate() {
+        final ACacheMap<Integer, String> map = new ACacheMap<Integer, String>() {
+            @Override
+            protected Cache<Integer, String> createDelegate() {
+                return new CacheBuilder<Integer, String>().withUniqueName(ACacheMapTest.class.getName())
+                        .withMaximumSize(1000)
+                        .create();
+            }
+        };
+        map.put(1, "one");
+        map.put(1, "uno");
+        Assertions.assertThat(map.size()).isEqualTo(1);
+        map.remove(1);
+        map.remove(1);
+        Assertions.assertThat(map.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSizeEstimated() {
+        final ACacheMap<Integer, String> map = new ACacheMap<Integer, String>() {
+            @Override
+            protected Cache<Integer, String> createDelegate() {
+                return new CacheBuilder<Integer, String>().withUniqueName(ACacheMapTest.class.getName())
+                        .withMaximumSize(1000)
+                        .create();
+            }
+
+            @Override
+            protected boolean isSizeEstimated() {
+                return true;
+            }
+        };
+        Assertions.assertThat(map.size()).isEqualTo(0);
+        map.put(1, "one");
+        map.put(2, "two");
+        Assertions.assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testComputeIfAbsentSingleFlight() throws Exception {
+        final ACacheMap<Integer, String> map = new ACacheMap<Integer, String>() {
+            @Override
+            protected Cache<Integer, String> createDelegate() {
+                return new CacheBuilder<Integer, String>().withUniqueName(ACacheMapTest.class.getName())
+                        .withMaximumSize(1000)
+                        .create();
+            }
+        };
+        final AtomicInteger loads = new AtomicInteger();
+        final WrappedExecutorService executor = Executors.newFixedThreadPool("testComputeIfAbsentSingleFlight", 10);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    final String value = map.computeIfAbsent(1, new Function<Integer, String>() {
+                        @Override
+                        public String apply(final Integer t) {
+                            loads.incrementAndGet();
+                            return "one";
+                        }
+                    });
+                    Assertions.assertThat(value).isEqualTo("one");
+                }
+            }));
+        }
+        //assertion failures in the tasks are rethrown here
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assertions.assertThat(loads.get()).isEqualTo(1);
+        Assertions.assertThat(map.putIfAbsent(1, "uno")).isEqualTo("one");
+        Assertions.assertThat(map.putIfAbsent(2, "two")).isNull();
+        Assertions.assertThat(map.getAll(new HashSet<Integer>(Arrays.asList(1, 2, 3)))).hasSize(2);
+        Assertions.assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testComputeExceptions() {
+        final ACacheMap<Integer, String> map = new ACacheMap<Integer, String>() {
+            @Override
+            protected Cache<Integer, String> createDelegate() {
+                return new CacheBuilder<Integer, String>().withUniqueName(ACacheMapTest.class.getName())
+                        .withMaximumSize(1000)
+                        .create();
+            }
+        };
+        final IllegalStateException exception = new IllegalStateException("expected");
+        try {
+            map.computeIfAbsent(1, (key) -> {
+                throw exception;
+            });
+            Assertions.fail("exception expected");
+        } catch (final IllegalStateException e) {
+            Assertions.assertThat(e).isSameAs(exception);
+        }
+        Assertions.assertThat(map.containsKey(1)).isFalse();
+        map.put(1, "one");
+        try {
+            map.merge(1, "uno", (oldValue, value) -> {
+                throw exception;
+            });
+            Assertions.fail("exception expected");
+        } catch (final IllegalStateException e) {
+            Assertions.assertThat(e).isSameAs(exception);
+        }
+        Assertions.assertThat(map.get(1)).isEqualTo("one");
+    }
+
+    @Test
+    public void testLazyViews() {
+        final ACacheMap<Integer, String> map = new ACacheMap<Integer, String>() {
+            @Override
+            protected Cache<Integer, String> createDelegate() {
+                return new CacheBuilder<Integer, String>().withUniqueName(ACacheMapTest.class.getName())
+                        .withMaximumSize(1000)
+                        .create();
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            map.put(i, String.valueOf(i));
+        }
+        Assertions.assertThat(map.keySet().parallelStream().mapToInt(Integer::intValue).sum()).isEqualTo(4950);
+        Assertions.assertThat(map.values().stream().count()).isEqualTo(100);
+        final AtomicInteger sum = new AtomicInteger();
+        map.forEach((key, value) -> sum.addAndGet(Integer.parseInt(value)));
+        Assertions.assertThat(sum.get()).isEqualTo(4950);
+        Assertions.assertThat(map.entrySet().removeIf((entry) -> entry.getKey() >= 50)).isTrue();
+        Assertions.assertThat(map.size()).isEqualTo(50);
+        Assertions.assertThat(map.keySet()).doesNotContain(50);
+    }
+
+    @Test
+    public void testLazyViewsWithTicker() {
+        final ManualTicker ticker = new ManualTicker();
+        final ACacheMap<Integer, String> map = new ACacheMap<Integer, String>() {
+            @Override
+            protected Cache<Integer, String> createDelegate() {
+                return new CacheBuilder<Integer, String>().withUniqueName(ACacheMapTest.class.getName())
+                        .withMaximumSize(1000)
+                        .withExpireAfterWrite(new Duration(50, FTimeUnit.MILLISECONDS))
+                        .withTicker(ticker)
+                        .create();
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            map.put(i, String.valueOf(i));
+        }
+        //the views filter expired entries with the same clock as the cache
+        Assertions.assertThat(map.keySet().stream().count()).isEqualTo(10);
+        ticker.advance(new Duration(100, FTimeUnit.MILLISECONDS));
+        Assertions.assertThat(map.keySet().stream().count()).isEqualTo(0);
+        Assertions.assertThat(map.values().iterator().hasNext()).isFalse();
+    }
+
 }
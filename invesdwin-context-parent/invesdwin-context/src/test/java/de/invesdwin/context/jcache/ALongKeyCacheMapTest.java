@@ -0,0 +1,152 @@
+package de.invesdwin.context.jcache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+// CHECKSTYLE:OFF abstract
+@NotThreadSafe
+public class ALongKeyCacheMapTest extends ATest {
+    //CHECKSTYLE:ON
+
+    @Test
+    public void testMaximumSize() {
+        final ALongKeyCacheMap<String> map = new ALongKeyCacheMap<String>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Long, String>().withMaximumSize(100);
+            }
+        };
+        for (long i = 0; i < 1000; i++) {
+            Assertions.assertThat(map.put(i, String.valueOf(i))).isNull();
+            //keep the first key hot so that the clock gives it a second chance
+            Assertions.assertThat(map.get(0)).isEqualTo("0");
+        }
+        Assertions.assertThat(map.size()).isEqualTo(100);
+        Assertions.assertThat(map.get(0)).isEqualTo("0");
+        Assertions.assertThat(map.get(999)).isEqualTo("999");
+        Assertions.assertThat(map.remove(999)).isEqualTo("999");
+        Assertions.assertThat(map.containsKey(999)).isFalse();
+        Assertions.assertThat(map.size()).isEqualTo(99);
+    }
+
+    @Test
+    public void testMaximumSizeContended() throws Exception {
+        final ALongKeyCacheMap<String> map = new ALongKeyCacheMap<String>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Long, String>().withMaximumSize(1000);
+            }
+        };
+        final int threads = 4;
+        final WrappedExecutorService executor = Executors.newFixedThreadPool("testMaximumSizeContended", threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                final long offset = t * 100_000L;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (long i = 0; i < 10_000; i++) {
+                            map.put(offset + i, String.valueOf(i));
+                            //might already be evicted by another thread
+                            Assertions.assertThat(map.get(offset + i)).isIn(null, String.valueOf(i));
+                            map.remove(offset + i / 2);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertThat(map.size()).isLessThanOrEqualTo(1000);
+        final AtomicInteger count = new AtomicInteger();
+        map.forEach(new ObjLongConsumer<String>() {
+            @Override
+            public void accept(final String value, final long key) {
+                count.incrementAndGet();
+            }
+        });
+        Assertions.assertThat(count.get()).isEqualTo(map.size());
+    }
+
+    @Test
+    public void testExpireAfterWrite() {
+        final ManualTicker ticker = new ManualTicker();
+        final ALongKeyCacheMap<String> map = new ALongKeyCacheMap<String>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Long, String>().withExpireAfterWrite(new Duration(50, FTimeUnit.MILLISECONDS))
+                        .withTicker(ticker);
+            }
+        };
+        map.put(Long.MIN_VALUE, "min");
+        map.put(0, "zero");
+        ticker.advance(new Duration(49, FTimeUnit.MILLISECONDS));
+        Assertions.assertThat(map.get(Long.MIN_VALUE)).isEqualTo("min");
+        ticker.advance(new Duration(1, FTimeUnit.MILLISECONDS));
+        Assertions.assertThat(map.get(Long.MIN_VALUE)).isNull();
+        Assertions.assertThat(map.size()).isEqualTo(1);
+        map.cleanUp();
+        Assertions.assertThat(map.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testExpireAfterAccess() {
+        final ManualTicker ticker = new ManualTicker();
+        final ALongKeyCacheMap<String> map = new ALongKeyCacheMap<String>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Long, String>()
+                        .withExpireAfterAccess(new Duration(50, FTimeUnit.MILLISECONDS))
+                        .withTicker(ticker);
+            }
+        };
+        map.put(1, "one");
+        map.put(2, "two");
+        for (int i = 0; i < 3; i++) {
+            ticker.advance(new Duration(40, FTimeUnit.MILLISECONDS));
+            //reading extends the access expiration
+            Assertions.assertThat(map.get(1)).isEqualTo("one");
+        }
+        Assertions.assertThat(map.containsKey(2)).isFalse();
+        Assertions.assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testIntKeyCollection() {
+        final AIntKeyCacheCollection<String> collection = new AIntKeyCacheCollection<String>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Integer, String>().withMaximumSize(100);
+            }
+
+            @Override
+            protected int keyOf(final Object o) {
+                return o.hashCode();
+            }
+        };
+        Assertions.assertThat(collection.add("one")).isTrue();
+        Assertions.assertThat(collection.add("two")).isTrue();
+        Assertions.assertThat(collection.contains("one")).isTrue();
+        Assertions.assertThat(collection.remove("one")).isTrue();
+        Assertions.assertThat(collection).containsExactly("two");
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.invesdwin.context.jcache;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+@NotThreadSafe
+public class BatchingCacheEntryListenerTest extends ATest {
+
+    @Test
+    public void testBlock() {
+        final AtomicInteger created = new AtomicInteger();
+        final BatchingCacheEntryListener<Integer, String> listener = new BatchingCacheEntryListener<Integer, String>(
+                new CacheEntryListenerSupport<Integer, String>() {
+                    @Override
+                    public void onCreated(final Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+                        for (@SuppressWarnings("unused")
+                        final CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                            created.incrementAndGet();
+                        }
+                    }
+                }).withBufferSize(16).withMaxBatchSize(8);
+        final Cache<Integer, String> cache = new CacheBuilder<Integer, String>()
+                .withUniqueName(BatchingCacheEntryListenerTest.class.getName())
+                .withCacheEntryListener(listener)
+                .create();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+        listener.close();
+        Assertions.assertThat(created.get()).isEqualTo(1000);
+        Assertions.assertThat(listener.getDropped()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBlockWithListenerWritingToCache() throws InterruptedException {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicReference<Cache<Integer, String>> cacheHolder = new AtomicReference<Cache<Integer, String>>();
+        final BatchingCacheEntryListener<Integer, String> listener = new BatchingCacheEntryListener<Integer, String>(
+                new CacheEntryListenerSupport<Integer, String>() {
+                    @Override
+                    public void onCreated(final Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+                        for (final CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                            created.incrementAndGet();
+                            if (event.getKey() < 1000) {
+                                //enqueues on the dispatcher thread, which must not wait for itself
+                                cacheHolder.get().put(event.getKey() + 1000, event.getValue());
+                            }
+                        }
+                    }
+                }).withBufferSize(4).withMaxBatchSize(2);
+        final Cache<Integer, String> cache = new CacheBuilder<Integer, String>()
+                .withUniqueName(BatchingCacheEntryListenerTest.class.getName())
+                .withCacheEntryListener(listener)
+                .create();
+        cacheHolder.set(cache);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (created.get() < 2000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        listener.close();
+        Assertions.assertThat(created.get()).isEqualTo(2000);
+        Assertions.assertThat(listener.getDropped()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCoalesceByKey() {
+        final AtomicInteger delivered = new AtomicInteger();
+        final AtomicReference<String> latest = new AtomicReference<String>();
+        final BatchingCacheEntryListener<Integer, String> listener = new BatchingCacheEntryListener<Integer, String>(
+                new CacheEntryListenerSupport<Integer, String>() {
+                    @Override
+                    public void onCreated(final Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+                        onUpdated(events);
+                    }
+
+                    @Override
+                    public void onUpdated(final Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+                        for (final CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                            delivered.incrementAndGet();
+                            latest.set(event.getValue());
+                        }
+                    }
+                }).withBackPressure(CacheEntryListenerBackPressure.COALESCE_BY_KEY);
+        final Cache<Integer, String> cache = new CacheBuilder<Integer, String>()
+                .withUniqueName(BatchingCacheEntryListenerTest.class.getName())
+                .withCacheEntryListener(listener)
+                .create();
+        cache.put(1, "0");
+        for (int i = 1; i <= 100; i++) {
+            cache.put(1, String.valueOf(i));
+        }
+        listener.close();
+        Assertions.assertThat(delivered.get()).isBetween(1, 101);
+        Assertions.assertThat(delivered.get() + listener.getCoalesced()).isEqualTo(101);
+        Assertions.assertThat(latest.get()).isEqualTo("100");
+    }
+
+    @Test
+    public void testCloseDelegate() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicInteger created = new AtomicInteger();
+        final BatchingCacheEntryListener<Integer, String> listener = new BatchingCacheEntryListener<Integer, String>(
+                new ClosingListener(created, closed));
+        final Cache<Integer, String> cache = new CacheBuilder<Integer, String>()
+                .withUniqueName(BatchingCacheEntryListenerTest.class.getName())
+                .withCacheEntryListener(listener)
+                .create();
+        cache.put(1, "one");
+        cache.close();
+        //the pending events are delivered before the delegate gets closed
+        Assertions.assertThat(created.get()).isEqualTo(1);
+        Assertions.assertThat(closed.get()).isTrue();
+    }
+
+    private static final class ClosingListener extends CacheEntryListenerSupport<Integer, String> implements Closeable {
+
+        private final AtomicInteger created;
+        private final AtomicBoolean closed;
+
+        private ClosingListener(final AtomicInteger created, final AtomicBoolean closed) {
+            this.created = created;
+            this.closed = closed;
+        }
+
+        @Override
+        public void onCreated(final Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            for (@SuppressWarnings("unused")
+            final CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                Assertions.assertThat(closed.get()).isFalse();
+                created.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+package de.invesdwin.context.jcache;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+
+import org.junit.Test;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import de.invesdwin.context.jcache.util.CaffeineCaches;
+import de.invesdwin.context.jcache.weigher.MemoryMeterWeigher;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.math.decimal.scaled.ByteSize;
+import de.invesdwin.util.math.decimal.scaled.ByteSizeScale;
+
+@NotThreadSafe
+public class CacheBuilderTest extends ATest {
+
+    private static final Weigher<Integer, String> LENGTH_WEIGHER = new Weigher<Integer, String>() {
+        @Override
+        public int weigh(final Integer key, final String value) {
+            return value.length();
+        }
+    };
+
+    private CacheBuilder<Integer, String> newBuilder(final long maximumWeightBytes) {
+        return new CacheBuilder<Integer, String>().withUniqueName(CacheBuilderTest.class.getName())
+                .withMaximumWeight(new ByteSize((double) maximumWeightBytes, ByteSizeScale.BYTES));
+    }
+
+    private static String newValue(final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    private static void cleanUp(final Cache<?, ?> cache) {
+        CaffeineCaches.unwrap(cache).cleanUp();
+    }
+
+    @Test
+    public void testWeightedSize() {
+        final Cache<Integer, String> cache = newBuilder(1000).withWeigher(LENGTH_WEIGHER).create();
+        try {
+            cache.put(1, newValue(10));
+            cache.put(2, newValue(20));
+            cache.put(3, newValue(30));
+            cleanUp(cache);
+            Assertions.assertThat(CaffeineCaches.getWeightedSize(cache)).isEqualTo(60L);
+            cache.remove(2);
+            cleanUp(cache);
+            Assertions.assertThat(CaffeineCaches.getWeightedSize(cache)).isEqualTo(40L);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testEvictionByWeight() {
+        final Cache<Integer, String> cache = newBuilder(100).withWeigher(LENGTH_WEIGHER).create();
+        try {
+            for (int i = 0; i < 10; i++) {
+                cache.put(i, newValue(30));
+            }
+            cleanUp(cache);
+            //only three values of weight 30 fit into 100
+            Assertions.assertThat(CaffeineCaches.getWeightedSize(cache)).isLessThanOrEqualTo(100L);
+            Assertions.assertThat(CaffeineCaches.getEstimatedSize(cache)).isLessThanOrEqualTo(3L);
+            //a single value heavier than the maximum weight is not kept
+            cache.put(100, newValue(101));
+            cleanUp(cache);
+            Assertions.assertThat(cache.containsKey(100)).isFalse();
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testMemoryMeterWeigher() {
+        final int small = MemoryMeterWeigher.INSTANCE.weigh(1, newValue(10));
+        final int large = MemoryMeterWeigher.INSTANCE.weigh(1, newValue(10000));
+        Assertions.assertThat(small).isPositive();
+        Assertions.assertThat(large).isGreaterThan(small + 9000);
+
+        //the default weigher measures the retained size of the entries
+        final Cache<Integer, String> cache = newBuilder(1000000).create();
+        try {
+            cache.put(1, newValue(10000));
+            cleanUp(cache);
+            Assertions.assertThat(CaffeineCaches.getWeightedSize(cache)).isGreaterThanOrEqualTo(10000L);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testMaximumSizeAndWeight() {
+        try {
+            newBuilder(1000).withMaximumSize(10).create();
+            Assertions.fail("exception expected");
+        } catch (final IllegalStateException e) {
+            //expected
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package de.invesdwin.context.jcache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * A ticker for CacheBuilder.withTicker that only advances when told so, to test expiration without sleeping.
+ */
+@ThreadSafe
+public final class ManualTicker implements Ticker {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+        return nanos.get();
+    }
+
+    public void advance(final Duration duration) {
+        nanos.addAndGet(duration.longValue(FTimeUnit.NANOSECONDS));
+    }
+
+}
@@ -0,0 +1,242 @@
+package de.invesdwin.context.jcache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+import org.junit.Test;
+
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.jcache.copy.LazyDeserializingCopier;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.math.decimal.scaled.ByteSize;
+import de.invesdwin.util.math.decimal.scaled.ByteSizeScale;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+@NotThreadSafe
+public class OverflowTierCacheTest extends ATest {
+
+    private static final int COUNT = 100;
+    private static final File DIRECTORY = new File(ContextProperties.TEMP_DIRECTORY,
+            OverflowTierCacheTest.class.getSimpleName());
+
+    private CacheBuilder<Integer, String> newBuilder() {
+        return new CacheBuilder<Integer, String>().withUniqueName(OverflowTierCacheTest.class.getName())
+                .withMaximumSize(10)
+                .withDiskTier(DIRECTORY, new ByteSize(1D, ByteSizeScale.MEGABYTES));
+    }
+
+    private static File getTierFile(final Cache<?, ?> cache) {
+        return new File(DIRECTORY, Files.normalizePath(cache.getName()) + ".tier");
+    }
+
+    @Test
+    public void testEvictSpillPromote() {
+        final Cache<Integer, String> cache = newBuilder().create();
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            Assertions.assertThat(getTierFile(cache)).exists();
+            //evicted entries are promoted back from the tier, which again evicts others
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < COUNT; i++) {
+                    Assertions.assertThat(cache.get(i)).isEqualTo(String.valueOf(i));
+                }
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testRemoveAfterSpill() {
+        final Cache<Integer, String> cache = newBuilder().create();
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            for (int i = 0; i < COUNT; i++) {
+                cache.remove(i);
+            }
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(cache.get(i)).isNull();
+            }
+            //removes of absent keys must not prevent later spills of those keys
+            for (int i = 0; i < COUNT; i++) {
+                cache.remove(i);
+            }
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, "again" + i);
+            }
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(cache.get(i)).isEqualTo("again" + i);
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        final Cache<Integer, String> cache = newBuilder().withExpireAfterWrite(new Duration(50, FTimeUnit.MILLISECONDS))
+                .create();
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+            //spilled entries expire with the same age as the entries on the heap
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(cache.get(i)).isNull();
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testClearAfterSpill() {
+        final Cache<Integer, String> cache = newBuilder().create();
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            cache.clear();
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(cache.get(i)).isNull();
+            }
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            cache.removeAll();
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(cache.get(i)).isNull();
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testExpiryRelativeToWrite() {
+        final ManualTicker ticker = new ManualTicker();
+        final Cache<Integer, String> cache = newBuilder().withTicker(ticker)
+                .withExpireAfterWrite(new Duration(100, FTimeUnit.MILLISECONDS))
+                .create();
+        try {
+            for (int i = 0; i < 10; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            ticker.advance(new Duration(90, FTimeUnit.MILLISECONDS));
+            //spills the old entries shortly before they expire (or the new ones)
+            for (int i = 10; i < 20; i++) {
+                cache.put(i, String.valueOf(i));
+            }
+            ticker.advance(new Duration(20, FTimeUnit.MILLISECONDS));
+            //spilling must not extend the lifetime of the old entries
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertThat(cache.get(i)).isNull();
+            }
+            for (int i = 10; i < 20; i++) {
+                Assertions.assertThat(cache.get(i)).isEqualTo(String.valueOf(i));
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testRefreshAhead() {
+        final ManualTicker ticker = new ManualTicker();
+        final Cache<Integer, String> cache = newBuilder().withTicker(ticker)
+                .withRefreshAhead(new Duration(50, FTimeUnit.MILLISECONDS))
+                .withCacheLoader(new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(final Integer key) throws CacheLoaderException {
+                        return String.valueOf(key);
+                    }
+
+                    @Override
+                    public Map<Integer, String> loadAll(final Iterable<? extends Integer> keys)
+                            throws CacheLoaderException {
+                        throw new UnsupportedOperationException();
+                    }
+                })
+                .create();
+        try {
+            //refresh-ahead enables read-through, thus misses are loaded without withReadThrough(true)
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(cache.get(i)).isEqualTo(String.valueOf(i));
+            }
+            ticker.advance(new Duration(100, FTimeUnit.MILLISECONDS));
+            //refreshes and promotions still return the value
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < COUNT; i++) {
+                    Assertions.assertThat(cache.get(i)).isEqualTo(String.valueOf(i));
+                }
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testLazyDeserializingCopier() {
+        final Cache<Integer, ArrayList<Integer>> cache = new CacheBuilder<Integer, ArrayList<Integer>>()
+                .withUniqueName(OverflowTierCacheTest.class.getName())
+                .withMaximumSize(10)
+                .withDiskTier(DIRECTORY, new ByteSize(1D, ByteSizeScale.MEGABYTES))
+                .withStoreByValue(true)
+                .withCopier(LazyDeserializingCopier.INSTANCE)
+                .create();
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                cache.put(i, new ArrayList<Integer>(Arrays.asList(i, i + 1)));
+            }
+            //the serialized holders are spilled with their bytes
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < COUNT; i++) {
+                    Assertions.assertThat(cache.get(i)).containsExactly(i, i + 1);
+                }
+            }
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testClose() {
+        final CacheBuilder<Integer, String> builder = newBuilder();
+        final Cache<Integer, String> cache = builder.create();
+        for (int i = 0; i < COUNT; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+        final File tierFile = getTierFile(cache);
+        Assertions.assertThat(tierFile).exists();
+        cache.close();
+        Assertions.assertThat(tierFile).doesNotExist();
+
+        //a cache with the same name starts with an empty tier
+        final Cache<Integer, String> recreated = builder.create();
+        try {
+            Assertions.assertThat(getTierFile(recreated)).exists();
+            for (int i = 0; i < COUNT; i++) {
+                Assertions.assertThat(recreated.get(i)).isNull();
+            }
+        } finally {
+            recreated.close();
+        }
+    }
+
+}
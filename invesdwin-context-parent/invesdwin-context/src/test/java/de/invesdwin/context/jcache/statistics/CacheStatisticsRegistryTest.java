@@ -0,0 +1,55 @@
+package de.invesdwin.context.jcache.statistics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import de.invesdwin.context.jcache.CacheBuilder;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+@NotThreadSafe
+public class CacheStatisticsRegistryTest extends ATest {
+
+    @Test
+    public void testStatistics() {
+        final Cache<Integer, String> cache = new CacheBuilder<Integer, String>()
+                .withUniqueName(CacheStatisticsRegistryTest.class.getName())
+                .withMaximumSize(100)
+                .withStatisticsEnabled(true)
+                .create();
+        cache.put(1, "one");
+        Assertions.assertThat(cache.get(1)).isEqualTo("one");
+        Assertions.assertThat(cache.get(2)).isNull();
+        final CacheStatistics statistics = CacheStatisticsRegistry.get(cache.getName());
+        Assertions.assertThat(statistics).isNotNull();
+        Assertions.assertThat(statistics.getSize()).isEqualTo(1);
+        Assertions.assertThat(statistics.getHits()).isEqualTo(1);
+        Assertions.assertThat(statistics.getMisses()).isEqualTo(1);
+        Assertions.assertThat(CacheStatisticsRegistry.getActivitySummary()).contains(cache.getName());
+        cache.close();
+        Assertions.assertThat(CacheStatisticsRegistry.get(cache.getName())).isNull();
+    }
+
+    @Test
+    public void testUnregisterOnClose() throws MalformedObjectNameException {
+        final Cache<Integer, String> cache = new CacheBuilder<Integer, String>()
+                .withUniqueName(CacheStatisticsRegistryTest.class.getName())
+                .withMaximumSize(100)
+                .create();
+        final ObjectName objectName = new ObjectName("de.invesdwin.context.jcache:type="
+                + CacheStatistics.class.getSimpleName() + ",name=" + ObjectName.quote(cache.getName()));
+        Assertions.assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isTrue();
+        //statistics are disabled
+        Assertions.assertThat(CacheStatisticsRegistry.get(cache.getName()).getGets()).isEqualTo(0);
+        cache.close();
+        //unregistered without calling get() or getAll() first
+        Assertions.assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)).isFalse();
+    }
+
+}
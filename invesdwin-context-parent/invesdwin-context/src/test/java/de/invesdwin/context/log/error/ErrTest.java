@@ -1,5 +1,7 @@
 package de.invesdwin.context.log.error;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.junit.Test;
@@ -7,6 +9,8 @@ import org.junit.Test;
 import de.invesdwin.context.test.ATest;
 import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.assertions.Executable;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
 
 @ThreadSafe
 public class ErrTest extends ATest {
@@ -39,4 +43,18 @@ public class ErrTest extends ATest {
         Assertions.assertThat(le_outer.getIdTrace()).contains("->");
     }
 
+    @Test
+    public void testProcessInterval() throws InterruptedException {
+        final Duration interval = new Duration(100, FTimeUnit.MILLISECONDS);
+        final LoggedRuntimeException first = Err.processInterval(new Exception("testProcessInterval"), interval);
+        Assertions.assertThat(Err.processInterval(new Exception("testProcessInterval"), interval)).isSameAs(first);
+        Assertions.assertThat(Err.processInterval(new Exception("testProcessInterval_other"), interval))
+                .isNotSameAs(first);
+        Assertions.assertThat(Err.processInterval(new IllegalStateException("testProcessInterval"), interval))
+                .isNotSameAs(first);
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assertions.assertThat(Err.processInterval(new Exception("testProcessInterval"), interval))
+                .isNotSameAs(first);
+    }
+
 }
@@ -0,0 +1,85 @@
+package de.invesdwin.context.log.error.hook;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.log.error.LoggedRuntimeException;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+@NotThreadSafe
+public class ErrHookManagerTest extends ATest {
+
+    @Test
+    public void testAsyncHookIsCalledOffThread() throws InterruptedException {
+        final LoggedRuntimeException exception = LoggedRuntimeException
+                .newInstance(new IllegalStateException("testAsyncHookIsCalledOffThread"));
+        final CountDownLatch called = new CountDownLatch(1);
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        final IAsyncErrHook hook = new IAsyncErrHook() {
+            @Override
+            public void loggedException(final LoggedRuntimeException e, final boolean uncaughtException) {
+                if (e == exception) {
+                    threads.add(Thread.currentThread());
+                    called.countDown();
+                }
+            }
+        };
+        ErrHookManager.register(hook);
+        try {
+            ErrHookManager.loggedException(exception, false);
+            Assertions.checkTrue(called.await(10, TimeUnit.SECONDS));
+            Assertions.assertThat(threads).hasSize(1);
+            Assertions.assertThat(threads.get(0)).isNotSameAs(Thread.currentThread());
+        } finally {
+            ErrHookManager.unregister(hook);
+        }
+    }
+
+    @Test
+    public void testDroppedAsyncCount() throws InterruptedException {
+        final LoggedRuntimeException blocking = LoggedRuntimeException
+                .newInstance(new IllegalStateException("testDroppedAsyncCount_blocking"));
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final IAsyncErrHook hook = new IAsyncErrHook() {
+            @Override
+            public void loggedException(final LoggedRuntimeException e, final boolean uncaughtException) {
+                if (e == blocking) {
+                    blocked.countDown();
+                    try {
+                        released.await();
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        ErrHookManager.register(hook);
+        try {
+            ErrHookManager.loggedException(blocking, false);
+            Assertions.checkTrue(blocked.await(10, TimeUnit.SECONDS));
+            final long droppedBefore = ErrHookManager.getDroppedAsyncCount();
+            final int overflow = 10;
+            final LoggedRuntimeException queued = LoggedRuntimeException
+                    .newInstance(new IllegalStateException("testDroppedAsyncCount_queued"));
+            for (int i = 0; i < AsyncErrHookDispatcher.QUEUE_SIZE + overflow; i++) {
+                //the raising thread does not wait for the blocked dispatcher
+                ErrHookManager.loggedException(queued, false);
+            }
+            //exceptions logged by other threads in the meantime might also have been dropped
+            Assertions.assertThat(ErrHookManager.getDroppedAsyncCount() - droppedBefore)
+                    .isGreaterThanOrEqualTo(overflow);
+        } finally {
+            released.countDown();
+            ErrHookManager.unregister(hook);
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+package de.invesdwin.context.log.logback;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.EncoderBase;
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+@NotThreadSafe
+public class ConfiguredAsyncFileAppenderTest extends ATest {
+
+    private static final Logger LOGGER = (Logger) LoggerFactory.getLogger(ConfiguredAsyncFileAppenderTest.class);
+    private static final int BUFFER_SIZE = 4;
+
+    @Test
+    public void testStopFlushesAllEvents() throws IOException {
+        final ConfiguredAsyncFileAppender appender = newAppender(new ConfiguredAsyncFileAppender(), "flush");
+        deleteFiles(appender);
+        appender.start();
+        final int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            appender.doAppend(newEvent(Level.INFO, "event" + i));
+        }
+        appender.stop();
+        final List<String> lines = Files.readAllLines(new File(appender.getFile()).toPath(), StandardCharsets.UTF_8);
+        Assertions.assertThat(lines).hasSize(count);
+        for (int i = 0; i < count; i++) {
+            Assertions.assertThat(JsonLinesLogReader.parse(lines.get(i)).get(JsonLinesEncoder.KEY_MESSAGE))
+                    .isEqualTo("event" + i);
+        }
+        Assertions.assertThat(appender.getDroppedCount()).isZero();
+        deleteFiles(appender);
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        final BlockingAppender appender = newAppender(new BlockingAppender(), "drop");
+        appender.setOverflowPolicy(AsyncFileAppenderOverflowPolicy.DROP);
+        deleteFiles(appender);
+        appender.start();
+        try {
+            appender.awaitWriterBlocked();
+            for (int i = 0; i < 100; i++) {
+                appender.doAppend(newEvent(Level.WARN, "dropped" + i));
+            }
+            Assertions.assertThat(appender.getDroppedCount()).isEqualTo(100 - BUFFER_SIZE);
+        } finally {
+            appender.release();
+            appender.stop();
+        }
+        //the blocking event and the buffered ones
+        Assertions.assertThat(readLines(appender)).hasSize(1 + BUFFER_SIZE);
+        deleteFiles(appender);
+    }
+
+    @Test
+    public void testDropBelowWarn() throws Exception {
+        final BlockingAppender appender = newAppender(new BlockingAppender(), "dropBelowWarn");
+        appender.setOverflowPolicy(AsyncFileAppenderOverflowPolicy.DROP_BELOW_WARN);
+        deleteFiles(appender);
+        appender.start();
+        final WrappedExecutorService executor = Executors.newFixedThreadPool("testDropBelowWarn", 1);
+        try {
+            appender.awaitWriterBlocked();
+            for (int i = 0; i < 100; i++) {
+                appender.doAppend(newEvent(Level.INFO, "dropped" + i));
+            }
+            Assertions.assertThat(appender.getDroppedCount()).isEqualTo(100 - BUFFER_SIZE);
+            //warnings wait for free space instead of being dropped
+            final Future<?> warn = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    appender.doAppend(newEvent(Level.WARN, "warn"));
+                }
+            });
+            appender.release();
+            warn.get();
+        } finally {
+            appender.release();
+            executor.shutdown();
+            appender.stop();
+        }
+        Assertions.assertThat(appender.getDroppedCount()).isEqualTo(100 - BUFFER_SIZE);
+        final List<String> lines = readLines(appender);
+        Assertions.assertThat(lines).hasSize(1 + BUFFER_SIZE + 1);
+        Assertions.assertThat(JsonLinesLogReader.parse(lines.get(lines.size() - 1)).get(JsonLinesEncoder.KEY_MESSAGE))
+                .isEqualTo("warn");
+        deleteFiles(appender);
+    }
+
+    @Test
+    public void testRollover() throws IOException {
+        final ConfiguredAsyncFileAppender appender = newRolloverAppender();
+        deleteFiles(appender);
+        //left behind by a crash between the rename and the compression
+        final File leftover = new File(getFile(appender).getPath() + ".rolling.7");
+        Files.write(leftover.toPath(), "crashed\n".getBytes(StandardCharsets.UTF_8));
+
+        appender.start();
+        //every event exceeds the maximum file size and thus triggers a rollover
+        appender.doAppend(newEvent(Level.INFO, "first"));
+        appender.doAppend(newEvent(Level.INFO, "second"));
+        appender.stop();
+        Assertions.assertThat(leftover).doesNotExist();
+        //no renamed file remains uncompressed
+        Assertions.assertThat(new File(appender.getFile() + ".rolling.8")).doesNotExist();
+        Assertions.assertThat(new File(appender.getFile() + ".rolling.9")).doesNotExist();
+        Assertions.assertThat(readArchive(appender, 1)).contains("second");
+        Assertions.assertThat(readArchive(appender, 2)).contains("first");
+        Assertions.assertThat(readArchive(appender, 3)).isEqualTo("crashed\n");
+
+        final ConfiguredAsyncFileAppender restarted = newRolloverAppender();
+        restarted.start();
+        restarted.doAppend(newEvent(Level.INFO, "third"));
+        restarted.stop();
+        Assertions.assertThat(readArchive(restarted, 1)).contains("third");
+        Assertions.assertThat(readArchive(restarted, 2)).contains("second");
+        Assertions.assertThat(readArchive(restarted, 3)).contains("first");
+        //the oldest archive got deleted
+        Assertions.assertThat(new File(restarted.getFile() + ".4.gz")).doesNotExist();
+        deleteFiles(restarted);
+    }
+
+    private ConfiguredAsyncFileAppender newRolloverAppender() {
+        final ConfiguredAsyncFileAppender appender = newAppender(new ConfiguredAsyncFileAppender(), "rollover");
+        appender.setMaxFileSize("1");
+        appender.setWriteBufferSize(16);
+        appender.setMaxIndex(3);
+        return appender;
+    }
+
+    private <T extends ConfiguredAsyncFileAppender> T newAppender(final T appender, final String name) {
+        appender.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        appender.setName(ConfiguredAsyncFileAppenderTest.class.getSimpleName() + "_" + name);
+        appender.setFormat(LogFormat.JSON);
+        appender.setBufferSize(BUFFER_SIZE);
+        return appender;
+    }
+
+    /**
+     * The appender determines the file on start.
+     */
+    private static File getFile(final ConfiguredAsyncFileAppender appender) {
+        return new File(ContextProperties.getLogDirectory(),
+                appender.getName() + appender.getFormat().getFileExtension());
+    }
+
+    private static LoggingEvent newEvent(final Level level, final String message) {
+        return new LoggingEvent(Logger.class.getName(), LOGGER, level, message, null, null);
+    }
+
+    private static List<String> readLines(final ConfiguredAsyncFileAppender appender) throws IOException {
+        return Files.readAllLines(new File(appender.getFile()).toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static String readArchive(final ConfiguredAsyncFileAppender appender, final int index)
+            throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(appender.getFile() + "." + index + ".gz"))) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void deleteFiles(final ConfiguredAsyncFileAppender appender) {
+        deleteFiles(getFile(appender));
+    }
+
+    private static void deleteFiles(final File file) {
+        final File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File f : files) {
+            if (f.getName().equals(file.getName()) || f.getName().startsWith(file.getName() + ".")) {
+                Assertions.checkTrue(f.delete());
+            }
+        }
+    }
+
+    /**
+     * Blocks the writer thread on the first event so that the buffer can be filled deterministically.
+     */
+    private static final class BlockingAppender extends ConfiguredAsyncFileAppender {
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        protected Encoder<ILoggingEvent> newEncoder() {
+            final Encoder<ILoggingEvent> delegate = super.newEncoder();
+            return new EncoderBase<ILoggingEvent>() {
+                @Override
+                public byte[] headerBytes() {
+                    return delegate.headerBytes();
+                }
+
+                @Override
+                public byte[] encode(final ILoggingEvent event) {
+                    blocked.countDown();
+                    try {
+                        released.await();
+                    } catch (final InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return delegate.encode(event);
+                }
+
+                @Override
+                public byte[] footerBytes() {
+                    return delegate.footerBytes();
+                }
+            };
+        }
+
+        private void awaitWriterBlocked() throws InterruptedException {
+            doAppend(newEvent(Level.INFO, "blocking"));
+            Assertions.checkTrue(blocked.await(10, TimeUnit.SECONDS));
+        }
+
+        private void release() {
+            released.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package de.invesdwin.context.log.logback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+@NotThreadSafe
+public class JsonLinesEncoderTest extends ATest {
+
+    @Test
+    public void testRoundtrip() {
+        final Logger logger = (Logger) LoggerFactory.getLogger(JsonLinesEncoderTest.class);
+        final LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.WARN,
+                "quote \" backslash \\ tab \t newline \n {} \u0001", new IllegalStateException("failed"),
+                new Object[] { "arg" });
+        final JsonLinesEncoder encoder = new JsonLinesEncoder();
+        final String line = new String(encoder.encode(event), StandardCharsets.UTF_8);
+        Assertions.checkTrue(line.endsWith("}\n"));
+        //the line break has to be escaped to keep one event per line
+        Assertions.assertThat(line.indexOf('\n')).isEqualTo(line.length() - 1);
+
+        final Map<String, String> fields = JsonLinesLogReader.parse(line.trim());
+        Assertions.assertThat(fields.get(JsonLinesEncoder.KEY_MESSAGE)).isEqualTo(event.getFormattedMessage());
+        Assertions.assertThat(fields.get(JsonLinesEncoder.KEY_LEVEL)).isEqualTo("WARN");
+        Assertions.assertThat(fields.get(JsonLinesEncoder.KEY_LOGGER)).isEqualTo(JsonLinesEncoderTest.class.getName());
+        Assertions.assertThat(fields.get(JsonLinesEncoder.KEY_TIME)).isEqualTo(String.valueOf(event.getTimeStamp()));
+        Assertions.checkTrue(fields.get(JsonLinesEncoder.KEY_THROWABLE).contains("IllegalStateException: failed"));
+
+        final String text = new JsonLinesLogReader().toText(line.trim());
+        Assertions.checkTrue(text.contains(" WARN  " + JsonLinesEncoderTest.class.getName() + " - quote"));
+    }
+
+}
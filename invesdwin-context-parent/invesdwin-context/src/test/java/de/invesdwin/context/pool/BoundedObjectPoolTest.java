@@ -0,0 +1,204 @@
+package de.invesdwin.context.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+@NotThreadSafe
+public class BoundedObjectPoolTest extends ATest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger destroyed = new AtomicInteger();
+    private volatile boolean valid = true;
+
+    private final IPoolableObjectFactory<StringBuilder> factory = new IPoolableObjectFactory<StringBuilder>() {
+        @Override
+        public StringBuilder makeObject() {
+            created.incrementAndGet();
+            return new StringBuilder();
+        }
+
+        @Override
+        public void destroyObject(final StringBuilder obj) {
+            destroyed.incrementAndGet();
+        }
+
+        @Override
+        public boolean validateObject(final StringBuilder obj) {
+            return valid;
+        }
+
+        @Override
+        public void activateObject(final StringBuilder obj) {}
+
+        @Override
+        public void passivateObject(final StringBuilder obj) {
+            obj.setLength(0);
+        }
+    };
+
+    @Test
+    public void testMaxTotal() {
+        final BoundedObjectPool<StringBuilder> pool = new BoundedObjectPool<StringBuilder>(factory, 1, 2);
+        final StringBuilder first = pool.borrowObject();
+        final StringBuilder second = pool.borrowObject();
+        try {
+            pool.borrowObject();
+            Assertions.fail("exception expected");
+        } catch (final NoSuchElementException e) {
+            //expected
+        }
+        pool.returnObject(first);
+        Assertions.assertThat(pool.borrowObject()).isSameAs(first);
+        pool.invalidateObject(second);
+        Assertions.assertThat(pool.getNumTotal()).isEqualTo(1);
+        Assertions.assertThat(pool.borrowObject()).isNotSameAs(second);
+        Assertions.assertThat(created.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testThrowingValidatorReleasesCapacity() {
+        final BoundedObjectPool<StringBuilder> pool = new BoundedObjectPool<StringBuilder>(
+                new IPoolableObjectFactory<StringBuilder>() {
+                    @Override
+                    public StringBuilder makeObject() {
+                        return factory.makeObject();
+                    }
+
+                    @Override
+                    public void destroyObject(final StringBuilder obj) {
+                        factory.destroyObject(obj);
+                    }
+
+                    @Override
+                    public boolean validateObject(final StringBuilder obj) {
+                        if (!valid) {
+                            throw new IllegalStateException("invalid");
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public void activateObject(final StringBuilder obj) {}
+
+                    @Override
+                    public void passivateObject(final StringBuilder obj) {}
+                }, 1, 1);
+        pool.setTestOnReturn(false);
+        pool.returnObject(pool.borrowObject());
+        valid = false;
+        for (int i = 0; i < 3; i++) {
+            try {
+                pool.borrowObject();
+                Assertions.fail("exception expected");
+            } catch (final IllegalStateException e) {
+                //expected
+            }
+        }
+        Assertions.assertThat(pool.getNumTotal()).isEqualTo(0);
+        Assertions.assertThat(destroyed.get()).isEqualTo(3);
+        valid = true;
+        //the capacity did not shrink
+        Assertions.assertThat(pool.borrowObject()).isNotNull();
+        Assertions.assertThat(created.get()).isEqualTo(4);
+        pool.close();
+    }
+
+    @Test
+    public void testUnboundedMaxIdle() {
+        final BoundedObjectPool<StringBuilder> pool = new BoundedObjectPool<StringBuilder>(factory,
+                BoundedObjectPool.UNBOUNDED);
+        Assertions.assertThat(pool.getMaxIdle()).isEqualTo(BoundedObjectPool.MAX_IDLE);
+        final StringBuilder obj = pool.borrowObject();
+        pool.returnObject(obj);
+        Assertions.assertThat(pool.borrowObject()).isSameAs(obj);
+        pool.close();
+    }
+
+    @Test
+    public void testClose() {
+        final BoundedObjectPool<StringBuilder> pool = new BoundedObjectPool<StringBuilder>(factory, 10);
+        final StringBuilder obj = pool.borrowObject();
+        pool.returnObject(obj);
+        Assertions.assertThat(pool.getNumIdle()).isEqualTo(1);
+        pool.close();
+        Assertions.assertThat(pool.isClosed()).isTrue();
+        Assertions.assertThat(pool.getNumIdle()).isEqualTo(0);
+        Assertions.assertThat(destroyed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBorrowWithTimeout() throws Exception {
+        final BoundedObjectPool<StringBuilder> pool = new BoundedObjectPool<StringBuilder>(factory, 1, 1);
+        final StringBuilder obj = pool.borrowObject();
+        try {
+            pool.borrowObject(new Duration(10, FTimeUnit.MILLISECONDS));
+            Assertions.fail("exception expected");
+        } catch (final NoSuchElementException e) {
+            //expected
+        }
+        Assertions.assertThat(pool.getExhaustedCount()).isEqualTo(1);
+        final WrappedExecutorService executor = Executors.newFixedThreadPool("testBorrowWithTimeout", 1);
+        try {
+            final Future<StringBuilder> waiting = executor
+                    .submit(() -> pool.borrowObject(new Duration(10, FTimeUnit.SECONDS)));
+            while (pool.getNumWaiters() == 0) {
+                Thread.sleep(1);
+            }
+            pool.returnObject(obj);
+            //handed directly to the waiter
+            Assertions.assertThat(waiting.get()).isSameAs(obj);
+            Assertions.assertThat(pool.getNumWaiters()).isEqualTo(0);
+            Assertions.assertThat(pool.getWaitedBorrows()).isEqualTo(2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMaintenance() throws InterruptedException {
+        final BoundedObjectPool<StringBuilder> pool = new BoundedObjectPool<StringBuilder>(factory, 4);
+        pool.setMinIdle(2);
+        pool.maintain();
+        Assertions.assertThat(pool.getNumIdle()).isEqualTo(2);
+        Assertions.assertThat(created.get()).isEqualTo(2);
+
+        pool.setMaxIdleTime(new Duration(1, FTimeUnit.MILLISECONDS));
+        final List<StringBuilder> borrowed = new ArrayList<StringBuilder>();
+        for (int i = 0; i < 4; i++) {
+            borrowed.add(pool.borrowObject());
+        }
+        for (final StringBuilder obj : borrowed) {
+            pool.returnObject(obj);
+        }
+        Assertions.assertThat(pool.getNumIdle()).isEqualTo(4);
+        Thread.sleep(10);
+        pool.maintain();
+        //evicted down to minIdle
+        Assertions.assertThat(pool.getNumIdle()).isEqualTo(2);
+        Assertions.assertThat(destroyed.get()).isEqualTo(2);
+
+        pool.setMinIdle(0);
+        pool.setMaxIdleTime(null);
+        pool.setTestWhileIdle(true);
+        valid = false;
+        pool.maintain();
+        Assertions.assertThat(pool.getNumIdle()).isEqualTo(0);
+        Assertions.assertThat(pool.getNumTotal()).isEqualTo(0);
+        pool.close();
+    }
+
+}
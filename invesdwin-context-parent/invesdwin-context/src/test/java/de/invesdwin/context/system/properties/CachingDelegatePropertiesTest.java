@@ -0,0 +1,89 @@
+package de.invesdwin.context.system.properties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+
+@NotThreadSafe
+public class CachingDelegatePropertiesTest extends ATest {
+
+    private static final String PREFIX = CachingDelegatePropertiesTest.class.getName() + ".";
+
+    @Test
+    public void testConcurrentGetSet() throws Exception {
+        final SystemProperties delegate = new SystemProperties(CachingDelegatePropertiesTest.class);
+        final CachingDelegateProperties props = new CachingDelegateProperties(delegate);
+        final int threads = 4;
+        final WrappedExecutorService executor = Executors.newFixedThreadPool("testConcurrentGetSet", threads);
+        try {
+            props.setInteger("shared", -1);
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                final String ownKey = "own" + t;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 1_000; i++) {
+                            props.setInteger(ownKey, i);
+                            //no other thread writes this key
+                            Assertions.assertThat(props.getInteger(ownKey)).isEqualTo(i);
+                            props.setInteger("shared", i);
+                            Assertions.assertThat(props.getInteger("shared")).isNotNull();
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            //the cache does not keep a value that differs from the delegate
+            Assertions.assertThat(props.getInteger("shared")).isEqualTo(delegate.getInteger("shared"));
+            for (int t = 0; t < threads; t++) {
+                Assertions.assertThat(props.getInteger("own" + t)).isEqualTo(999);
+                Assertions.assertThat(delegate.getInteger("own" + t)).isEqualTo(999);
+            }
+        } finally {
+            executor.shutdown();
+            System.clearProperty(PREFIX + "shared");
+            for (int t = 0; t < threads; t++) {
+                System.clearProperty(PREFIX + "own" + t);
+            }
+            SystemProperties.invalidateSnapshots();
+        }
+    }
+
+    @Test
+    public void testMaximumSize() {
+        final SystemProperties delegate = new SystemProperties(CachingDelegatePropertiesTest.class);
+        final CachingDelegateProperties props = new CachingDelegateProperties(delegate, 10);
+        final int count = 100;
+        try {
+            for (int i = 0; i < count; i++) {
+                delegate.setInteger("key" + i, i);
+            }
+            for (int i = 0; i < count; i++) {
+                Assertions.assertThat(props.getInteger("key" + i)).isEqualTo(i);
+            }
+            Assertions.assertThat(props.getEstimatedCacheSize()).isLessThanOrEqualTo(10);
+            //evicted values are loaded from the delegate again
+            for (int i = 0; i < count; i++) {
+                Assertions.assertThat(props.getInteger("key" + i)).isEqualTo(i);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                System.clearProperty(PREFIX + "key" + i);
+            }
+            SystemProperties.invalidateSnapshots();
+        }
+    }
+
+}
@@ -1,14 +1,21 @@
 package de.invesdwin.context.system.properties;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import org.apache.commons.configuration2.AbstractConfiguration;
 import org.junit.Test;
 
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.test.ATest;
 import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.lang.Files;
 
 @NotThreadSafe
 public class FilePropertiesTest extends ATest {
@@ -29,4 +36,100 @@ public class FilePropertiesTest extends ATest {
         Assertions.checkNull(newProps.getBoolean("exists2"));
     }
 
+    @Test
+    public void testSnapshotReads() {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, getClass().getSimpleName() + "_snapshot");
+        final FileProperties props = new FileProperties(file);
+        props.setSnapshotReads(true);
+        props.setInteger("value", 1);
+        Assertions.assertThat(props.getInteger("value")).isEqualTo(1);
+        Assertions.assertThat(props.getString("value")).isEqualTo("1");
+        Assertions.checkTrue(props.containsKey("value"));
+        //writes rebuild the snapshot
+        props.setInteger("value", 2);
+        Assertions.assertThat(props.getInteger("value")).isEqualTo(2);
+        Assertions.checkNull(props.getInteger("missing"));
+        Assertions.checkFalse(props.containsKey("missing"));
+    }
+
+    @Test
+    public void testWatched() throws Exception {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, getClass().getSimpleName() + "_watched");
+        final FileProperties props = new FileProperties(file);
+        props.setInteger("value", 1);
+        final CachingDelegateProperties cachingProps = CachingDelegateProperties.newChangeListening(props);
+        Assertions.assertThat(cachingProps.getInteger("value")).isEqualTo(1);
+        final CountDownLatch changed = new CountDownLatch(1);
+        props.addChangeListener(new IPropertiesChangeListener() {
+            @Override
+            public void onPropertiesChanged(final AProperties properties, final Set<String> changedKeys) {
+                if (changedKeys.contains("value")) {
+                    changed.countDown();
+                }
+            }
+        });
+        props.setWatched(true);
+        try {
+            java.nio.file.Files.write(file.toPath(), "value = 2\n".getBytes(StandardCharsets.UTF_8));
+            Assertions.checkTrue(changed.await(10, TimeUnit.SECONDS));
+            Assertions.assertThat(props.getInteger("value")).isEqualTo(2);
+            Assertions.assertThat(cachingProps.getInteger("value")).isEqualTo(2);
+            cachingProps.close();
+            Assertions.assertThat(props.removeChangeListener(cachingProps)).isFalse();
+        } finally {
+            props.setWatched(false);
+        }
+    }
+
+    @Test
+    public void testWriteDuringReload() {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, getClass().getSimpleName() + "_reload");
+        Files.deleteQuietly(file);
+        final AtomicBoolean writeDuringReload = new AtomicBoolean();
+        final FileProperties props = new FileProperties(file) {
+            @Override
+            protected AbstractConfiguration createDelegate() {
+                final AbstractConfiguration newDelegate = super.createDelegate();
+                if (writeDuringReload.compareAndSet(true, false)) {
+                    //the file was already parsed, thus this write only goes to the old delegate
+                    setInteger("value", 2);
+                }
+                return newDelegate;
+            }
+        };
+        props.setSnapshotReads(true);
+        props.setInteger("value", 1);
+        writeDuringReload.set(true);
+        props.reloadDelegate();
+        Assertions.checkFalse(writeDuringReload.get());
+        Assertions.assertThat(props.getInteger("value")).isEqualTo(2);
+    }
+
+    @Test
+    public void testPropertyKey() {
+        assertPropertyKey(false);
+    }
+
+    @Test
+    public void testPropertyKeySnapshotReads() {
+        assertPropertyKey(true);
+    }
+
+    private void assertPropertyKey(final boolean snapshotReads) {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY,
+                getClass().getSimpleName() + "_key_" + snapshotReads);
+        Files.deleteQuietly(file);
+        final FileProperties props = new FileProperties(file);
+        props.setSnapshotReads(snapshotReads);
+        props.setInteger("value", 1);
+        final PropertyKey<Integer> key = PropertyKey.of(props, "value", IProperties::getInteger);
+        final PropertyKey<Integer> missing = PropertyKey.of(props, "missing", IProperties::getInteger, 5);
+        Assertions.assertThat(key.get()).isEqualTo(1);
+        Assertions.assertThat(missing.get()).isEqualTo(5);
+        props.setInteger("value", 2);
+        props.setInteger("missing", 3);
+        Assertions.assertThat(key.get()).isEqualTo(2);
+        Assertions.assertThat(missing.get()).isEqualTo(3);
+    }
+
 }
@@ -0,0 +1,87 @@
+package de.invesdwin.context.system.properties;
+
+import java.util.NoSuchElementException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+@NotThreadSafe
+public class SystemPropertiesTest extends ATest {
+
+    private static final String PREFIX = SystemPropertiesTest.class.getName() + ".";
+
+    private SystemProperties newSnapshotProperties() {
+        final SystemProperties props = new SystemProperties(SystemPropertiesTest.class);
+        props.setSnapshotReads(true);
+        return props;
+    }
+
+    private static void clear(final String... keys) {
+        for (final String key : keys) {
+            System.clearProperty(PREFIX + key);
+        }
+        SystemProperties.invalidateSnapshots();
+    }
+
+    @Test
+    public void testSnapshotReadAfterWrite() {
+        final SystemProperties props = newSnapshotProperties();
+        try {
+            props.setInteger("value", 1);
+            Assertions.assertThat(props.getInteger("value")).isEqualTo(1);
+            props.setInteger("value", 2);
+            Assertions.assertThat(props.getInteger("value")).isEqualTo(2);
+            //other instances share the system properties and see the write as well
+            Assertions.assertThat(newSnapshotProperties().getInteger("value")).isEqualTo(2);
+        } finally {
+            clear("value");
+        }
+    }
+
+    @Test
+    public void testSnapshotInterpolation() {
+        final SystemProperties props = newSnapshotProperties();
+        try {
+            props.setString("base", "base");
+            props.setString("derived", "${" + PREFIX + "base}/derived");
+            Assertions.assertThat(props.getString("derived")).isEqualTo("base/derived");
+            props.setString("base", "changed");
+            Assertions.assertThat(props.getString("derived")).isEqualTo("changed/derived");
+        } finally {
+            clear("base", "derived");
+        }
+    }
+
+    @Test
+    public void testSnapshotThrowsExceptionOnMissing() {
+        final SystemProperties props = newSnapshotProperties();
+        Assertions.assertThat(props.containsKey("missing")).isFalse();
+        try {
+            props.getString("missing");
+            Assertions.fail("exception expected");
+        } catch (final NoSuchElementException e) {
+            Assertions.assertThat(e.getMessage()).contains(PREFIX + "missing");
+        }
+    }
+
+    @Test
+    public void testInvalidateSnapshotsAfterDirectWrite() {
+        final SystemProperties props = newSnapshotProperties();
+        try {
+            props.setString("direct", "1");
+            Assertions.assertThat(props.getString("direct")).isEqualTo("1");
+            //bypasses the SystemProperties class, thus the snapshot is stale until it gets invalidated
+            System.setProperty(PREFIX + "direct", "2");
+            Assertions.assertThat(props.getString("direct")).isEqualTo("1");
+            SystemProperties.invalidateSnapshots();
+            Assertions.assertThat(props.getString("direct")).isEqualTo("2");
+        } finally {
+            clear("direct");
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package de.invesdwin;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+
+import org.junit.Test;
+
+import com.github.benmanes.caffeine.jcache.copy.Copier;
+
+import de.invesdwin.context.jcache.CacheBuilder;
+import de.invesdwin.context.jcache.copy.CopyConstructorCopier;
+import de.invesdwin.context.jcache.copy.DeepCloneCopier;
+import de.invesdwin.context.jcache.copy.IdentityCopier;
+import de.invesdwin.context.jcache.copy.LazyDeserializingCopier;
+import de.invesdwin.util.time.Instant;
+
+/**
+ * Compares the copier strategies for store-by-value caches with a put/get heavy workload.
+ */
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class TestCacheCopier {
+
+    private static final int REPETITIONS = 10;
+    private static final int KEYS = 1000;
+    private static final int GETS_PER_PUT = 10;
+
+    public static final class Value implements Serializable {
+        private final double[] values;
+        private final String name;
+
+        public Value(final String name, final double[] values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        public Value(final Value copy) {
+            this.name = copy.name;
+            this.values = Arrays.copyOf(copy.values, copy.values.length);
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+    }
+
+    @Test
+    public void testDeepClone() {
+        testRuntime("deepClone", DeepCloneCopier.INSTANCE);
+    }
+
+    @Test
+    public void testIdentity() {
+        testRuntime("identity", IdentityCopier.INSTANCE);
+    }
+
+    @Test
+    public void testCopyConstructor() {
+        testRuntime("copyConstructor", CopyConstructorCopier.INSTANCE);
+    }
+
+    @Test
+    public void testLazyDeserializing() {
+        testRuntime("lazyDeserializing", LazyDeserializingCopier.INSTANCE);
+    }
+
+    private void testRuntime(final String name, final Copier copier) {
+        final Cache<Integer, Value> cache = new CacheBuilder<Integer, Value>()
+                .withUniqueName(TestCacheCopier.class.getSimpleName() + "_" + name)
+                .withStoreByValue(true)
+                .withCopier(copier)
+                .withMaximumSize(KEYS)
+                .create();
+        final Instant overall = new Instant();
+        double sum = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (int i = 0; i < KEYS; i++) {
+                final double[] values = new double[100];
+                Arrays.fill(values, i);
+                cache.put(i, new Value(String.valueOf(i), values));
+                for (int g = 0; g < GETS_PER_PUT; g++) {
+                    sum += cache.get(i).getValues()[0];
+                }
+            }
+        }
+        System.out.println(name + ": " + overall + " (" + sum + ")");
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.invesdwin;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.context.log.error.LoggedRuntimeException;
+import de.invesdwin.util.time.Instant;
+
+/**
+ * Measures the cost of Err.process for exception heavy code paths (e.g. retries). With the error loggers disabled the
+ * stacktraces should not get rendered anymore, thus only the exception itself is allocated.
+ */
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class TestErrProcess {
+
+    private static final int ITERATIONS = 100000;
+
+    private static long getAllocatedBytes() {
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static Logger getLogger(final String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+
+    private static void process(final String name) {
+        final IllegalStateException exception = new IllegalStateException(name);
+        for (int i = 0; i < ITERATIONS; i++) {
+            Err.process(exception);
+        }
+        final long allocatedBefore = getAllocatedBytes();
+        final Instant start = new Instant();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Err.process(exception);
+        }
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+        System.out.println(name + ": " + start + " allocated " + allocated / ITERATIONS + " bytes per exception");
+    }
+
+    @Test
+    public void testProcessDisabled() {
+        final Logger error = getLogger("de.invesdwin.ERROR");
+        final Logger errorDetail = getLogger("de.invesdwin.ERROR_DETAIL");
+        final Level errorLevel = error.getLevel();
+        final Level errorDetailLevel = errorDetail.getLevel();
+        error.setLevel(Level.OFF);
+        errorDetail.setLevel(Level.OFF);
+        try {
+            process("process disabled");
+        } finally {
+            error.setLevel(errorLevel);
+            errorDetail.setLevel(errorDetailLevel);
+        }
+    }
+
+    @Test
+    public void testDetailedStackTrace() {
+        final LoggedRuntimeException exception = LoggedRuntimeException
+                .newInstance(new IllegalStateException("detailed stacktrace"));
+        for (int i = 0; i < ITERATIONS; i++) {
+            Err.getDetailedStackTrace(exception);
+        }
+        final Instant start = new Instant();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Err.getDetailedStackTrace(exception);
+        }
+        System.out.println("detailed stacktrace: " + start);
+    }
+
+    @Test
+    public void testIdString() {
+        final LoggedRuntimeException exception = LoggedRuntimeException
+                .newInstance(new IllegalStateException("id string"));
+        final Instant start = new Instant();
+        for (int i = 0; i < ITERATIONS; i++) {
+            exception.getIdString();
+        }
+        System.out.println("id string: " + start);
+    }
+
+}
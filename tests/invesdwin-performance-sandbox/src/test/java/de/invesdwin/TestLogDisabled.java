@@ -0,0 +1,73 @@
+package de.invesdwin;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import de.invesdwin.context.log.Log;
+import de.invesdwin.util.time.Instant;
+
+/**
+ * Measures the cost of debug statements while only INFO is enabled. The allocated bytes should stay at 0 for
+ * statements with up to two arguments. Varargs arrays and capturing suppliers are allocated at the call site unless
+ * escape analysis removes them.
+ */
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class TestLogDisabled {
+
+    private static final int ITERATIONS = 10000000;
+
+    private static Log newInfoLog() {
+        final String name = TestLogDisabled.class.getName();
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(name)).setLevel(Level.INFO);
+        return new Log(name);
+    }
+
+    private static long getAllocatedBytes() {
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void testDisabledDebug() {
+        final Log log = newInfoLog();
+        final Integer arg1 = 1;
+        final Integer arg2 = 2;
+        //warmup so that the loop gets compiled
+        for (int i = 0; i < ITERATIONS; i++) {
+            log.debug("one %s", arg1);
+            log.debug("two %s %s", arg1, arg2);
+        }
+        final long allocatedBefore = getAllocatedBytes();
+        final Instant start = new Instant();
+        for (int i = 0; i < ITERATIONS; i++) {
+            log.debug("one %s", arg1);
+            log.debug("two %s %s", arg1, arg2);
+        }
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+        System.out.println("disabled debug: " + start + " allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void testDisabledDebugSupplier() {
+        final Log log = newInfoLog();
+        final Integer arg1 = 1;
+        for (int i = 0; i < ITERATIONS; i++) {
+            log.debug(() -> "supplier " + arg1);
+        }
+        final long allocatedBefore = getAllocatedBytes();
+        final Instant start = new Instant();
+        for (int i = 0; i < ITERATIONS; i++) {
+            log.debug(() -> "supplier " + arg1);
+        }
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+        System.out.println("disabled debug supplier: " + start + " allocated " + allocated + " bytes");
+    }
+
+}
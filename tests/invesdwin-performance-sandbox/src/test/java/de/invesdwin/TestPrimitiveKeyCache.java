@@ -0,0 +1,266 @@
+package de.invesdwin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.cache.Cache;
+
+import org.junit.Test;
+
+import de.invesdwin.context.jcache.ACacheCollection;
+import de.invesdwin.context.jcache.ACacheMap;
+import de.invesdwin.context.jcache.AIntKeyCacheCollection;
+import de.invesdwin.context.jcache.ALongKeyCacheMap;
+import de.invesdwin.context.jcache.CacheBuilder;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.time.Instant;
+
+/**
+ * Compares the boxed cache collections with the primitive key variants. The plain fastutil and koloboke maps are
+ * included as a lower bound without eviction. The contended tests read and write from all cpu threads at once.
+ */
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class TestPrimitiveKeyCache {
+
+    private static final int REPETITIONS = 10;
+    private static final int KEYS = 100000;
+    private static final int MAXIMUM_SIZE = KEYS / 2;
+    private static final Object VALUE = new Object();
+    private static final int CONTENDED_OPERATIONS = KEYS * REPETITIONS;
+    private static final int CONTENDED_WRITE_PERCENT = 10;
+
+    @Test
+    public void testCacheMap() {
+        final ACacheMap<Long, Object> map = new ACacheMap<Long, Object>() {
+            @Override
+            protected Cache<Long, Object> createDelegate() {
+                return new CacheBuilder<Long, Object>()
+                        .withUniqueName(TestPrimitiveKeyCache.class.getSimpleName() + "_cacheMap")
+                        .withStoreByValue(false)
+                        .withMaximumSize(MAXIMUM_SIZE)
+                        .create();
+            }
+        };
+        final Instant start = new Instant();
+        long hits = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (long i = 0; i < KEYS; i++) {
+                map.put(i, VALUE);
+                if (map.get(i / 2) != null) {
+                    hits++;
+                }
+            }
+        }
+        System.out.println("cacheMap: " + start + " (" + hits + ")");
+    }
+
+    @Test
+    public void testLongKeyCacheMap() {
+        final ALongKeyCacheMap<Object> map = new ALongKeyCacheMap<Object>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Long, Object>().withMaximumSize(MAXIMUM_SIZE);
+            }
+        };
+        final Instant start = new Instant();
+        long hits = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (long i = 0; i < KEYS; i++) {
+                map.put(i, VALUE);
+                if (map.get(i / 2) != null) {
+                    hits++;
+                }
+            }
+        }
+        System.out.println("longKeyCacheMap: " + start + " (" + hits + ")");
+    }
+
+    @Test
+    public void testCacheMapContended() throws Exception {
+        final ACacheMap<Long, Object> map = new ACacheMap<Long, Object>() {
+            @Override
+            protected Cache<Long, Object> createDelegate() {
+                return new CacheBuilder<Long, Object>()
+                        .withUniqueName(TestPrimitiveKeyCache.class.getSimpleName() + "_cacheMapContended")
+                        .withStoreByValue(false)
+                        .withMaximumSize(MAXIMUM_SIZE)
+                        .create();
+            }
+        };
+        runContended("cacheMapContended", new IContendedOperation() {
+            @Override
+            public boolean run(final long key, final boolean write) {
+                if (write) {
+                    map.put(key, VALUE);
+                    return false;
+                } else {
+                    return map.get(key) != null;
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testLongKeyCacheMapContended() throws Exception {
+        final ALongKeyCacheMap<Object> map = new ALongKeyCacheMap<Object>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Long, Object>().withMaximumSize(MAXIMUM_SIZE);
+            }
+        };
+        runContended("longKeyCacheMapContended (" + map.getDelegate().getSegmentCount() + " segments)",
+                new IContendedOperation() {
+                    @Override
+                    public boolean run(final long key, final boolean write) {
+                        if (write) {
+                            map.put(key, VALUE);
+                            return false;
+                        } else {
+                            return map.get(key) != null;
+                        }
+                    }
+                });
+    }
+
+    private void runContended(final String name, final IContendedOperation operation) throws Exception {
+        final int threads = Executors.getCpuThreadPoolCount();
+        final WrappedExecutorService executor = Executors.newFixedThreadPool(name, threads);
+        try {
+            final Instant start = new Instant();
+            final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        final ThreadLocalRandom random = ThreadLocalRandom.current();
+                        long hits = 0;
+                        for (int i = 0; i < CONTENDED_OPERATIONS / threads; i++) {
+                            final long key = random.nextInt(KEYS);
+                            if (operation.run(key, random.nextInt(100) < CONTENDED_WRITE_PERCENT)) {
+                                hits++;
+                            }
+                        }
+                        return hits;
+                    }
+                }));
+            }
+            long hits = 0;
+            for (final Future<Long> future : futures) {
+                hits += future.get();
+            }
+            System.out.println(name + " with " + threads + " threads: " + start + " (" + hits + ")");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface IContendedOperation {
+        boolean run(long key, boolean write);
+    }
+
+    @Test
+    public void testCacheCollection() {
+        final ACacheCollection<Integer> collection = new ACacheCollection<Integer>() {
+            @Override
+            protected Cache<Integer, Integer> createDelegate() {
+                return new CacheBuilder<Integer, Integer>()
+                        .withUniqueName(TestPrimitiveKeyCache.class.getSimpleName() + "_cacheCollection")
+                        .withStoreByValue(false)
+                        .withMaximumSize(MAXIMUM_SIZE)
+                        .create();
+            }
+
+            @Override
+            protected Integer keyOf(final Object o) {
+                return o.hashCode();
+            }
+        };
+        final Integer[] elements = newElements();
+        final Instant start = new Instant();
+        long hits = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (int i = 0; i < KEYS; i++) {
+                collection.add(elements[i]);
+                if (collection.contains(elements[i / 2])) {
+                    hits++;
+                }
+            }
+        }
+        System.out.println("cacheCollection: " + start + " (" + hits + ")");
+    }
+
+    @Test
+    public void testIntKeyCacheCollection() {
+        final AIntKeyCacheCollection<Integer> collection = new AIntKeyCacheCollection<Integer>() {
+            @Override
+            protected CacheBuilder<?, ?> createCacheBuilder() {
+                return new CacheBuilder<Integer, Integer>().withMaximumSize(MAXIMUM_SIZE);
+            }
+
+            @Override
+            protected int keyOf(final Object o) {
+                return o.hashCode();
+            }
+        };
+        final Integer[] elements = newElements();
+        final Instant start = new Instant();
+        long hits = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (int i = 0; i < KEYS; i++) {
+                collection.add(elements[i]);
+                if (collection.contains(elements[i / 2])) {
+                    hits++;
+                }
+            }
+        }
+        System.out.println("intKeyCacheCollection: " + start + " (" + hits + ")");
+    }
+
+    @Test
+    public void testFastUtilMap() {
+        final it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap<Object> map = new it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap<Object>();
+        final Instant start = new Instant();
+        long hits = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (long i = 0; i < KEYS; i++) {
+                map.put(i, VALUE);
+                if (map.get(i / 2) != null) {
+                    hits++;
+                }
+            }
+        }
+        System.out.println("fastUtilMap (unbounded): " + start + " (" + hits + ")");
+    }
+
+    @Test
+    public void testKolobokeMap() {
+        final com.koloboke.collect.map.hash.HashLongObjMap<Object> map = com.koloboke.collect.map.hash.HashLongObjMaps
+                .newMutableMap();
+        final Instant start = new Instant();
+        long hits = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (long i = 0; i < KEYS; i++) {
+                map.put(i, VALUE);
+                if (map.get(i / 2) != null) {
+                    hits++;
+                }
+            }
+        }
+        System.out.println("kolobokeMap (unbounded): " + start + " (" + hits + ")");
+    }
+
+    private static Integer[] newElements() {
+        final Integer[] elements = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            elements[i] = i;
+        }
+        return elements;
+    }
+
+}